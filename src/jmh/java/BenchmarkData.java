@@ -0,0 +1,88 @@
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the ngrams and the analyses for the benchmarks, always the same ones. The objects of
+ * the classes of the analysis are returned as Objects, for the benchmarks package.
+ *
+ * @author julidipiti
+ */
+public final class BenchmarkData {
+
+  private BenchmarkData() {}
+
+  /**
+   * Generates the occurrences of every gram in some years. The grams are drawn from a vocabulary
+   * four times bigger than a year, the first ones much more often than the last ones, so the
+   * years share most of their frequent grams and differ in the rare ones. Another seed generates
+   * another language with the same vocabulary.
+   *
+   * @param gramsPerYear The number of draws of every year.
+   * @param count The number of years.
+   * @param seed The seed of the generator.
+   * @return The occurrences of every gram in every year.
+   */
+  public static List<Map<String, Long>> years(int gramsPerYear, int count, long seed) {
+    Random random = new Random(seed);
+    int vocabulary = gramsPerYear * 4;
+    List<Map<String, Long>> years = new ArrayList<>();
+    for (int y = 0; y < count; y++) {
+      Map<String, Long> year = new HashMap<>();
+      for (int i = 0; i < gramsPerYear; i++) {
+        // The square of a uniform number favors the first grams of the vocabulary.
+        double u = random.nextDouble();
+        String gram = "gram" + (int) (u * u * vocabulary);
+        Long occurrences = year.get(gram);
+        year.put(gram, (occurrences == null ? 0 : occurrences) + 1 + random.nextInt(100));
+      }
+      years.add(year);
+    }
+    return years;
+  }
+
+  /**
+   * Creates a long analysis, of every year from 1700 to 2008 in three languages.
+   *
+   * @return The AnalysisSpec.
+   */
+  public static Object analysis() {
+    return new AnalysisSpec()
+        .withLanguages(Arrays.asList("spa-all", "eng-all", "fre-all"))
+        .withFromYear(1700)
+        .withToYear(2008)
+        .withWindowSize(5)
+        .withPercentOfYears(0.8)
+        .withClusterSize(10)
+        .withTaskInstances(4);
+  }
+
+  /**
+   * Creates the planner of the steps, with a helper that never connects to AWS here.
+   *
+   * @return The StepPlanner.
+   */
+  public static Object planner() {
+    EMRHelper emrh =
+        new EMRHelper(
+            new BasicAWSCredentials("benchmark", "benchmark"), Region.getRegion(Regions.US_EAST_1));
+    return new StepPlanner(emrh, "s3://scripts/", "s3://output/");
+  }
+
+  /**
+   * Creates the estimator of the steps of the analysis, with 1Gb of ngrams.
+   *
+   * @return The PlanEstimator.
+   */
+  public static Object estimator() {
+    return new PlanEstimator(Collections.singletonMap("spa_all", 1L << 30), 10, 4);
+  }
+}
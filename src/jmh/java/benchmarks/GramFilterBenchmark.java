@@ -0,0 +1,87 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Compares the regex of ImportNgrams.q with the filter that walks the characters of the grams.
+ *
+ * @author julidipiti
+ */
+@State(Scope.Benchmark)
+public class GramFilterBenchmark {
+
+  private static final String letters = "abcdefghijklmnopqrstuvwxyzáéíóúñ";
+  // A few of the grams that the sanitization drops: capitals, digits and punctuation.
+  private static final String others = "ABCXYZ0123456789.,'\"";
+
+  @Param({"1", "3"})
+  public int ngramOrder;
+
+  // The GramFilter.
+  private Object filter;
+  private String[] grams;
+
+  /**
+   * Generates the grams, about a third of them with a character that is not allowed.
+   */
+  @Setup
+  public void setUp() throws Throwable {
+    filter = Kernels.newGramFilter.invokeExact(ngramOrder);
+    Random random = new Random(42);
+    grams = new String[10000];
+    for (int i = 0; i < grams.length; i++) {
+      StringBuilder sb = new StringBuilder();
+      for (int w = 0; w < ngramOrder; w++) {
+        if (w > 0) {
+          sb.append(' ');
+        }
+        int length = 2 + random.nextInt(10);
+        for (int c = 0; c < length; c++) {
+          sb.append(letters.charAt(random.nextInt(letters.length())));
+        }
+      }
+      if (random.nextInt(3) == 0) {
+        sb.setCharAt(random.nextInt(sb.length()), others.charAt(random.nextInt(others.length())));
+      }
+      grams[i] = sb.toString();
+    }
+  }
+
+  /**
+   * Filters the grams with the regex.
+   *
+   * @return The number of grams accepted.
+   */
+  @Benchmark
+  public int regex() throws Throwable {
+    int accepted = 0;
+    for (String gram : grams) {
+      if ((boolean) Kernels.acceptRegex.invokeExact(filter, gram)) {
+        accepted++;
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Filters the grams walking their characters.
+   *
+   * @return The number of grams accepted.
+   */
+  @Benchmark
+  public int matcher() throws Throwable {
+    int accepted = 0;
+    for (String gram : grams) {
+      if ((boolean) Kernels.accept.invokeExact(filter, gram)) {
+        accepted++;
+      }
+    }
+    return accepted;
+  }
+}
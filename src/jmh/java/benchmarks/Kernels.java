@@ -0,0 +1,159 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The classes of the analysis, for the benchmarks. JMH generates its code in a subpackage of the
+ * benchmarks, so they can't be in the default package, and the default package can't be imported
+ * from another one. The classes are reached through method handles instead, where the instances
+ * are Objects, and they are kept in static finals so the JIT calls them as directly as the code.
+ *
+ * @author julidipiti
+ */
+final class Kernels {
+
+  // GramFilter
+  static final MethodHandle newGramFilter = constructor("GramFilter", int.class);
+  static final MethodHandle accept = method("GramFilter", "accept", boolean.class, String.class);
+  static final MethodHandle acceptRegex =
+      method("GramFilter", "acceptRegex", boolean.class, String.class);
+
+  // WindowAggregator
+  static final MethodHandle newWindow = constructor("WindowAggregator");
+  static final MethodHandle add = method("WindowAggregator", "add", void.class, Map.class);
+  static final MethodHandle shift =
+      method("WindowAggregator", "shift", void.class, Map.class, Map.class);
+  static final MethodHandle size = method("WindowAggregator", "size", int.class);
+  static final MethodHandle getDictionary =
+      method("WindowAggregator", "getDictionary", Map.class, int.class);
+
+  // GramFinder
+  static final MethodHandle findNeologisms =
+      staticMethod("GramFinder", "findNeologisms", List.class, Map.class, Map.class, int.class);
+  static final MethodHandle findForeignisms =
+      staticMethod(
+          "GramFinder",
+          "findForeignisms",
+          List.class,
+          List.class,
+          List.class,
+          int.class,
+          int.class);
+
+  // StepPlanner and PlanEstimator, whose arguments are made by BenchmarkData.
+  static final MethodHandle getSteps =
+      method("StepPlanner", "getSteps", List.class, findClass("AnalysisSpec"));
+  static final MethodHandle describe =
+      method("PlanEstimator", "describe", String.class, List.class);
+
+  // BenchmarkData
+  static final MethodHandle years =
+      staticMethod("BenchmarkData", "years", List.class, int.class, int.class, long.class);
+  static final MethodHandle analysis = staticMethod("BenchmarkData", "analysis", Object.class);
+  static final MethodHandle planner = staticMethod("BenchmarkData", "planner", Object.class);
+  static final MethodHandle estimator = staticMethod("BenchmarkData", "estimator", Object.class);
+
+  private Kernels() {}
+
+  /**
+   * Gets a class of the default package.
+   *
+   * @param name The name of the class.
+   * @return The class.
+   * @throws IllegalStateException If the class is not in the classpath.
+   */
+  private static Class<?> findClass(String name) throws IllegalStateException {
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Replaces the classes of the default package of a method type with Object.
+   *
+   * @param type The type.
+   * @return The type with Objects.
+   */
+  private static MethodType erase(MethodType type) {
+    for (int i = 0; i < type.parameterCount(); i++) {
+      if (!type.parameterType(i).isPrimitive() && !type.parameterType(i).getName().contains(".")) {
+        type = type.changeParameterType(i, Object.class);
+      }
+    }
+    if (!type.returnType().isPrimitive() && !type.returnType().getName().contains(".")) {
+      type = type.changeReturnType(Object.class);
+    }
+    return type;
+  }
+
+  /**
+   * Finds a public constructor, which returns the instance as an Object.
+   *
+   * @param className The name of the class.
+   * @param parameters The classes of the parameters.
+   * @return The handle.
+   * @throws IllegalStateException If there is no such constructor.
+   */
+  private static MethodHandle constructor(String className, Class<?>... parameters)
+      throws IllegalStateException {
+    try {
+      MethodHandle handle =
+          MethodHandles.publicLookup()
+              .findConstructor(findClass(className), MethodType.methodType(void.class, parameters));
+      return handle.asType(erase(handle.type()));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Finds a public method of the instances, which are taken as Objects.
+   *
+   * @param className The name of the class.
+   * @param name The name of the method.
+   * @param returnType The class of the result.
+   * @param parameters The classes of the parameters.
+   * @return The handle.
+   * @throws IllegalStateException If there is no such method.
+   */
+  private static MethodHandle method(
+      String className, String name, Class<?> returnType, Class<?>... parameters)
+      throws IllegalStateException {
+    try {
+      MethodHandle handle =
+          MethodHandles.publicLookup()
+              .findVirtual(
+                  findClass(className), name, MethodType.methodType(returnType, parameters));
+      return handle.asType(erase(handle.type()));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Finds a public static method.
+   *
+   * @param className The name of the class.
+   * @param name The name of the method.
+   * @param returnType The class of the result.
+   * @param parameters The classes of the parameters.
+   * @return The handle.
+   * @throws IllegalStateException If there is no such method.
+   */
+  private static MethodHandle staticMethod(
+      String className, String name, Class<?> returnType, Class<?>... parameters)
+      throws IllegalStateException {
+    try {
+      return MethodHandles.publicLookup()
+          .findStatic(findClass(className), name, MethodType.methodType(returnType, parameters));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
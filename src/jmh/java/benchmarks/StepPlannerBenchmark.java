@@ -0,0 +1,54 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Measures building the steps of a long analysis, of every year from 1700 to 2008 in three
+ * languages, and estimating them for the dry run.
+ *
+ * @author julidipiti
+ */
+@State(Scope.Benchmark)
+public class StepPlannerBenchmark {
+
+  // The AnalysisSpec, the StepPlanner and the PlanEstimator.
+  private Object spec;
+  private Object planner;
+  private Object estimator;
+
+  /**
+   * Creates the analysis, the planner and the estimator.
+   */
+  @Setup
+  public void setUp() throws Throwable {
+    spec = Kernels.analysis.invokeExact();
+    planner = Kernels.planner.invokeExact();
+    estimator = Kernels.estimator.invokeExact();
+  }
+
+  /**
+   * Builds the steps.
+   *
+   * @return The steps.
+   */
+  @Benchmark
+  public List<?> getSteps() throws Throwable {
+    return (List<?>) Kernels.getSteps.invokeExact(planner, spec);
+  }
+
+  /**
+   * Builds and estimates the steps.
+   *
+   * @return The description of the steps.
+   */
+  @Benchmark
+  public String describe() throws Throwable {
+    List<?> steps = (List<?>) Kernels.getSteps.invokeExact(planner, spec);
+    return (String) Kernels.describe.invokeExact(estimator, steps);
+  }
+}
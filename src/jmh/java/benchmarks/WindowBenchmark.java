@@ -0,0 +1,114 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the window of the dictionaries: creating it, shifting it year by year and the
+ * neologisms and foreignisms found from its dictionaries.
+ *
+ * @author julidipiti
+ */
+@State(Scope.Benchmark)
+public class WindowBenchmark {
+
+  private static final int windowSize = 5;
+  private static final int shifts = 20;
+
+  @Param({"10000", "100000"})
+  public int gramsPerYear;
+
+  private List<Map<String, Long>> years;
+  private List<Map<String, Long>> dictionaries;
+  private List<Map<String, Long>> otherDictionaries;
+
+  /**
+   * Generates the years, and the dictionaries of two languages which share part of their grams.
+   */
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Throwable {
+    int count = windowSize + shifts;
+    years = (List<Map<String, Long>>) Kernels.years.invokeExact(gramsPerYear, count, 42L);
+    dictionaries = getDictionaries(years);
+    List<Map<String, Long>> otherYears =
+        (List<Map<String, Long>>) Kernels.years.invokeExact(gramsPerYear, count, 7L);
+    otherDictionaries = getDictionaries(otherYears);
+  }
+
+  /**
+   * Gets the dictionaries of every shift of some years.
+   *
+   * @param years The occurrences of every gram in every year.
+   * @return The dictionary of every year after the first window.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Long>> getDictionaries(List<Map<String, Long>> years)
+      throws Throwable {
+    List<Map<String, Long>> dictionaries = new ArrayList<>();
+    Object window = Kernels.newWindow.invokeExact();
+    for (int i = 0; i < windowSize; i++) {
+      Kernels.add.invokeExact(window, years.get(i));
+    }
+    for (int i = windowSize; i < years.size(); i++) {
+      Kernels.shift.invokeExact(window, years.get(i), years.get(i - windowSize));
+      Map<String, Long> dictionary =
+          (Map<String, Long>) Kernels.getDictionary.invokeExact(window, windowSize * 4 / 5);
+      dictionaries.add(dictionary);
+    }
+    return dictionaries;
+  }
+
+  /**
+   * Creates the window and shifts it through all the years.
+   *
+   * @return The grams in the last window.
+   */
+  @Benchmark
+  public int shiftWindow() throws Throwable {
+    Object window = Kernels.newWindow.invokeExact();
+    for (int i = 0; i < windowSize; i++) {
+      Kernels.add.invokeExact(window, years.get(i));
+    }
+    for (int i = windowSize; i < years.size(); i++) {
+      Kernels.shift.invokeExact(window, years.get(i), years.get(i - windowSize));
+    }
+    return (int) Kernels.size.invokeExact(window);
+  }
+
+  /**
+   * Finds the neologisms of every year.
+   *
+   * @return The number of neologisms.
+   */
+  @Benchmark
+  public int findNeologisms() throws Throwable {
+    int found = 0;
+    for (int i = 1; i < dictionaries.size(); i++) {
+      Map<String, Long> dictionary = dictionaries.get(i);
+      Map<String, Long> previous = dictionaries.get(i - 1);
+      List<?> neologisms = (List<?>) Kernels.findNeologisms.invokeExact(dictionary, previous, 20);
+      found += neologisms.size();
+    }
+    return found;
+  }
+
+  /**
+   * Finds the foreignisms between the dictionaries of both languages.
+   *
+   * @return The number of foreignisms.
+   */
+  @Benchmark
+  public int findForeignisms() throws Throwable {
+    List<?> foreignisms =
+        (List<?>) Kernels.findForeignisms.invokeExact(dictionaries, otherDictionaries, 10, 1000);
+    return foreignisms.size();
+  }
+}
@@ -0,0 +1,398 @@
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * All the parameters of one analysis: the languages, the years and window, what to export and the
+ * shape of the cluster. It can be filled in by the prompts of the analyzer or read from a JSON job
+ * spec, and it is validated with the same rules in both cases.
+ *
+ * @author julidipiti
+ */
+public class AnalysisSpec {
+
+  @JsonProperty private String name;
+  @JsonProperty private String language1;
+  @JsonProperty private String language2;
+  @JsonProperty private List<String> languages;
+  @JsonProperty private int ngramOrder = 1;
+  @JsonProperty private int samplePercent = 100;
+  @JsonProperty private int fromYear;
+  @JsonProperty private int toYear;
+  @JsonProperty private int windowSize;
+  @JsonProperty private double percentOfYears;
+  @JsonProperty private int neologismsPerYear = 20;
+  @JsonProperty private JoinStrategy joinStrategy = JoinStrategy.SHUFFLE;
+  @JsonProperty private int usageRatio = 1000;
+  @JsonProperty private int foreignismsLimit = 1000;
+  @JsonProperty private CompressionCodec intermediateCodec = CompressionCodec.NONE;
+  @JsonProperty private CompressionCodec outputCodec = CompressionCodec.NONE;
+  @JsonProperty private String masterInstanceType = "m3.xlarge";
+  @JsonProperty private String slaveInstanceType;
+  @JsonProperty private int clusterSize;
+  @JsonProperty private int taskInstances;
+
+  /**
+   * Checks that all the parameters are valid.
+   *
+   * @throws IllegalArgumentException Accuses some problem with the parameters.
+   */
+  public void validate() throws IllegalArgumentException {
+    if (name != null && !name.matches("[A-Za-z0-9_-]+")) {
+      throw new IllegalArgumentException(
+          "name can only have letters, numbers, hyphens and underscores.");
+    }
+    if (languages != null) {
+      if (language1 != null || language2 != null) {
+        throw new IllegalArgumentException("Use either languages or language1 and language2.");
+      }
+      if (languages.size() < 2) {
+        throw new IllegalArgumentException("languages needs at least 2 languages.");
+      }
+      if (new HashSet<>(languages).size() < languages.size()) {
+        throw new IllegalArgumentException("languages can not be repeated.");
+      }
+      for (String language : languages) {
+        if (language == null || language.isEmpty()) {
+          throw new IllegalArgumentException("languages can not be empty.");
+        }
+      }
+    } else if (language1 == null || language1.isEmpty()) {
+      throw new IllegalArgumentException("language1 is needed.");
+    }
+    if (ngramOrder < 1 || ngramOrder > 5) {
+      throw new IllegalArgumentException("ngramOrder must be between 1 and 5.");
+    }
+    if (samplePercent < 1 || samplePercent > 100) {
+      throw new IllegalArgumentException("samplePercent must be between 1 and 100.");
+    }
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("windowSize must be at least 1.");
+    }
+    if (fromYear < 1700 || fromYear > 2008 || toYear < 1700 || toYear > 2008) {
+      throw new IllegalArgumentException("fromYear and toYear must be between 1700 and 2008");
+    }
+    if (fromYear >= toYear) {
+      throw new IllegalArgumentException("fromYear must be less than toYear.");
+    }
+    if (fromYear + windowSize > toYear) {
+      throw new IllegalArgumentException(
+          "There are not enough years to shift the window. Make sure fromYear + windowSize is less "
+              + "than toYear.");
+    }
+    if (percentOfYears < 0.1 || percentOfYears > 1.0) {
+      throw new IllegalArgumentException("percentOfYears must be between 0.1 and 1.0");
+    }
+    if (neologismsPerYear < 1) {
+      throw new IllegalArgumentException("neologismsPerYear must be at least 1.");
+    }
+    if (usageRatio < 1) {
+      throw new IllegalArgumentException("usageRatio must be at least 1.");
+    }
+    if (foreignismsLimit < 1) {
+      throw new IllegalArgumentException("foreignismsLimit must be at least 1.");
+    }
+    if (joinStrategy == null || intermediateCodec == null || outputCodec == null) {
+      throw new IllegalArgumentException(
+          "joinStrategy, intermediateCodec and outputCodec can not be null.");
+    }
+    if (!intermediateCodec.isIntermediate()) {
+      throw new IllegalArgumentException(
+          "intermediateCodec must be NONE, SNAPPY or LZ4, " + intermediateCodec
+              + " is too heavy on CPU for the data shuffled inside the cluster.");
+    }
+    // Checked before launching, since the results of a paid run could not be downloaded.
+    if (!outputCodec.isReadableWithoutHadoop()) {
+      throw new IllegalArgumentException(
+          "outputCodec must be NONE or GZIP, the results written with " + outputCodec
+              + " can only be read with Hadoop.");
+    }
+    // A size of 0 means that the recommended size is used.
+    if (clusterSize < 0 || clusterSize > 20) {
+      throw new IllegalArgumentException("The size of the cluster must be between 1 and 20.");
+    }
+    if (taskInstances < 0
+        || (taskInstances > 0 && clusterSize > 0 && clusterSize - 1 - taskInstances < 1)) {
+      throw new IllegalArgumentException(
+          "There must be a master and at least one core instance besides the task instances.");
+    }
+  }
+
+  /**
+   * Tells if the analysis looks for foreignisms, which happens when the languages differ.
+   *
+   * @return True if there are two different languages.
+   */
+  public boolean hasForeignisms() {
+    return getLanguages().size() > 1;
+  }
+
+  /**
+   * Tells if the analysis runs the neologisms of every language and the foreignisms of every pair
+   * of them, instead of the neologisms of language1 and the foreignisms it borrowed from
+   * language2.
+   *
+   * @return True if the languages were given as a list.
+   */
+  public boolean isMultiLanguage() {
+    return languages != null;
+  }
+
+  /**
+   * Gets all the languages to import.
+   *
+   * @return The list of languages, or language1 and language2 if they differ.
+   */
+  public List<String> getLanguages() {
+    if (languages != null) {
+      return languages;
+    }
+    List<String> result = new ArrayList<>();
+    result.add(language1);
+    if (!language1.equals(getLanguage2())) {
+      result.add(getLanguage2());
+    }
+    return result;
+  }
+
+  /**
+   * Gets the name of the table for the main language.
+   *
+   * @return The name of language1 as a valid table name.
+   */
+  public String getNgramsTable1() {
+    return getNgramsTable(getLanguage1());
+  }
+
+  /**
+   * Gets the name of the table for the language that sources the foreignisms.
+   *
+   * @return The name of language2 as a valid table name.
+   */
+  public String getNgramsTable2() {
+    return getNgramsTable(getLanguage2());
+  }
+
+  /**
+   * Gets the name of the table for a language. The tables of grams of more than one word are named
+   * after their order too, so they never mix with the 1grams.
+   *
+   * @param language The language, as it is named in S3 (e.g., spa-all).
+   * @return The name of the language as a valid table name.
+   */
+  public String getNgramsTable(String language) {
+    String table = language.replace('-', '_');
+    if (ngramOrder > 1) {
+      table += "_" + ngramOrder + "gram";
+    }
+    return table;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public AnalysisSpec withName(String name) {
+    this.name = name;
+    return this;
+  }
+
+  /**
+   * Gets the main language.
+   *
+   * @return The language, which is the first of the list of languages if they were given so.
+   */
+  public String getLanguage1() {
+    return languages != null ? languages.get(0) : language1;
+  }
+
+  public AnalysisSpec withLanguage1(String language1) {
+    this.language1 = language1;
+    return this;
+  }
+
+  /**
+   * Gets the language that sources the foreignisms.
+   *
+   * @return The language, which is language1 if it was not set, or the second of the list of
+   *     languages if they were given so.
+   */
+  public String getLanguage2() {
+    if (languages != null) {
+      return languages.get(1);
+    }
+    return language2 == null ? language1 : language2;
+  }
+
+  public AnalysisSpec withLanguage2(String language2) {
+    this.language2 = language2;
+    return this;
+  }
+
+  public AnalysisSpec withLanguages(List<String> languages) {
+    this.languages = languages;
+    return this;
+  }
+
+  public int getNgramOrder() {
+    return ngramOrder;
+  }
+
+  public AnalysisSpec withNgramOrder(int ngramOrder) {
+    this.ngramOrder = ngramOrder;
+    return this;
+  }
+
+  /**
+   * Gets the percent of the grams to analyze. A preview analyzes only a sample of them, always the
+   * same for the same percent, to try some parameters quickly.
+   *
+   * @return The percent, 100 if all of them.
+   */
+  public int getSamplePercent() {
+    return samplePercent;
+  }
+
+  public AnalysisSpec withSamplePercent(int samplePercent) {
+    this.samplePercent = samplePercent;
+    return this;
+  }
+
+  public int getFromYear() {
+    return fromYear;
+  }
+
+  public AnalysisSpec withFromYear(int fromYear) {
+    this.fromYear = fromYear;
+    return this;
+  }
+
+  public int getToYear() {
+    return toYear;
+  }
+
+  public AnalysisSpec withToYear(int toYear) {
+    this.toYear = toYear;
+    return this;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public AnalysisSpec withWindowSize(int windowSize) {
+    this.windowSize = windowSize;
+    return this;
+  }
+
+  public double getPercentOfYears() {
+    return percentOfYears;
+  }
+
+  public AnalysisSpec withPercentOfYears(double percentOfYears) {
+    this.percentOfYears = percentOfYears;
+    return this;
+  }
+
+  public int getNeologismsPerYear() {
+    return neologismsPerYear;
+  }
+
+  public AnalysisSpec withNeologismsPerYear(int neologismsPerYear) {
+    this.neologismsPerYear = neologismsPerYear;
+    return this;
+  }
+
+  public JoinStrategy getJoinStrategy() {
+    return joinStrategy;
+  }
+
+  public AnalysisSpec withJoinStrategy(JoinStrategy joinStrategy) {
+    this.joinStrategy = joinStrategy;
+    return this;
+  }
+
+  public int getUsageRatio() {
+    return usageRatio;
+  }
+
+  public AnalysisSpec withUsageRatio(int usageRatio) {
+    this.usageRatio = usageRatio;
+    return this;
+  }
+
+  public int getForeignismsLimit() {
+    return foreignismsLimit;
+  }
+
+  public AnalysisSpec withForeignismsLimit(int foreignismsLimit) {
+    this.foreignismsLimit = foreignismsLimit;
+    return this;
+  }
+
+  public CompressionCodec getIntermediateCodec() {
+    return intermediateCodec;
+  }
+
+  public AnalysisSpec withIntermediateCodec(CompressionCodec intermediateCodec) {
+    this.intermediateCodec = intermediateCodec;
+    return this;
+  }
+
+  public CompressionCodec getOutputCodec() {
+    return outputCodec;
+  }
+
+  public AnalysisSpec withOutputCodec(CompressionCodec outputCodec) {
+    this.outputCodec = outputCodec;
+    return this;
+  }
+
+  public String getMasterInstanceType() {
+    return masterInstanceType;
+  }
+
+  public AnalysisSpec withMasterInstanceType(String masterInstanceType) {
+    this.masterInstanceType = masterInstanceType;
+    return this;
+  }
+
+  /**
+   * Gets the type of instance for all the slaves.
+   *
+   * @return The instance type, or null if the recommended one is used.
+   */
+  public String getSlaveInstanceType() {
+    return slaveInstanceType;
+  }
+
+  public AnalysisSpec withSlaveInstanceType(String slaveInstanceType) {
+    this.slaveInstanceType = slaveInstanceType;
+    return this;
+  }
+
+  /**
+   * Gets the number of instances, counting the master.
+   *
+   * @return The number of instances, or 0 if the recommended size is used.
+   */
+  public int getClusterSize() {
+    return clusterSize;
+  }
+
+  public AnalysisSpec withClusterSize(int clusterSize) {
+    this.clusterSize = clusterSize;
+    return this;
+  }
+
+  public int getTaskInstances() {
+    return taskInstances;
+  }
+
+  public AnalysisSpec withTaskInstances(int taskInstances) {
+    this.taskInstances = taskInstances;
+    return this;
+  }
+}
@@ -0,0 +1,94 @@
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * Collects the latency, the retries and the errors of every call that a client of AWS makes, by
+ * the service and the operation, i.e.: the GetObject calls of S3. The client measures every
+ * request, including the retries that the SDK does on its own, and hands the measures over when
+ * the call ends.
+ *
+ * @author julidipiti
+ */
+public class AwsCallMetrics extends RequestMetricCollector {
+
+  private final Metrics metrics;
+  private final String service;
+
+  /**
+   * Creates a collector for the clients of a service.
+   *
+   * @param metrics The registry of the metrics.
+   * @param service The name of the service for the labels, i.e.: s3.
+   */
+  public AwsCallMetrics(Metrics metrics, String service) {
+    this.metrics = metrics;
+    this.service = service;
+  }
+
+  @Override
+  public void collectMetrics(Request<?> request, Response<?> response) {
+    String operation = getOperation(request);
+    AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+    TimingInfo timing = requestMetrics == null ? null : requestMetrics.getTimingInfo();
+    if (timing != null) {
+      TimingInfo execution =
+          timing.getSubMeasurement(AWSRequestMetrics.Field.ClientExecuteTime.name());
+      Double millis =
+          execution != null
+              ? execution.getTimeTakenMillisIfKnown()
+              : timing.getTimeTakenMillisIfKnown();
+      if (millis != null) {
+        metrics
+            .timer(
+                "ana_aws_call_seconds",
+                "Latency of the calls to AWS, retries included.",
+                "service",
+                service,
+                "operation",
+                operation)
+            .observe(millis / 1000);
+      }
+      Number retries = timing.getCounter(AWSRequestMetrics.Field.HttpClientRetryCount.name());
+      if (retries != null && retries.longValue() > 0) {
+        metrics
+            .counter(
+                "ana_aws_retries_total",
+                "Retries of the calls to AWS.",
+                "service",
+                service,
+                "operation",
+                operation)
+            .add(retries.longValue());
+      }
+    }
+    // The client hands no response over when the call fails.
+    if (response == null) {
+      metrics
+          .counter(
+              "ana_aws_errors_total",
+              "Calls to AWS that failed after their retries.",
+              "service",
+              service,
+              "operation",
+              operation)
+          .inc();
+    }
+  }
+
+  /**
+   * Gets the name of the operation of a request, as the API of the service names it.
+   *
+   * @param request The request.
+   * @return The operation, i.e.: GetObject.
+   */
+  static String getOperation(Request<?> request) {
+    if (request.getOriginalRequest() == null) {
+      return "Unknown";
+    }
+    String name = request.getOriginalRequest().getClass().getSimpleName();
+    return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+  }
+}
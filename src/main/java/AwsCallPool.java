@@ -0,0 +1,351 @@
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryUtils;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls to AWS in a pool of threads shared by the helpers, so many calls can be made at
+ * once without tripping the throttling of the APIs. Every API can have a rate limit, the calls that
+ * are waiting for a thread are bounded, and the calls that are throttled anyway are retried after
+ * an exponential backoff with jitter, so the clients that were throttled together do not retry
+ * together. A call waits for its retry without holding a thread, and the clients of the calls do
+ * not retry the throttled ones themselves (see getClientConfiguration). The APIs are named by the
+ * service and the operation, i.e.: emr.DescribeCluster, and the limit of a service applies to its
+ * operations without their own limit.
+ *
+ * @author julidipiti
+ */
+public class AwsCallPool {
+
+  private static final int defaultThreads = 16;
+  private static final int defaultQueuedCalls = 256;
+  private static final int defaultMaxRetries = 6;
+  private static final long defaultBaseDelayMillis = 100L;
+  // 20s, as the SDK waits at most between its own retries.
+  private static final long defaultMaxDelayMillis = 20000L;
+  private static AwsCallPool defaultPool;
+
+  // Runs the calls, and the retries once their backoff is over.
+  private final ScheduledExecutorService threadPool;
+  private final Semaphore slots;
+  private final int maxRetries;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final Map<String, TokenBucket> limits = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a pool.
+   *
+   * @param threads The calls that run at the same time, at least 1.
+   * @param queuedCalls The calls that can wait for a thread before submitting more calls blocks.
+   * @param maxRetries The retries of a throttled call before its error is thrown.
+   * @param baseDelayMillis The longest wait before the first retry, in milliseconds.
+   * @param maxDelayMillis The longest wait before any retry, in milliseconds.
+   */
+  public AwsCallPool(
+      int threads, int queuedCalls, int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+    if (threads < 1 || queuedCalls < 0 || maxRetries < 0) {
+      throw new IllegalArgumentException(
+          "The pool needs at least 1 thread, and no negative queued calls or retries.");
+    }
+    if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+      throw new IllegalArgumentException(
+          "The delays can't be negative, and the maximum can't be less than the base.");
+    }
+    this.threadPool =
+        Executors.newScheduledThreadPool(
+            threads,
+            new ThreadFactory() {
+              private final AtomicInteger count = new AtomicInteger();
+
+              @Override
+              public Thread newThread(Runnable r) {
+                // Daemon threads, so a pending call never keeps the program alive.
+                Thread thread = new Thread(r, "aws-call-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    this.slots = new Semaphore(threads + queuedCalls);
+    this.maxRetries = maxRetries;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * Gets the pool shared by the helpers, with 16 threads and the limits of S3 and EMR: 100 calls
+   * per second to S3, well below what a prefix takes, and 2 calls per second to EMR, whose APIs
+   * are throttled much sooner.
+   *
+   * @return The pool.
+   */
+  public static synchronized AwsCallPool getDefault() {
+    if (defaultPool == null) {
+      defaultPool =
+          new AwsCallPool(
+                  defaultThreads,
+                  defaultQueuedCalls,
+                  defaultMaxRetries,
+                  defaultBaseDelayMillis,
+                  defaultMaxDelayMillis)
+              .withRateLimit("s3", 100, 100)
+              .withRateLimit("emr", 2, 10);
+    }
+    return defaultPool;
+  }
+
+  /**
+   * Limits the rate of the calls to an API or to a service.
+   *
+   * @param api The API, i.e.: emr.DescribeCluster, or the service for all its APIs, i.e.: emr.
+   * @param callsPerSecond The calls per second.
+   * @param burst The calls that can be made at once after a while without calls.
+   * @return The pool.
+   */
+  public AwsCallPool withRateLimit(String api, double callsPerSecond, int burst) {
+    limits.put(api, new TokenBucket(callsPerSecond, burst));
+    return this;
+  }
+
+  /**
+   * Gets the configuration of the clients whose calls go through a pool. Their own retries skip the
+   * throttled calls, which the pool retries, so a throttled call is not retried by both.
+   *
+   * @return The configuration, with the default retries of the SDK for the rest of the errors.
+   */
+  public static ClientConfiguration getClientConfiguration() {
+    RetryPolicy.RetryCondition condition =
+        new RetryPolicy.RetryCondition() {
+          @Override
+          public boolean shouldRetry(
+              AmazonWebServiceRequest request, AmazonClientException ace, int retriesAttempted) {
+            if (ace instanceof AmazonServiceException
+                && isThrottling((AmazonServiceException) ace)) {
+              return false;
+            }
+            return PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(
+                request, ace, retriesAttempted);
+          }
+        };
+    return new ClientConfiguration()
+        .withRetryPolicy(
+            new RetryPolicy(
+                condition,
+                PredefinedRetryPolicies.DEFAULT_BACKOFF_STRATEGY,
+                PredefinedRetryPolicies.DEFAULT_MAX_ERROR_RETRY,
+                true));
+  }
+
+  /**
+   * Submits a call to run as soon as there is a thread and its API allows it, waiting while the
+   * pool is full. The call keeps its place in the pool until it is done, retries included.
+   *
+   * @param api The API of the call, i.e.: s3.PutObject.
+   * @param call The call.
+   * @param <T> The type of the result of the call.
+   * @return The result of the call, once it is done.
+   * @throws InterruptedException If the thread is interrupted while the pool is full.
+   */
+  public <T> Future<T> submit(String api, Callable<T> call) throws InterruptedException {
+    slots.acquire();
+    Result<T> result = new Result<>();
+    try {
+      threadPool.execute(new Attempt<>(api, call, result, 0));
+    } catch (RuntimeException re) {
+      slots.release();
+      throw re;
+    }
+    return result;
+  }
+
+  /**
+   * Makes a call through the pool and waits for its result.
+   *
+   * @param api The API of the call, i.e.: s3.CreateBucket.
+   * @param call The call.
+   * @param <T> The type of the result of the call.
+   * @return The result of the call.
+   * @throws AmazonClientException If the call fails, is still throttled after all its retries or
+   *     the thread is interrupted.
+   */
+  public <T> T call(String api, Callable<T> call) {
+    try {
+      return submit(api, call).get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while calling " + api + ".", ie);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ee.getCause();
+      }
+      throw new AmazonClientException("The call to " + api + " failed.", ee.getCause());
+    }
+  }
+
+  /**
+   * Stops the threads of the pool, without waiting for the calls that are running.
+   */
+  public void shutdown() {
+    threadPool.shutdownNow();
+  }
+
+  /**
+   * An attempt of a call, which runs in a thread of the pool within the rate limit of its API. A
+   * throttled attempt schedules the next one after its backoff, and frees its thread meanwhile.
+   *
+   * @param <T> The type of the result of the call.
+   */
+  private final class Attempt<T> implements Runnable {
+
+    private final String api;
+    private final Callable<T> call;
+    private final Result<T> result;
+    private final int attempt;
+
+    Attempt(String api, Callable<T> call, Result<T> result, int attempt) {
+      this.api = api;
+      this.call = call;
+      this.result = result;
+      this.attempt = attempt;
+    }
+
+    @Override
+    public void run() {
+      boolean done = true;
+      try {
+        // A call that is cancelled before it runs is not made.
+        if (result.isCancelled()) {
+          return;
+        }
+        TokenBucket limit = getLimit(api);
+        if (limit != null) {
+          limit.acquire();
+        }
+        result.set(call.call());
+      } catch (AmazonServiceException ase) {
+        if (attempt < maxRetries && isThrottling(ase) && !result.isCancelled()) {
+          Metrics.getDefault()
+              .counter("ana_aws_throttled_total", "Calls to AWS throttled and retried.", "api", api)
+              .inc();
+          done = !retry();
+        } else {
+          result.setException(ase);
+        }
+      } catch (Exception e) {
+        result.setException(e);
+      } finally {
+        if (done) {
+          slots.release();
+        }
+      }
+    }
+
+    /**
+     * Schedules the next attempt of the call after its backoff.
+     *
+     * @return True if it was scheduled, or false if the pool is shut down.
+     */
+    private boolean retry() {
+      try {
+        threadPool.schedule(
+            new Attempt<>(api, call, result, attempt + 1),
+            getBackoffMillis(attempt),
+            TimeUnit.MILLISECONDS);
+        return true;
+      } catch (RejectedExecutionException ree) {
+        result.setException(ree);
+        return false;
+      }
+    }
+  }
+
+  /**
+   * The result of a call, which is set by the attempt that ends it.
+   *
+   * @param <T> The type of the result.
+   */
+  private static final class Result<T> extends FutureTask<T> {
+
+    Result() {
+      super(
+          new Callable<T>() {
+            @Override
+            public T call() {
+              throw new IllegalStateException("The result is set by the attempts of the call.");
+            }
+          });
+    }
+
+    @Override
+    protected void set(T value) {
+      super.set(value);
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+      super.setException(t);
+    }
+  }
+
+  /**
+   * Gets the rate limit of an API, or of its service if it has none.
+   *
+   * @param api The API, i.e.: emr.DescribeCluster.
+   * @return The limit, or null if the calls to the API are not limited.
+   */
+  private TokenBucket getLimit(String api) {
+    TokenBucket limit = limits.get(api);
+    if (limit == null && api.indexOf('.') > 0) {
+      limit = limits.get(api.substring(0, api.indexOf('.')));
+    }
+    return limit;
+  }
+
+  /**
+   * Gets how long to wait before a retry, at random between 0 and a limit that doubles with every
+   * attempt (full jitter), up to the maximum delay.
+   *
+   * @param attempt The number of the attempt that was throttled, from 0.
+   * @return The milliseconds to wait.
+   */
+  long getBackoffMillis(int attempt) {
+    long limit = baseDelayMillis << Math.min(attempt, 30);
+    if (limit > maxDelayMillis || limit < 0) {
+      limit = maxDelayMillis;
+    }
+    return ThreadLocalRandom.current().nextLong(limit + 1);
+  }
+
+  /**
+   * Tells if an error means that the call was throttled, by the codes of the services or by the
+   * HTTP status.
+   *
+   * @param ase The error.
+   * @return True if the call can be made again later.
+   */
+  static boolean isThrottling(AmazonServiceException ase) {
+    return RetryUtils.isThrottlingException(ase)
+        || ase.getStatusCode() == 429
+        || "SlowDown".equals(ase.getErrorCode())
+        || "RequestLimitExceeded".equals(ase.getErrorCode())
+        || "TooManyRequestsException".equals(ase.getErrorCode());
+  }
+}
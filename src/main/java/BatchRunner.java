@@ -0,0 +1,247 @@
+import com.amazonaws.services.elasticmapreduce.model.RunJobFlowResult;
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs all the analyses of a JSON job spec without asking anything, so the analyzer can be launched
+ * from a script or a scheduler. Every analysis gets its own cluster and its own folders for the
+ * output and the logs, and only a few clusters run at the same time.
+ *
+ * @author julidipiti
+ */
+public class BatchRunner {
+
+  // 60s between checks of the state of a cluster.
+  private static final long pollMillis = 60000L;
+
+  private final S3Helper s3h;
+  private final EMRHelper emrh;
+  private final String outputFullPath;
+  private final String logsPath;
+
+  /**
+   * The content of a job spec file.
+   */
+  static class JobSpec {
+    @JsonProperty int maxParallelClusters = 1;
+    @JsonProperty List<AnalysisSpec> analyses = new ArrayList<>();
+  }
+
+  /**
+   * Creates a runner.
+   *
+   * @param s3h The helper that sizes the ngrams.
+   * @param emrh The helper that checks the state of the clusters.
+   * @param outputFullPath The URL in S3 where every analysis exports its results, in a folder with
+   *     its name.
+   * @param logsPath The URL in S3 where every analysis stores its logs, in a folder with its name.
+   */
+  public BatchRunner(S3Helper s3h, EMRHelper emrh, String outputFullPath, String logsPath) {
+    this.s3h = s3h;
+    this.emrh = emrh;
+    this.outputFullPath = outputFullPath;
+    this.logsPath = logsPath;
+  }
+
+  /**
+   * Runs all the analyses of a job spec and waits until all their clusters finish.
+   *
+   * @param specFile The JSON file with the job spec.
+   * @throws IOException If the file can not be read or it is not a valid job spec.
+   * @throws IllegalArgumentException Accuses some problem with the analyses.
+   */
+  public void run(File specFile) throws IOException, IllegalArgumentException {
+    JobSpec job = readJobSpec(specFile);
+
+    ExecutorService pool = Executors.newFixedThreadPool(job.maxParallelClusters);
+    List<Future<String>> results = new ArrayList<>();
+    for (final AnalysisSpec spec : job.analyses) {
+      results.add(
+          pool.submit(
+              new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                  return runAnalysis(spec);
+                }
+              }));
+    }
+    pool.shutdown();
+
+    int failed = 0;
+    IOHelper.println();
+    for (int i = 0; i < results.size(); i++) {
+      String name = job.analyses.get(i).getName();
+      try {
+        String state = results.get(i).get();
+        IOHelper.println(name + ": " + state);
+        if (!"TERMINATED".equals(state)) {
+          failed++;
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        pool.shutdownNow();
+        throw new IOException("Interrupted while waiting for the analyses.", ie);
+      } catch (ExecutionException ee) {
+        IOHelper.println(name + ": FAILED TO LAUNCH, " + ee.getCause());
+        failed++;
+      }
+    }
+    IOHelper.println(
+        (results.size() - failed) + " of " + results.size() + " analyses finished correctly.");
+  }
+
+  /**
+   * Prints the steps of all the analyses of a job spec, with their estimations, without launching
+   * anything.
+   *
+   * @param specFile The JSON file with the job spec.
+   * @throws IOException If the file can not be read or it is not a valid job spec.
+   * @throws IllegalArgumentException Accuses some problem with the analyses.
+   */
+  public void dryRun(File specFile) throws IOException, IllegalArgumentException {
+    JobSpec job = readJobSpec(specFile);
+
+    for (AnalysisSpec spec : job.analyses) {
+      Map<String, Long> tableBytes = getTableBytes(spec);
+      ClusterPlanner plan = planCluster(spec, tableBytes);
+      List<StepConfig> steps = Main.planSteps(spec, outputFullPath + spec.getName() + "/");
+
+      IOHelper.println();
+      IOHelper.println(spec.getName() + ": " + plan.forInstances(spec.getClusterSize()));
+      IOHelper.println(
+          new PlanEstimator(
+                  tableBytes,
+                  spec.getClusterSize(),
+                  spec.getTaskInstances(),
+                  spec.getSamplePercent())
+              .describe(steps));
+    }
+  }
+
+  /**
+   * Launches the cluster of an analysis, with the recommended size if it has none, and waits until
+   * it finishes.
+   *
+   * @param spec The analysis.
+   * @return The final state of the cluster.
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  private String runAnalysis(AnalysisSpec spec) throws InterruptedException {
+    ClusterPlanner plan = planCluster(spec, getTableBytes(spec));
+
+    RunJobFlowResult result =
+        Main.launchAnalysis(
+            spec, plan, outputFullPath + spec.getName() + "/", logsPath + spec.getName() + "/");
+    IOHelper.println(spec.getName() + ": launching job with id " + result.getJobFlowId());
+
+    String state = emrh.waitForJobFlow(result.getJobFlowId(), pollMillis);
+    // The resizes continue on failure, so a cluster that could not resize still terminates
+    // normally and only its failed steps tell.
+    List<String> failedSteps = emrh.getFailedSteps(result.getJobFlowId());
+    if (!failedSteps.isEmpty()) {
+      IOHelper.println(spec.getName() + ": WARNING, these steps failed: " + failedSteps);
+    }
+    return state;
+  }
+
+  /**
+   * Sizes the ngrams of the languages of an analysis.
+   *
+   * @param spec The analysis.
+   * @return The size in bytes of every language, by the name of its table.
+   */
+  private Map<String, Long> getTableBytes(AnalysisSpec spec) {
+    Map<String, Future<Long>> sizes = new LinkedHashMap<>();
+    for (String language : spec.getLanguages()) {
+      sizes.put(
+          spec.getNgramsTable(language),
+          s3h.prefetchNgramsSize(language, spec.getNgramOrder()));
+    }
+    Map<String, Long> tableBytes = new HashMap<>();
+    for (Map.Entry<String, Future<Long>> size : sizes.entrySet()) {
+      tableBytes.put(size.getKey(), Main.getInputSize(size.getValue()));
+    }
+    return tableBytes;
+  }
+
+  /**
+   * Plans the cluster of an analysis, and gives it the recommended size and slave instance type if
+   * it has none.
+   *
+   * @param spec The analysis.
+   * @param tableBytes The size in bytes of every language of the analysis.
+   * @return The plan.
+   * @throws IllegalArgumentException If the recommended size leaves no core instances.
+   */
+  private static ClusterPlanner planCluster(AnalysisSpec spec, Map<String, Long> tableBytes)
+      throws IllegalArgumentException {
+    long inputSize = 0;
+    for (long bytes : tableBytes.values()) {
+      inputSize += bytes;
+    }
+    ClusterPlanner plan =
+        new ClusterPlanner(inputSize, spec.getFromYear(), spec.getToYear(), spec.getWindowSize());
+    if (spec.getClusterSize() == 0) {
+      spec.withClusterSize(plan.getInstanceCount());
+    }
+    if (spec.getSlaveInstanceType() == null) {
+      spec.withSlaveInstanceType(plan.getSlaveInstanceType());
+    }
+    // The recommended size could leave no core instances besides the task instances.
+    spec.validate();
+    return plan;
+  }
+
+  /**
+   * Reads a job spec and checks all its analyses, so nothing is launched if any of them is wrong.
+   * The analyses without a name are called analysis-1, analysis-2... by their position.
+   *
+   * @param specFile The JSON file with the job spec.
+   * @return The job spec.
+   * @throws IOException If the file can not be read or it is not a valid job spec.
+   * @throws IllegalArgumentException Accuses some problem with the analyses.
+   */
+  static JobSpec readJobSpec(File specFile) throws IOException, IllegalArgumentException {
+    JobSpec job = new ObjectMapper().readValue(specFile, JobSpec.class);
+
+    if (job.maxParallelClusters < 1) {
+      throw new IllegalArgumentException("maxParallelClusters must be at least 1.");
+    }
+    if (job.analyses == null || job.analyses.isEmpty()) {
+      throw new IllegalArgumentException("The job spec has no analyses.");
+    }
+
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < job.analyses.size(); i++) {
+      AnalysisSpec spec = job.analyses.get(i);
+      if (spec.getName() == null) {
+        spec.withName("analysis-" + (i + 1));
+      }
+      if (!names.add(spec.getName())) {
+        throw new IllegalArgumentException("There are two analyses named " + spec.getName() + ".");
+      }
+      try {
+        spec.validate();
+      } catch (IllegalArgumentException iae) {
+        throw new IllegalArgumentException(spec.getName() + ": " + iae.getMessage(), iae);
+      }
+    }
+    return job;
+  }
+}
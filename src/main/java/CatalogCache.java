@@ -0,0 +1,130 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Cache on disk for the metadata of the catalog, like the languages of the ngrams, which rarely
+ * changes. Every entry is a list of strings that expires after a time to live, so repeated launches
+ * do not need to ask AWS for it again.
+ *
+ * @author julidipiti
+ */
+public class CatalogCache {
+
+  // 7 days = 604800000ms
+  public static final long defaultTtl = 604800000L;
+  private static final String timestampSuffix = ".timestamp";
+  private static final String separator = ",";
+
+  private final File file;
+  private final long ttl;
+
+  /**
+   * Creates a cache in the default file, in the home of the user, with the default time to live.
+   */
+  public CatalogCache() {
+    this(new File(System.getProperty("user.home"), ".ana/catalog.properties"), defaultTtl);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param file The file where to store the entries. It is created on the first put.
+   * @param ttl The time to live of the entries, in milliseconds.
+   */
+  public CatalogCache(File file, long ttl) {
+    this.file = file;
+    this.ttl = ttl;
+  }
+
+  /**
+   * Gets an entry of the cache.
+   *
+   * @param key The name of the entry.
+   * @return The values of the entry, or null if it is not cached or it expired.
+   */
+  public synchronized List<String> get(String key) {
+    Properties properties = load();
+    String values = properties.getProperty(key);
+    String timestamp = properties.getProperty(key + timestampSuffix);
+    if (values == null || timestamp == null) {
+      return null;
+    }
+    try {
+      if (System.currentTimeMillis() - Long.parseLong(timestamp) > ttl) {
+        return null;
+      }
+    } catch (NumberFormatException nfe) {
+      return null;
+    }
+    if (values.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return Arrays.asList(values.split(separator));
+  }
+
+  /**
+   * Stores an entry in the cache, replacing the previous one if any. The file is replaced
+   * atomically, so a concurrent launch never reads half of it. Failing to write is not an error,
+   * the entry is just not cached.
+   *
+   * @param key The name of the entry.
+   * @param values The values of the entry, which can not contain commas.
+   */
+  public synchronized void put(String key, List<String> values) {
+    Properties properties = load();
+    StringBuilder sb = new StringBuilder();
+    for (String value : values) {
+      if (sb.length() > 0) {
+        sb.append(separator);
+      }
+      sb.append(value);
+    }
+    properties.setProperty(key, sb.toString());
+    properties.setProperty(key + timestampSuffix, Long.toString(System.currentTimeMillis()));
+
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      return;
+    }
+    try {
+      File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+      try (OutputStream out = new FileOutputStream(tmp)) {
+        properties.store(out, "ANA catalog cache");
+      }
+      Files.move(
+          tmp.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ioe) {
+      IOHelper.println("The catalog could not be cached: " + ioe.getMessage());
+    }
+  }
+
+  /**
+   * Loads all the entries from the file.
+   *
+   * @return The entries of the file, or none if it does not exist or can not be read.
+   */
+  private Properties load() {
+    Properties properties = new Properties();
+    if (file.isFile()) {
+      try (InputStream in = new FileInputStream(file)) {
+        properties.load(in);
+      } catch (IOException ioe) {
+        return new Properties();
+      }
+    }
+    return properties;
+  }
+}
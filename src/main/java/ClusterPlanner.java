@@ -0,0 +1,195 @@
+/**
+ * Recommends the size of the cluster and how to split and reduce the data, from the size of the
+ * ngrams to import and the years to analyze. The numbers are estimations for the usual instance
+ * types of the analyzer (m3.xlarge or similar) and they are meant as a starting point.
+ *
+ * @author julidipiti
+ */
+public class ClusterPlanner {
+
+  // 128Mb = 134217728B, the split used when the size of the input is unknown.
+  public static final long defaultSplitSize = 134217728L;
+  // 32Mb = 33554432B and 512Mb = 536870912B, the limits of the split size.
+  private static final long minSplitSize = 33554432L;
+  private static final long maxSplitSize = 536870912L;
+  // 2Gb = 2147483648B, the input that a slave imports in a reasonable time.
+  private static final long bytesPerSlave = 2147483648L;
+  // 64Gb = 68719476736B, the input from which bigger instances pay off.
+  private static final long bigInputBytes = 68719476736L;
+  private static final int mapSlotsPerSlave = 4;
+  private static final int reduceSlotsPerSlave = 2;
+  // Waves of mappers over the whole cluster, enough to balance the slow ones.
+  private static final int mapWaves = 2;
+  private static final int minInstances = 2;
+  private static final int maxInstances = 20;
+  // The first and last years of the ngrams, which the input size is spread over.
+  static final int firstYear = 1500;
+  static final int lastYear = 2008;
+
+  private final long inputBytes;
+  private final int instanceCount;
+  private final long splitSize;
+  private final int maxReducers;
+  private final String slaveInstanceType;
+
+  /**
+   * Plans a cluster for an analysis.
+   *
+   * @param inputBytes The size of all the ngrams to import, of every language. 0 if unknown.
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize The size of the window.
+   */
+  public ClusterPlanner(long inputBytes, int fromYear, int toYear, int windowSize) {
+    this(
+        inputBytes,
+        recommendInstances(inputBytes, fromYear, toYear, windowSize),
+        inputBytes > bigInputBytes ? "m3.2xlarge" : "m3.xlarge");
+  }
+
+  /**
+   * Plans the splits and the reducers of a cluster of a given size.
+   *
+   * @param inputBytes The size of all the ngrams to import, of every language. 0 if unknown.
+   * @param instanceCount The instances of the cluster, counting the master.
+   * @param slaveInstanceType The type of instance for the slaves.
+   */
+  private ClusterPlanner(long inputBytes, int instanceCount, String slaveInstanceType) {
+    this.inputBytes = inputBytes;
+    this.instanceCount = instanceCount;
+    this.slaveInstanceType = slaveInstanceType;
+
+    // A cluster of a single instance runs the tasks on the master.
+    int slaves = Math.max(1, instanceCount - 1);
+    int mapSlots = slaves * mapSlotsPerSlave;
+    if (inputBytes <= 0) {
+      this.splitSize = defaultSplitSize;
+    } else {
+      this.splitSize = clamp(inputBytes / (mapSlots * mapWaves), minSplitSize, maxSplitSize);
+    }
+
+    this.maxReducers = slaves * reduceSlotsPerSlave;
+  }
+
+  /**
+   * Plans the splits and the reducers of the cluster that is actually launched, which may be
+   * bigger or smaller than the recommended one, so none of its slaves is left without work.
+   *
+   * @param instanceCount The instances of the cluster, counting the master: the core and the task
+   *     slaves.
+   * @return The plan of that cluster, for the same input.
+   */
+  public ClusterPlanner forInstances(int instanceCount) {
+    return new ClusterPlanner(inputBytes, instanceCount, slaveInstanceType);
+  }
+
+  /**
+   * Recommends the size of the cluster for an analysis.
+   *
+   * @param inputBytes The size of all the ngrams to import, of every language. 0 if unknown.
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize The size of the window.
+   * @return The instances, counting the master.
+   */
+  private static int recommendInstances(
+      long inputBytes, int fromYear, int toYear, int windowSize) {
+    // The import scans all the input, but the windows only go over the years analyzed, which are
+    // a fraction of it. Every year is read by windowSize shifts, so that is added up too.
+    double yearsFraction =
+        Math.min(1.0, (double) (toYear - fromYear + 1) / (lastYear - firstYear + 1));
+    double workBytes = inputBytes * (1.0 + yearsFraction * windowSize);
+
+    int slaves = (int) Math.ceil(workBytes / bytesPerSlave);
+    return clamp(slaves + 1, minInstances, maxInstances);
+  }
+
+  /**
+   * Gets the size of all the ngrams to import.
+   *
+   * @return The size in bytes, 0 if unknown.
+   */
+  public long getInputBytes() {
+    return inputBytes;
+  }
+
+  /**
+   * Gets the recommended number of instances, counting the master.
+   *
+   * @return A number between 2 and 20, or the size of the launched cluster.
+   */
+  public int getInstanceCount() {
+    return instanceCount;
+  }
+
+  /**
+   * Gets the recommended minimum size of the splits, so every mapper gets a similar share of the
+   * input in a few waves.
+   *
+   * @return The size in bytes.
+   */
+  public long getSplitSize() {
+    return splitSize;
+  }
+
+  /**
+   * Gets the recommended maximum number of reducers of every job, the reduce slots of the cluster.
+   *
+   * @return The number of reducers.
+   */
+  public int getMaxReducers() {
+    return maxReducers;
+  }
+
+  /**
+   * Gets the recommended type of instance for the slaves.
+   *
+   * @return The name of the instance type.
+   */
+  public String getSlaveInstanceType() {
+    return slaveInstanceType;
+  }
+
+  /**
+   * Describes the plan to show it to the user.
+   *
+   * @return A description with all the recommendations.
+   */
+  @Override
+  public String toString() {
+    return "Input size: "
+        + (inputBytes / 1048576)
+        + "Mb, instances: "
+        + instanceCount
+        + ", slave instance type: "
+        + slaveInstanceType
+        + ", split size: "
+        + (splitSize / 1048576)
+        + "Mb, max reducers: "
+        + maxReducers;
+  }
+
+  /**
+   * Limits a number between two values.
+   *
+   * @param value The number to limit.
+   * @param min The lowest value.
+   * @param max The highest value.
+   * @return The number, or the closest limit if it is out of them.
+   */
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * Limits a number between two values.
+   *
+   * @param value The number to limit.
+   * @param min The lowest value.
+   * @param max The highest value.
+   * @return The number, or the closest limit if it is out of them.
+   */
+  private static long clamp(long value, long min, long max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
@@ -0,0 +1,284 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a dictionary written by CompactDictionaryWriter, either going through all its grams in
+ * order or looking up a gram through the block index, which is the only part kept in memory.
+ *
+ * @author julidipiti
+ */
+public class CompactDictionaryReader implements Closeable {
+
+  /**
+   * A gram decoded from the dictionary with its postings.
+   */
+  private static class Entry {
+    private final byte[] gram;
+    private final List<GramIndex.Posting> postings;
+
+    Entry(byte[] gram, List<GramIndex.Posting> postings) {
+      this.gram = gram;
+      this.postings = postings;
+    }
+  }
+
+  /**
+   * The bytes of a block, decoded from the start.
+   */
+  private static class Block {
+    private final byte[] bytes;
+    private int position;
+
+    Block(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    /**
+     * Reads a non-negative integer as CompactDictionaryWriter writes it.
+     *
+     * @return The integer.
+     * @throws IOException If the block ends before the integer, or it takes more than 64 bits.
+     */
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64 && position < bytes.length; shift += 7) {
+        int b = bytes[position++];
+        value |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("The dictionary is corrupt, an integer is cut or too long.");
+    }
+  }
+
+  private final File file;
+  private final RandomAccessFile blocksFile;
+  private final long indexPosition;
+  private final long grams;
+  private final int gramsPerBlock;
+  private final long[] blockPositions;
+  private final byte[][] firstGrams;
+  private DataInputStream scan;
+  private Block scanBlock;
+  private long scanned;
+  private byte[] previous;
+
+  /**
+   * Opens a dictionary and reads its block index.
+   *
+   * @param file The file of the dictionary.
+   * @throws IOException If the file can't be read, or it is not a dictionary of this version.
+   */
+  public CompactDictionaryReader(File file) throws IOException {
+    this.file = file;
+    blocksFile = new RandomAccessFile(file, "r");
+    try {
+      long size = blocksFile.length();
+      if (size < CompactDictionaryWriter.footerBytes) {
+        throw new IOException(file + " is not a compact dictionary.");
+      }
+      blocksFile.seek(size - CompactDictionaryWriter.footerBytes);
+      indexPosition = blocksFile.readLong();
+      grams = blocksFile.readLong();
+      int blocks = blocksFile.readInt();
+      gramsPerBlock = blocksFile.readInt();
+      int version = blocksFile.readInt();
+      if (blocksFile.readInt() != CompactDictionaryWriter.magic) {
+        throw new IOException(file + " is not a compact dictionary.");
+      }
+      if (version != CompactDictionaryWriter.version) {
+        throw new IOException(
+            "Only version " + CompactDictionaryWriter.version + " of the dictionary is supported.");
+      }
+
+      byte[] index = new byte[(int) (size - CompactDictionaryWriter.footerBytes - indexPosition)];
+      blocksFile.seek(indexPosition);
+      blocksFile.readFully(index);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+      blockPositions = new long[blocks];
+      firstGrams = new byte[blocks][];
+      for (int i = 0; i < blocks; i++) {
+        blockPositions[i] = in.readLong();
+        firstGrams[i] = new byte[(int) readVarLong(in)];
+        in.readFully(firstGrams[i]);
+      }
+    } catch (IOException e) {
+      blocksFile.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the number of grams in the dictionary.
+   *
+   * @return The number of grams.
+   */
+  public long size() {
+    return grams;
+  }
+
+  /**
+   * Reads the next gram of the dictionary, going through all of them in order from the first one.
+   *
+   * @return The postings of the gram sorted by year, or null if there are no more grams.
+   * @throws IOException If the dictionary can't be read or it is corrupt.
+   */
+  public List<GramIndex.Posting> next() throws IOException {
+    if (scanned == grams) {
+      return null;
+    }
+    if (scan == null) {
+      scan = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+    }
+    if (scanned % gramsPerBlock == 0) {
+      // The blocks go one after the other from the start of the file.
+      scanBlock = new Block(new byte[getBlockLength((int) (scanned / gramsPerBlock))]);
+      scan.readFully(scanBlock.bytes);
+      previous = null;
+    }
+    Entry entry = decode(scanBlock, previous);
+    previous = entry.gram;
+    scanned++;
+    return entry.postings;
+  }
+
+  /**
+   * Looks up a gram, decoding only the block where it would be.
+   *
+   * @param gram The gram.
+   * @return The postings of the gram sorted by year, or an empty list if it is not in the
+   *     dictionary.
+   * @throws IOException If the dictionary can't be read or it is corrupt.
+   */
+  public List<GramIndex.Posting> get(String gram) throws IOException {
+    byte[] key = gram.getBytes(StandardCharsets.UTF_8);
+    // The last block whose first gram is not greater than the key.
+    int low = 0;
+    int high = firstGrams.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (GramIndex.compare(firstGrams[middle], 0, firstGrams[middle].length, key) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    int block = low - 1;
+    if (block < 0) {
+      return new ArrayList<>();
+    }
+
+    Block in = new Block(new byte[getBlockLength(block)]);
+    synchronized (blocksFile) {
+      blocksFile.seek(blockPositions[block]);
+      blocksFile.readFully(in.bytes);
+    }
+    long count = Math.min(gramsPerBlock, grams - (long) block * gramsPerBlock);
+    byte[] last = null;
+    for (long i = 0; i < count; i++) {
+      Entry entry = decode(in, last);
+      int comparison = GramIndex.compare(entry.gram, 0, entry.gram.length, key);
+      if (comparison == 0) {
+        return entry.postings;
+      }
+      if (comparison > 0) {
+        break;
+      }
+      last = entry.gram;
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Gets the number of bytes of a block.
+   *
+   * @param block The number of the block.
+   * @return The bytes from its position to the next block, or to the block index for the last one.
+   */
+  private int getBlockLength(int block) {
+    long end = block + 1 < blockPositions.length ? blockPositions[block + 1] : indexPosition;
+    return (int) (end - blockPositions[block]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      blocksFile.close();
+    } finally {
+      if (scan != null) {
+        scan.close();
+      }
+    }
+  }
+
+  /**
+   * Decodes a gram and its postings.
+   *
+   * @param in The block, at the start of the gram.
+   * @param previous The previous gram, or null if it is the first one of its block.
+   * @return The gram and its postings.
+   * @throws IOException If the block ends before the gram, or the gram shares more bytes than the
+   *     previous one has.
+   */
+  private static Entry decode(Block in, byte[] previous) throws IOException {
+    int shared = (int) in.readVarLong();
+    int suffix = (int) in.readVarLong();
+    if (shared > 0 && (previous == null || shared > previous.length)) {
+      throw new IOException("The dictionary is corrupt, a gram shares more than the previous.");
+    }
+    if (suffix > in.bytes.length - in.position) {
+      throw new IOException("The dictionary is corrupt, a gram is cut.");
+    }
+    byte[] gram = new byte[shared + suffix];
+    if (shared > 0) {
+      System.arraycopy(previous, 0, gram, 0, shared);
+    }
+    System.arraycopy(in.bytes, in.position, gram, shared, suffix);
+    in.position += suffix;
+    String text = new String(gram, StandardCharsets.UTF_8);
+
+    int count = (int) in.readVarLong();
+    // Every posting takes 3 bytes at least, a corrupt count must not take all the memory.
+    List<GramIndex.Posting> postings =
+        new ArrayList<>(Math.min(count, (in.bytes.length - in.position) / 3));
+    int year = 0;
+    for (int i = 0; i < count; i++) {
+      long delta = in.readVarLong();
+      year += (int) (delta >>> 1);
+      long occurrences = in.readVarLong();
+      long yearOccurrences = in.readVarLong();
+      postings.add(
+          new GramIndex.Posting(text, year, occurrences, yearOccurrences, (delta & 1) != 0));
+    }
+    return new Entry(gram, postings);
+  }
+
+  /**
+   * Reads a non-negative integer as CompactDictionaryWriter writes it.
+   *
+   * @param in The stream.
+   * @return The integer.
+   * @throws IOException If the stream can't be read, or the integer takes more than 64 bits.
+   */
+  static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("The dictionary is corrupt, an integer takes more than 64 bits.");
+  }
+}
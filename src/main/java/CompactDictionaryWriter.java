@@ -0,0 +1,167 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a dictionary in a compact binary format, several times smaller than the text that Hive
+ * writes and much faster to parse. The grams go sorted by their UTF-8 bytes in blocks, and every
+ * gram but the first one of its block only keeps what differs from the previous gram (front
+ * coding). The postings of a gram are its years, as the delta from the previous one with a bit
+ * for the years when it was a neologism, and its occurrences and years with occurrences, all of
+ * them as variable-length integers. A block index at the end has the position and the first gram
+ * of every block, so CompactDictionaryReader finds a gram by decoding a single block.
+ *
+ * @author julidipiti
+ */
+public class CompactDictionaryWriter implements Closeable {
+
+  static final int magic = 0x414e4144;
+  static final int version = 1;
+  // The position of the block index, the grams, the blocks, the grams of a block, the version and
+  // the magic.
+  static final int footerBytes = 8 + 8 + 4 + 4 + 4 + 4;
+  // The grams of a block trade the size of the file for the time to find a gram.
+  private static final int defaultGramsPerBlock = 16;
+
+  private final DataOutputStream out;
+  private final int gramsPerBlock;
+  private final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+  private final DataOutputStream entryOut = new DataOutputStream(entry);
+  private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+  private final DataOutputStream indexOut = new DataOutputStream(index);
+  private byte[] previous;
+  private long position;
+  private long grams;
+  private int blocks;
+
+  /**
+   * Creates a file with blocks of 16 grams.
+   *
+   * @param file The file.
+   * @throws IOException If the file can't be created.
+   */
+  public CompactDictionaryWriter(File file) throws IOException {
+    this(new FileOutputStream(file), defaultGramsPerBlock);
+  }
+
+  /**
+   * Writes a dictionary to a stream.
+   *
+   * @param stream The stream, which is closed with the writer.
+   * @param gramsPerBlock The grams of every block, at least 1.
+   */
+  public CompactDictionaryWriter(OutputStream stream, int gramsPerBlock) {
+    if (gramsPerBlock < 1) {
+      throw new IllegalArgumentException("gramsPerBlock must be at least 1.");
+    }
+    this.out = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+    this.gramsPerBlock = gramsPerBlock;
+  }
+
+  /**
+   * Appends a gram with its postings.
+   *
+   * @param postings The postings of the gram, all of them of the same gram and sorted by year.
+   *     The gram must go after the previous one in the order of their UTF-8 bytes.
+   * @throws IOException If the dictionary can't be written.
+   */
+  public void append(List<GramIndex.Posting> postings) throws IOException {
+    if (postings.isEmpty()) {
+      throw new IllegalArgumentException("A gram needs at least one posting.");
+    }
+    byte[] gram = postings.get(0).getGram().getBytes(StandardCharsets.UTF_8);
+    if (previous != null && GramIndex.compare(gram, 0, gram.length, previous) <= 0) {
+      throw new IllegalArgumentException(
+          "The grams must be sorted and not repeated, "
+              + postings.get(0).getGram()
+              + " goes after "
+              + new String(previous, StandardCharsets.UTF_8)
+              + ".");
+    }
+
+    // The first gram of a block is whole, so a block can be decoded without the previous ones.
+    int shared = 0;
+    if (grams % gramsPerBlock == 0) {
+      indexOut.writeLong(position);
+      writeVarLong(indexOut, gram.length);
+      indexOut.write(gram);
+      blocks++;
+    } else {
+      while (shared < Math.min(gram.length, previous.length) && gram[shared] == previous[shared]) {
+        shared++;
+      }
+    }
+
+    entry.reset();
+    writeVarLong(entryOut, shared);
+    writeVarLong(entryOut, gram.length - shared);
+    entryOut.write(gram, shared, gram.length - shared);
+    writeVarLong(entryOut, postings.size());
+    int year = 0;
+    for (GramIndex.Posting posting : postings) {
+      if (!posting.getGram().equals(postings.get(0).getGram())) {
+        throw new IllegalArgumentException("All the postings must be of the same gram.");
+      }
+      if (year != 0 && posting.getYear() <= year) {
+        throw new IllegalArgumentException(
+            "The years of " + posting.getGram() + " must be sorted and not repeated.");
+      }
+      // The lowest bit of the delta of the year tells if the gram was a neologism that year.
+      writeVarLong(entryOut, (posting.getYear() - year) * 2L + (posting.isNeologism() ? 1 : 0));
+      writeVarLong(entryOut, posting.getOccurrences());
+      writeVarLong(entryOut, posting.getYearOccurrences());
+      year = posting.getYear();
+    }
+    entry.writeTo(out);
+    position += entry.size();
+    previous = gram;
+    grams++;
+  }
+
+  /**
+   * Writes the block index and the footer, and closes the stream.
+   *
+   * @throws IOException If the dictionary can't be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      index.writeTo(out);
+      out.writeLong(position);
+      out.writeLong(grams);
+      out.writeInt(blocks);
+      out.writeInt(gramsPerBlock);
+      out.writeInt(version);
+      out.writeInt(magic);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes a non-negative integer in groups of 7 bits, the lowest first, with the highest bit of
+   * every byte telling if another one follows. The years, the counts and the short grams take a
+   * byte or two.
+   *
+   * @param out The stream.
+   * @param value The integer.
+   * @throws IOException If the stream can't be written.
+   */
+  static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("Only non-negative integers are supported, not " + value);
+    }
+    while ((value & ~0x7fL) != 0) {
+      out.writeByte((int) (value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+}
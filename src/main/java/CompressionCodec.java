@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compression codecs available in the EMR cluster, for the data shuffled between the mappers and
+ * the reducers and for the output written to S3.
+ *
+ * @author julidipiti
+ */
+public enum CompressionCodec {
+  /**
+   * No compression, the data is written as is.
+   */
+  NONE(false, "org.apache.hadoop.io.compress.DefaultCodec", true, true),
+
+  /**
+   * Fast and light on CPU, the best option for the intermediate data.
+   */
+  SNAPPY(true, "org.apache.hadoop.io.compress.SnappyCodec", true, false),
+
+  /**
+   * Similar to Snappy, with faster decompression.
+   */
+  LZ4(true, "org.apache.hadoop.io.compress.Lz4Codec", true, false),
+
+  /**
+   * Smaller output that any client can read, but the files can not be split. Too heavy on CPU for
+   * the intermediate data.
+   */
+  GZIP(true, "org.apache.hadoop.io.compress.GzipCodec", false, true),
+
+  /**
+   * The smallest and slowest option, and the files can be split. Too heavy on CPU for the
+   * intermediate data.
+   */
+  BZIP2(true, "org.apache.hadoop.io.compress.BZip2Codec", false, false);
+
+  private final boolean enabled;
+  private final String codecClass;
+  private final boolean intermediate;
+  private final boolean readableWithoutHadoop;
+
+  CompressionCodec(
+      boolean enabled, String codecClass, boolean intermediate, boolean readableWithoutHadoop) {
+    this.enabled = enabled;
+    this.codecClass = codecClass;
+    this.intermediate = intermediate;
+    this.readableWithoutHadoop = readableWithoutHadoop;
+  }
+
+  /**
+   * Tells if the data is compressed with this codec.
+   *
+   * @return False for NONE, true otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the Hadoop class that implements the codec.
+   *
+   * @return The fully qualified name of the class.
+   */
+  public String getCodecClass() {
+    return codecClass;
+  }
+
+  /**
+   * Tells if the codec is light enough on CPU for the data shuffled inside the cluster.
+   *
+   * @return True for NONE, SNAPPY and LZ4.
+   */
+  public boolean isIntermediate() {
+    return intermediate;
+  }
+
+  /**
+   * Tells if the results written with this codec can be downloaded with --results, which reads
+   * them without the native libraries of Hadoop.
+   *
+   * @return True for NONE and GZIP.
+   */
+  public boolean isReadableWithoutHadoop() {
+    return readableWithoutHadoop;
+  }
+
+  /**
+   * Gets the codecs for the data shuffled inside the cluster.
+   *
+   * @return The codecs that are light on CPU.
+   */
+  public static CompressionCodec[] getIntermediateCodecs() {
+    List<CompressionCodec> codecs = new ArrayList<>();
+    for (CompressionCodec codec : values()) {
+      if (codec.intermediate) {
+        codecs.add(codec);
+      }
+    }
+    return codecs.toArray(new CompressionCodec[codecs.size()]);
+  }
+
+  /**
+   * Gets the codecs for the results written to S3.
+   *
+   * @return The codecs whose results can be downloaded with --results.
+   */
+  public static CompressionCodec[] getOutputCodecs() {
+    List<CompressionCodec> codecs = new ArrayList<>();
+    for (CompressionCodec codec : values()) {
+      if (codec.readableWithoutHadoop) {
+        codecs.add(codec);
+      }
+    }
+    return codecs.toArray(new CompressionCodec[codecs.size()]);
+  }
+}
@@ -0,0 +1,31 @@
+/**
+ * Formats of the files of a synthetic corpus, with the rows of the raw table of ImportNgrams.q.
+ *
+ * @author julidipiti
+ */
+public enum CorpusFormat {
+  /**
+   * A SequenceFile as the Google Books Ngrams in S3, which ImportNgrams.q reads as is.
+   */
+  SEQUENCEFILE("part-00000"),
+
+  /**
+   * A text file with a row per line, to read it or load it anywhere else.
+   */
+  TSV("part-00000.tsv");
+
+  private final String fileName;
+
+  CorpusFormat(String fileName) {
+    this.fileName = fileName;
+  }
+
+  /**
+   * Gets the name of the file of every language.
+   *
+   * @return The name of the file.
+   */
+  public String getFileName() {
+    return fileName;
+  }
+}
@@ -0,0 +1,485 @@
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic ngrams with the rows of the raw table of ImportNgrams.q (gram, year,
+ * occurrences, pages and books), to test the analyses at any scale without reading the Google
+ * Books Ngrams. The same parameters always generate the same corpus.
+ *
+ * <p>The grams of every language follow Zipf's law: the gram of rank r is used about
+ * 1/r^exponent as much as the first one, and its occurrences in a year are drawn around that, so
+ * the rare grams are missing from some years. Every year uses growth times more occurrences than
+ * the previous one. Every year after the first one adds new grams, the neologisms, which are used
+ * as much as the gram of rank 10, 20 and so on from that year on. The languages share a fraction
+ * of their vocabulary, with a different rank in every language, so some grams are used much more
+ * in one language than in another.
+ *
+ * @author julidipiti
+ */
+public class CorpusGenerator {
+
+  private static final String letters = "abcdefghijklmnopqrstuvwxyz";
+  // The neologisms of a year are used as much as the grams of rank 10, 20, 30...
+  private static final int neologismRankStep = 10;
+
+  @JsonProperty private List<String> languages = Arrays.asList("spa-all");
+  @JsonProperty private int ngramOrder = 1;
+  @JsonProperty private int vocabularySize = 100000;
+  @JsonProperty private double exponent = 1.0;
+  @JsonProperty private int fromYear = 1950;
+  @JsonProperty private int toYear = 2000;
+  @JsonProperty private long occurrencesPerYear = 10000000;
+  @JsonProperty private double growth = 0.02;
+  @JsonProperty private int neologismsPerYear = 5;
+  @JsonProperty private double overlap = 0.1;
+  @JsonProperty private long seed = 42;
+  @JsonProperty private CorpusFormat format = CorpusFormat.SEQUENCEFILE;
+
+  /**
+   * Checks that all the parameters are valid.
+   *
+   * @throws IllegalArgumentException Accuses some problem with the parameters.
+   */
+  public void validate() throws IllegalArgumentException {
+    if (languages == null || languages.isEmpty()) {
+      throw new IllegalArgumentException("languages needs at least 1 language.");
+    }
+    if (new HashSet<>(languages).size() < languages.size()) {
+      throw new IllegalArgumentException("languages can not be repeated.");
+    }
+    for (String language : languages) {
+      if (language == null || language.isEmpty()) {
+        throw new IllegalArgumentException("languages can not be empty.");
+      }
+    }
+    if (ngramOrder < 1 || ngramOrder > 5) {
+      throw new IllegalArgumentException("ngramOrder must be between 1 and 5.");
+    }
+    if (vocabularySize < 1) {
+      throw new IllegalArgumentException("vocabularySize must be at least 1.");
+    }
+    if (exponent <= 0) {
+      throw new IllegalArgumentException("exponent must be greater than 0.");
+    }
+    if (fromYear > toYear) {
+      throw new IllegalArgumentException("fromYear must not be greater than toYear.");
+    }
+    if (occurrencesPerYear < 1) {
+      throw new IllegalArgumentException("occurrencesPerYear must be at least 1.");
+    }
+    if (growth <= -1) {
+      throw new IllegalArgumentException("growth must be greater than -1.");
+    }
+    if (neologismsPerYear < 0) {
+      throw new IllegalArgumentException("neologismsPerYear can not be negative.");
+    }
+    if (overlap < 0 || overlap > 1) {
+      throw new IllegalArgumentException("overlap must be between 0 and 1.");
+    }
+    if (format == null) {
+      throw new IllegalArgumentException("format can not be null.");
+    }
+  }
+
+  /**
+   * Writes the corpus of every language to its own folder as in S3, i.e.:
+   * directory/spa-all/1gram/part-00000, so the directory can stand for the ngrams in S3.
+   *
+   * @param directory The directory of the corpus.
+   * @return The number of rows written.
+   * @throws IOException If the files can't be written.
+   * @throws IllegalArgumentException If the parameters are not valid.
+   */
+  public long write(File directory) throws IOException, IllegalArgumentException {
+    validate();
+    long rows = 0;
+    for (String language : languages) {
+      File folder = new File(directory, language + "/" + ngramOrder + "gram");
+      if (!folder.isDirectory() && !folder.mkdirs()) {
+        throw new IOException("Can not create " + folder);
+      }
+      File file = new File(folder, format.getFileName());
+      if (format == CorpusFormat.SEQUENCEFILE) {
+        try (SequenceFileWriter writer = new SequenceFileWriter(file, seed)) {
+          for (int year = fromYear; year <= toYear; year++) {
+            for (String row : getRows(language, year)) {
+              writer.append(row);
+            }
+          }
+          rows += writer.getRows();
+        }
+      } else {
+        try (Writer writer =
+            new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+          for (int year = fromYear; year <= toYear; year++) {
+            for (String row : getRows(language, year)) {
+              writer.write(row);
+              writer.write('\n');
+              rows++;
+            }
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Generates the rows of a language in a year. The grams that are not used in the year have no
+   * row, as in the Google Books Ngrams.
+   *
+   * @param language The language, one of the languages of the corpus.
+   * @param year The year.
+   * @return The rows, with their fields separated by tabs.
+   * @throws IllegalArgumentException If the language is not in the corpus.
+   */
+  public List<String> getRows(String language, int year) throws IllegalArgumentException {
+    int languageIndex = getLanguageIndex(language);
+    Random random = new Random((seed * 31 + languageIndex) * 31 + year);
+    double yearOccurrences = occurrencesPerYear * Math.pow(1 + growth, year - fromYear);
+    double harmonic = getHarmonic();
+    int[] ranks = getRanks(languageIndex);
+
+    List<String> rows = new ArrayList<>();
+    for (int rank = 0; rank < vocabularySize; rank++) {
+      long occurrences =
+          getOccurrences(random, yearOccurrences / Math.pow(rank + 1, exponent) / harmonic);
+      if (occurrences > 0) {
+        rows.add(getRow(random, getGram(languageIndex, ranks[rank]), year, occurrences));
+      }
+    }
+    for (int born = fromYear + 1; born <= year; born++) {
+      for (int i = 0; i < neologismsPerYear; i++) {
+        double mean =
+            yearOccurrences / Math.pow((i + 1) * neologismRankStep, exponent) / harmonic;
+        long occurrences = getOccurrences(random, mean);
+        if (occurrences > 0) {
+          rows.add(getRow(random, getNeologism(languageIndex, born, i), year, occurrences));
+        }
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Gets the neologisms of a language that are used for the first time in a year, so an analysis
+   * of the corpus can be checked against them.
+   *
+   * @param language The language, one of the languages of the corpus.
+   * @param year The year, after fromYear.
+   * @return The neologisms, from the most used.
+   * @throws IllegalArgumentException If the language is not in the corpus.
+   */
+  public List<String> getNeologisms(String language, int year) throws IllegalArgumentException {
+    int languageIndex = getLanguageIndex(language);
+    List<String> neologisms = new ArrayList<>();
+    if (year > fromYear && year <= toYear) {
+      for (int i = 0; i < neologismsPerYear; i++) {
+        neologisms.add(getNeologism(languageIndex, year, i));
+      }
+    }
+    return neologisms;
+  }
+
+  /**
+   * Gets the gram of a language of some rank.
+   *
+   * @param language The language, one of the languages of the corpus.
+   * @param rank The rank, from 0 for the most used gram.
+   * @return The gram.
+   * @throws IllegalArgumentException If the language is not in the corpus.
+   */
+  public String getGram(String language, int rank) throws IllegalArgumentException {
+    int languageIndex = getLanguageIndex(language);
+    return getGram(languageIndex, getRanks(languageIndex)[rank]);
+  }
+
+  /**
+   * Tells if a gram of the vocabulary is shared by all the languages. The shared grams are spread
+   * over the whole vocabulary instead of being the first ones.
+   *
+   * @param index The index of the gram in the vocabulary.
+   * @return True if it is shared.
+   */
+  boolean isShared(int index) {
+    return GramSampler.pmod(mix(index) ^ (int) seed, 10000) < overlap * 10000;
+  }
+
+  /**
+   * Gets the gram of a language with some index in the vocabulary.
+   *
+   * @param languageIndex The index of the language.
+   * @param index The index of the gram in the vocabulary.
+   * @return The gram.
+   */
+  private String getGram(int languageIndex, int index) {
+    long id = isShared(index) ? index : (long) vocabularySize * (languageIndex + 1) + index;
+    return toGram(id);
+  }
+
+  /**
+   * Gets a neologism, whose words are never used by the vocabulary of any language.
+   *
+   * @param languageIndex The index of the language.
+   * @param year The year it is used for the first time.
+   * @param i The number of the neologism in the year.
+   * @return The neologism.
+   */
+  private String getNeologism(int languageIndex, int year, int i) {
+    long first = (long) vocabularySize * (languages.size() + 1);
+    long years = toYear - fromYear + 1;
+    return toGram(first + ((languageIndex * years) + year - fromYear) * neologismsPerYear + i);
+  }
+
+  /**
+   * Makes the gram of an id, of ngramOrder words of lowercase letters that the sanitization of
+   * ImportNgrams.q accepts. Different ids make different grams, since the first word is the id
+   * itself.
+   *
+   * @param id The id.
+   * @return The gram.
+   */
+  private String toGram(long id) {
+    StringBuilder sb = new StringBuilder();
+    appendWord(sb, id);
+    for (int i = 1; i < ngramOrder; i++) {
+      sb.append(' ');
+      appendWord(sb, GramSampler.pmod(mix((int) id * 31 + i), vocabularySize));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Appends the word of a number, in base 26 with at least two letters.
+   *
+   * @param sb The builder.
+   * @param number The number.
+   */
+  private static void appendWord(StringBuilder sb, long number) {
+    int start = sb.length();
+    // Adding 26 makes every word at least two letters long, and none starts with an "a".
+    for (long rest = number + letters.length(); rest > 0; rest /= letters.length()) {
+      sb.insert(start, letters.charAt((int) (rest % letters.length())));
+    }
+  }
+
+  /**
+   * Gets the row of a gram, with pages and books that are never more than the occurrences.
+   *
+   * @param random The generator of the year.
+   * @param gram The gram.
+   * @param year The year.
+   * @param occurrences The occurrences.
+   * @return The row.
+   */
+  private static String getRow(Random random, String gram, int year, long occurrences) {
+    long pages = Math.max(1, (long) (occurrences * (0.5 + random.nextDouble() / 2)));
+    long books = Math.max(1, (long) (pages * (0.5 + random.nextDouble() / 2)));
+    return gram + "\t" + year + "\t" + occurrences + "\t" + pages + "\t" + books;
+  }
+
+  /**
+   * Draws the occurrences of a gram in a year from a Poisson distribution, or from a normal one
+   * when the mean is big enough to be the same and much faster.
+   *
+   * @param random The generator of the year.
+   * @param mean The mean.
+   * @return The occurrences.
+   */
+  static long getOccurrences(Random random, double mean) {
+    if (mean >= 30) {
+      return Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+    }
+    double limit = Math.exp(-mean);
+    double product = random.nextDouble();
+    long occurrences = 0;
+    while (product > limit) {
+      product *= random.nextDouble();
+      occurrences++;
+    }
+    return occurrences;
+  }
+
+  /**
+   * Gets the sum of 1/r^exponent over the ranks of the vocabulary, which makes the shares of all
+   * the grams add up to 1.
+   *
+   * @return The sum.
+   */
+  private double getHarmonic() {
+    double harmonic = 0;
+    for (int rank = 1; rank <= vocabularySize; rank++) {
+      harmonic += 1 / Math.pow(rank, exponent);
+    }
+    return harmonic;
+  }
+
+  /**
+   * Shuffles the vocabulary of a language, so the shared grams have a different rank in every
+   * language.
+   *
+   * @param languageIndex The index of the language.
+   * @return The index in the vocabulary of the gram of every rank.
+   */
+  private int[] getRanks(int languageIndex) {
+    int[] ranks = new int[vocabularySize];
+    for (int i = 0; i < ranks.length; i++) {
+      ranks[i] = i;
+    }
+    Random random = new Random(seed * 31 + languageIndex);
+    for (int i = ranks.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int rank = ranks[i];
+      ranks[i] = ranks[j];
+      ranks[j] = rank;
+    }
+    return ranks;
+  }
+
+  /**
+   * Gets the index of a language.
+   *
+   * @param language The language.
+   * @return The index.
+   * @throws IllegalArgumentException If the language is not in the corpus.
+   */
+  private int getLanguageIndex(String language) throws IllegalArgumentException {
+    int index = languages.indexOf(language);
+    if (index < 0) {
+      throw new IllegalArgumentException(language + " is not a language of the corpus.");
+    }
+    return index;
+  }
+
+  /**
+   * Scrambles the bits of an integer, so consecutive ones look unrelated.
+   *
+   * @param value The integer.
+   * @return The scrambled integer.
+   */
+  private static int mix(int value) {
+    int h = value * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  public List<String> getLanguages() {
+    return languages;
+  }
+
+  public CorpusGenerator withLanguages(List<String> languages) {
+    this.languages = languages;
+    return this;
+  }
+
+  public int getNgramOrder() {
+    return ngramOrder;
+  }
+
+  public CorpusGenerator withNgramOrder(int ngramOrder) {
+    this.ngramOrder = ngramOrder;
+    return this;
+  }
+
+  public int getVocabularySize() {
+    return vocabularySize;
+  }
+
+  public CorpusGenerator withVocabularySize(int vocabularySize) {
+    this.vocabularySize = vocabularySize;
+    return this;
+  }
+
+  public double getExponent() {
+    return exponent;
+  }
+
+  public CorpusGenerator withExponent(double exponent) {
+    this.exponent = exponent;
+    return this;
+  }
+
+  public int getFromYear() {
+    return fromYear;
+  }
+
+  public CorpusGenerator withFromYear(int fromYear) {
+    this.fromYear = fromYear;
+    return this;
+  }
+
+  public int getToYear() {
+    return toYear;
+  }
+
+  public CorpusGenerator withToYear(int toYear) {
+    this.toYear = toYear;
+    return this;
+  }
+
+  public long getOccurrencesPerYear() {
+    return occurrencesPerYear;
+  }
+
+  public CorpusGenerator withOccurrencesPerYear(long occurrencesPerYear) {
+    this.occurrencesPerYear = occurrencesPerYear;
+    return this;
+  }
+
+  public double getGrowth() {
+    return growth;
+  }
+
+  public CorpusGenerator withGrowth(double growth) {
+    this.growth = growth;
+    return this;
+  }
+
+  public int getNeologismsPerYear() {
+    return neologismsPerYear;
+  }
+
+  public CorpusGenerator withNeologismsPerYear(int neologismsPerYear) {
+    this.neologismsPerYear = neologismsPerYear;
+    return this;
+  }
+
+  public double getOverlap() {
+    return overlap;
+  }
+
+  public CorpusGenerator withOverlap(double overlap) {
+    this.overlap = overlap;
+    return this;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public CorpusGenerator withSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  public CorpusFormat getFormat() {
+    return format;
+  }
+
+  public CorpusGenerator withFormat(CorpusFormat format) {
+    this.format = format;
+    return this;
+  }
+}
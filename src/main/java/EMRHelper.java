@@ -1,14 +1,26 @@
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.regions.Region;
 import com.amazonaws.services.ec2.model.InstanceType;
 import com.amazonaws.services.elasticmapreduce.AmazonElasticMapReduceClient;
 import com.amazonaws.services.elasticmapreduce.model.ActionOnFailure;
 import com.amazonaws.services.elasticmapreduce.model.Application;
+import com.amazonaws.services.elasticmapreduce.model.ClusterState;
 import com.amazonaws.services.elasticmapreduce.model.Configuration;
+import com.amazonaws.services.elasticmapreduce.model.DescribeClusterRequest;
+import com.amazonaws.services.elasticmapreduce.model.DescribeClusterResult;
+import com.amazonaws.services.elasticmapreduce.model.InstanceGroupConfig;
+import com.amazonaws.services.elasticmapreduce.model.InstanceRoleType;
 import com.amazonaws.services.elasticmapreduce.model.JobFlowInstancesConfig;
+import com.amazonaws.services.elasticmapreduce.model.ListStepsRequest;
+import com.amazonaws.services.elasticmapreduce.model.ListStepsResult;
 import com.amazonaws.services.elasticmapreduce.model.RunJobFlowRequest;
 import com.amazonaws.services.elasticmapreduce.model.RunJobFlowResult;
 import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.amazonaws.services.elasticmapreduce.model.StepState;
+import com.amazonaws.services.elasticmapreduce.model.StepSummary;
 import com.amazonaws.services.elasticmapreduce.util.StepFactory;
 
 import java.util.Arrays;
@@ -16,6 +28,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Helper to interact with ElasticMapReduce on AWS.
@@ -24,31 +37,116 @@ import java.util.Map;
  */
 public class EMRHelper {
 
+  private static String[] instanceTypes;
   private final AmazonElasticMapReduceClient emr;
+  private final AwsCallPool pool;
 
   public EMRHelper(AWSCredentials credentials, Region region) {
-    this.emr = new AmazonElasticMapReduceClient(credentials);
+    this(credentials, region, AwsCallPool.getDefault());
+  }
+
+  /**
+   * Creates a helper that makes its calls through a specific pool.
+   *
+   * @param credentials The credentials to access AWS.
+   * @param region The region of the client.
+   * @param pool The pool for the calls to EMR.
+   */
+  public EMRHelper(AWSCredentials credentials, Region region, AwsCallPool pool) {
+    // The latency, retries and errors of every call are collected in the metrics. The throttled
+    // calls are retried by the pool instead of the client.
+    this.emr =
+        new AmazonElasticMapReduceClient(
+            new StaticCredentialsProvider(credentials),
+            AwsCallPool.getClientConfiguration(),
+            new AwsCallMetrics(Metrics.getDefault(), "emr"));
     this.emr.setRegion(region);
+    this.pool = pool;
   }
 
   /**
-   * Gets the configurations needed to split and process the hive files properly.
+   * Sends the calls to another endpoint than the one of the region, such as a local stand-in for
+   * EMR.
    *
-   * @return An array with the configurations described above.
+   * @param endpoint The URL of the endpoint, i.e.: http://localhost:9000.
+   * @return The helper.
+   */
+  public EMRHelper withEndpoint(String endpoint) {
+    emr.setEndpoint(endpoint);
+    return this;
+  }
+
+  /**
+   * Calls the overloaded method with no compression of the intermediate data.
+   *
+   * @return An array with the configurations needed to split and process the hive files.
    */
   public Configuration[] getConfigurations() {
+    return getConfigurations(CompressionCodec.NONE);
+  }
+
+  /**
+   * Calls the overloaded method with the default split size and Hive's default reducers.
+   *
+   * @param intermediateCodec The codec for the map output and the intermediate data.
+   * @return An array with the configurations needed to split and process the hive files.
+   */
+  public Configuration[] getConfigurations(CompressionCodec intermediateCodec) {
+    return getConfigurations(intermediateCodec, ClusterPlanner.defaultSplitSize, 0);
+  }
+
+  /**
+   * Gets the configurations needed to split and process the hive files properly, to plan the
+   * queries from the statistics of the tables, and to compress the data that the mappers send to
+   * the reducers and that Hive keeps between its jobs.
+   *
+   * @param intermediateCodec The codec for the map output and the intermediate data.
+   * @param splitSize The minimum size of the splits, in bytes.
+   * @param maxReducers The maximum number of reducers of every job, or 0 for Hive's default.
+   * @return An array with the configurations described above.
+   */
+  public Configuration[] getConfigurations(
+      CompressionCodec intermediateCodec, long splitSize, int maxReducers) {
     List<Configuration> configurations = new LinkedList<>();
 
     Map<String, String> hiveProperties = new HashMap<String, String>();
     hiveProperties.put("hive.input.format", "org.apache.hadoop.hive.ql.io.HiveInputFormat");
-    // 128Mb = 134217728B
-    hiveProperties.put("mapred.min.split.size", "134217728");
+    hiveProperties.put("mapred.min.split.size", Long.toString(splitSize));
+    if (maxReducers > 0) {
+      hiveProperties.put("hive.exec.reducers.max", Integer.toString(maxReducers));
+    }
+    // Planning the queries with the statistics that the inserts and ComputeStats.q gather, so a
+    // join with a small side becomes a map join without a hint.
+    hiveProperties.put("hive.cbo.enable", "true");
+    hiveProperties.put("hive.stats.autogather", "true");
+    hiveProperties.put("hive.stats.fetch.column.stats", "true");
+    hiveProperties.put("hive.stats.fetch.partition.stats", "true");
+    hiveProperties.put("hive.compute.query.using.stats", "true");
+    hiveProperties.put("hive.auto.convert.join", "true");
+    hiveProperties.put("hive.auto.convert.join.noconditionaltask", "true");
+
+    if (intermediateCodec.isEnabled()) {
+      hiveProperties.put("hive.exec.compress.intermediate", "true");
+      hiveProperties.put("hive.intermediate.compression.codec", intermediateCodec.getCodecClass());
+    }
 
     Configuration myHiveConfig =
         new Configuration().withClassification("hive-site").withProperties(hiveProperties);
 
     configurations.add(myHiveConfig);
 
+    if (intermediateCodec.isEnabled()) {
+      Map<String, String> mapredProperties = new HashMap<String, String>();
+      mapredProperties.put("mapreduce.map.output.compress", "true");
+      mapredProperties.put(
+          "mapreduce.map.output.compress.codec", intermediateCodec.getCodecClass());
+
+      Configuration myMapredConfig =
+          new Configuration().withClassification("mapred-site").withProperties(mapredProperties);
+
+      configurations.add(myMapredConfig);
+    }
+
     return configurations.toArray(new Configuration[configurations.size()]);
   }
 
@@ -101,6 +199,69 @@ public class EMRHelper {
         .withSlaveInstanceType(slaveInstanceType);
   }
 
+  /**
+   * Creates the configuration of the JobFlow with separate groups of instances: the master, the
+   * core instances that run tasks and store HDFS, and the task instances that only run tasks, so
+   * they can be added and removed while the JobFlow runs.
+   *
+   * @param masterInstanceType The type of instance for the only master.
+   * @param coreInstanceCount The number of core instances, must be at least 1.
+   * @param taskInstanceCount The number of task instances at launch. There is no task group if 0.
+   * @param slaveInstanceType The type of instance for the core and task instances.
+   * @return A valid configuration for a JobFlow that finishes when it runs out of steps or fails.
+   */
+  public JobFlowInstancesConfig getJobFlowInstancesConfig(
+      String masterInstanceType,
+      int coreInstanceCount,
+      int taskInstanceCount,
+      String slaveInstanceType) {
+    List<InstanceGroupConfig> instanceGroups = new LinkedList<>();
+    instanceGroups.add(
+        new InstanceGroupConfig()
+            .withName("Master")
+            .withInstanceRole(InstanceRoleType.MASTER)
+            .withInstanceType(masterInstanceType)
+            .withInstanceCount(1));
+    instanceGroups.add(
+        new InstanceGroupConfig()
+            .withName("Core")
+            .withInstanceRole(InstanceRoleType.CORE)
+            .withInstanceType(slaveInstanceType)
+            .withInstanceCount(coreInstanceCount));
+    if (taskInstanceCount > 0) {
+      instanceGroups.add(
+          new InstanceGroupConfig()
+              .withName("Task")
+              .withInstanceRole(InstanceRoleType.TASK)
+              .withInstanceType(slaveInstanceType)
+              .withInstanceCount(taskInstanceCount));
+    }
+
+    return new JobFlowInstancesConfig()
+        .withKeepJobFlowAliveWhenNoSteps(false)
+        .withInstanceGroups(instanceGroups);
+  }
+
+  /**
+   * Creates a StepConfig that resizes the task instance group of the JobFlow where it runs. The
+   * step waits until the group has the new size, so the next steps run on it. It fails if the
+   * resize is refused, i.e. because the EC2 role can not resize the group, or if it takes too
+   * long, but the JobFlow goes on with the size it has.
+   *
+   * @param name The name of the step. It is recommended that all the steps are sortable by name.
+   * @param scriptPath The URL in S3 of the ResizeTaskGroup.sh script.
+   * @param taskInstanceCount The number of task instances after the resize.
+   * @return A StepConfig that continues on failure.
+   */
+  public StepConfig getResizeStep(String name, String scriptPath, int taskInstanceCount) {
+    return new StepConfig()
+        .withName(name)
+        .withActionOnFailure(ActionOnFailure.CONTINUE)
+        .withHadoopJarStep(
+            new StepFactory()
+                .newScriptRunnerStep(scriptPath, Integer.toString(taskInstanceCount)));
+  }
+
   /**
    * Creates a request to run a JobFlow. It contains all the applications, configurations and steps
    * needed. The roles and release label for EC2 and EMR are determined here.
@@ -131,13 +292,80 @@ public class EMRHelper {
   }
 
   /**
-   * Calls runJobFlow in its private instance of ElasticMapReduceClient.
+   * Calls runJobFlow in its private instance of ElasticMapReduceClient, through the pool of calls.
    *
    * @param request The request to run.
    * @return A RunJobFlowResult according to a specified request.
+   * @throws AmazonClientException If the JobFlow can't be run, even after retrying the calls that
+   *     were throttled.
    */
-  public RunJobFlowResult runJobFlow(RunJobFlowRequest request) {
-    return emr.runJobFlow(request);
+  public RunJobFlowResult runJobFlow(final RunJobFlowRequest request) {
+    return pool.call(
+        "emr.RunJobFlow",
+        new Callable<RunJobFlowResult>() {
+          @Override
+          public RunJobFlowResult call() {
+            return emr.runJobFlow(request);
+          }
+        });
+  }
+
+  /**
+   * Waits until a JobFlow finishes, checking its state every once in a while. The checks of all
+   * the JobFlows go through the pool of calls, so many of them can be waited for at once.
+   *
+   * @param jobFlowId The id of the JobFlow.
+   * @param pollMillis The time between checks, in milliseconds.
+   * @return The final state of the JobFlow, TERMINATED or TERMINATED_WITH_ERRORS.
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public String waitForJobFlow(final String jobFlowId, long pollMillis)
+      throws InterruptedException {
+    Callable<DescribeClusterResult> describe =
+        new Callable<DescribeClusterResult>() {
+          @Override
+          public DescribeClusterResult call() {
+            return emr.describeCluster(new DescribeClusterRequest().withClusterId(jobFlowId));
+          }
+        };
+    while (true) {
+      String state =
+          pool.call("emr.DescribeCluster", describe).getCluster().getStatus().getState();
+      if (ClusterState.TERMINATED.toString().equals(state)
+          || ClusterState.TERMINATED_WITH_ERRORS.toString().equals(state)) {
+        return state;
+      }
+      Thread.sleep(pollMillis);
+    }
+  }
+
+  /**
+   * Gets the steps of a JobFlow that failed without stopping it, such as the resizes that were
+   * refused.
+   *
+   * @param jobFlowId The id of the JobFlow.
+   * @return The names of the steps, in no particular order.
+   */
+  public List<String> getFailedSteps(String jobFlowId) {
+    final ListStepsRequest request =
+        new ListStepsRequest().withClusterId(jobFlowId).withStepStates(StepState.FAILED);
+    List<String> names = new LinkedList<>();
+    do {
+      ListStepsResult result =
+          pool.call(
+              "emr.ListSteps",
+              new Callable<ListStepsResult>() {
+                @Override
+                public ListStepsResult call() {
+                  return emr.listSteps(request);
+                }
+              });
+      for (StepSummary step : result.getSteps()) {
+        names.add(step.getName());
+      }
+      request.setMarker(result.getMarker());
+    } while (request.getMarker() != null);
+    return names;
   }
 
   /**
@@ -148,12 +376,7 @@ public class EMRHelper {
    * @return A string representing the instance type selected.
    */
   public String selectInstanceType() {
-    InstanceType[] enumTypes = InstanceType.values();
-    String[] types = new String[enumTypes.length];
-    for (int i = 0; i < enumTypes.length; i++) {
-      types[i] = enumTypes[i].toString();
-    }
-    Arrays.sort(types);
+    String[] types = getInstanceTypes();
     IOHelper.println("Instance type options:");
     for (int i = 0; i < types.length; i++) {
       IOHelper.print("\t" + (i + 1) + ". " + types[i]);
@@ -171,4 +394,25 @@ public class EMRHelper {
 
     return types[opt - 1];
   }
+
+  /**
+   * Gets the names of all the instance types, sorted. They are built only once and shared by all
+   * the calls.
+   *
+   * @return A copy of the sorted names of the instance types.
+   */
+  static String[] getInstanceTypes() {
+    synchronized (EMRHelper.class) {
+      if (instanceTypes == null) {
+        InstanceType[] enumTypes = InstanceType.values();
+        String[] types = new String[enumTypes.length];
+        for (int i = 0; i < enumTypes.length; i++) {
+          types[i] = enumTypes[i].toString();
+        }
+        Arrays.sort(types);
+        instanceTypes = types;
+      }
+    }
+    return instanceTypes.clone();
+  }
 }
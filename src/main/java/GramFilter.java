@@ -0,0 +1,112 @@
+import java.util.regex.Pattern;
+
+/**
+ * Sanitizes the grams as ImportNgrams.q does, for processing the ngrams locally. A gram is
+ * accepted if it is made of ngramOrder words separated by a whitespace, where every word has at
+ * least two lowercase letters and may have a hyphen between them.
+ *
+ * <p>The regex of the hive scripts is kept to check that both filters agree, but the filter walks
+ * the characters of the gram instead, which is several times faster and allocates nothing.
+ *
+ * @author julidipiti
+ */
+public class GramFilter {
+
+  private static final String wordRegex = "\\p{Ll}+(\\-)?\\p{Ll}+";
+
+  private final int ngramOrder;
+  private final Pattern pattern;
+
+  /**
+   * Creates a filter for the grams of some number of words.
+   *
+   * @param ngramOrder The number of words of the grams, from 1 to 5.
+   * @throws IllegalArgumentException If the order is out of range.
+   */
+  public GramFilter(int ngramOrder) throws IllegalArgumentException {
+    if (ngramOrder < 1 || ngramOrder > 5) {
+      throw new IllegalArgumentException("ngramOrder must be between 1 and 5.");
+    }
+    this.ngramOrder = ngramOrder;
+    this.pattern = Pattern.compile(getRegex(ngramOrder));
+  }
+
+  /**
+   * Gets the regex that the grams must match, the same that ImportNgrams.q gets without the
+   * escaping for the steps.
+   *
+   * @param ngramOrder The number of words of the grams.
+   * @return The regex.
+   */
+  static String getRegex(int ngramOrder) {
+    StringBuilder sb = new StringBuilder("^").append(wordRegex);
+    for (int i = 1; i < ngramOrder; i++) {
+      sb.append("\\s").append(wordRegex);
+    }
+    return sb.append("$").toString();
+  }
+
+  /**
+   * Tells if a gram is accepted, using the regex.
+   *
+   * @param gram The gram.
+   * @return True if the gram matches the regex.
+   */
+  public boolean acceptRegex(String gram) {
+    return pattern.matcher(gram).matches();
+  }
+
+  /**
+   * Tells if a gram is accepted, walking its characters once.
+   *
+   * @param gram The gram.
+   * @return True if the gram matches the regex.
+   */
+  public boolean accept(String gram) {
+    int words = 0;
+    int i = 0;
+    int length = gram.length();
+    while (words < ngramOrder) {
+      if (words > 0) {
+        // A single whitespace between the words, as \s does.
+        if (i >= length || !isWhitespace(gram.charAt(i))) {
+          return false;
+        }
+        i++;
+      }
+      int letters = 0;
+      boolean hyphen = false;
+      // A hyphen needs a letter at each side.
+      boolean afterHyphen = false;
+      while (i < length) {
+        int codePoint = gram.codePointAt(i);
+        if (Character.getType(codePoint) == Character.LOWERCASE_LETTER) {
+          letters++;
+          afterHyphen = false;
+        } else if (codePoint == '-' && !hyphen && letters > 0) {
+          hyphen = true;
+          afterHyphen = true;
+        } else {
+          break;
+        }
+        i += Character.charCount(codePoint);
+      }
+      if (letters < 2 || afterHyphen) {
+        return false;
+      }
+      words++;
+    }
+    return i == length;
+  }
+
+  /**
+   * Tells if a character is a whitespace for the regex, which is narrower than the one of
+   * Character.
+   *
+   * @param c The character.
+   * @return True if it is a space, a tab, a line break, a vertical tab or a form feed.
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
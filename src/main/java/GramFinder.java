@@ -0,0 +1,129 @@
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the neologisms and the foreignisms in the dictionaries of a language, as
+ * ProcessNeologisms.q and ExportForeignisms.q do, for processing the ngrams locally.
+ *
+ * @author julidipiti
+ */
+public class GramFinder {
+
+  // Orders the grams by occurrences, and alphabetically when they tie, as the ORDER BY of the
+  // scripts does, so the results are always the same and the same as in the cluster.
+  private static final Comparator<Map.Entry<String, Long>> byOccurrences =
+      new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+          int cmp = Long.compare(a.getValue(), b.getValue());
+          return cmp != 0 ? cmp : b.getKey().compareTo(a.getKey());
+        }
+      };
+
+  /**
+   * Finds the neologisms of a year: the grams of its dictionary that were not in the dictionary of
+   * the previous year, with most occurrences. The grams that tie at the cutoff are kept in
+   * alphabetical order, so there are never more than topK.
+   *
+   * @param dictionary The occurrences of every gram of the dictionary of the year.
+   * @param previous The occurrences of every gram of the dictionary of the previous year.
+   * @param topK The number of neologisms to keep.
+   * @return The neologisms with their occurrences, from the most used.
+   */
+  public static List<Map.Entry<String, Long>> findNeologisms(
+      Map<String, Long> dictionary, Map<String, Long> previous, int topK) {
+    TopK<Map.Entry<String, Long>> top = new TopK<>(topK, byOccurrences);
+    for (Map.Entry<String, Long> gram : dictionary.entrySet()) {
+      if (!previous.containsKey(gram.getKey())) {
+        top.offer(gram);
+      }
+    }
+    return top.toList();
+  }
+
+  /**
+   * Finds the foreignisms that the first language borrowed from the second one. The dictionaries
+   * of every year of both languages are joined by gram, as the hive script does, and every pair of
+   * years where the second language uses the gram usageRatio times more adds the occurrences of
+   * the first language.
+   *
+   * @param dictionaries1 The dictionaries of every year of the first language.
+   * @param dictionaries2 The dictionaries of every year of the second language.
+   * @param usageRatio How many times more a gram must be used in the second language.
+   * @param limit The number of foreignisms to keep.
+   * @return The foreignisms with their occurrences, from the most used.
+   */
+  public static List<Map.Entry<String, Long>> findForeignisms(
+      List<Map<String, Long>> dictionaries1,
+      List<Map<String, Long>> dictionaries2,
+      int usageRatio,
+      int limit) {
+    // The occurrences of every gram in all the years of the second language, sorted, so the years
+    // that use it enough more are counted with a binary search instead of a nested loop.
+    Map<String, long[]> occurrences2 = new HashMap<>();
+    Map<String, Integer> counts2 = new HashMap<>();
+    for (Map<String, Long> dictionary : dictionaries2) {
+      for (Map.Entry<String, Long> gram : dictionary.entrySet()) {
+        long[] years = occurrences2.get(gram.getKey());
+        int count = counts2.containsKey(gram.getKey()) ? counts2.get(gram.getKey()) : 0;
+        if (years == null) {
+          years = new long[dictionaries2.size()];
+          occurrences2.put(gram.getKey(), years);
+        }
+        years[count] = gram.getValue();
+        counts2.put(gram.getKey(), count + 1);
+      }
+    }
+    for (Map.Entry<String, long[]> gram : occurrences2.entrySet()) {
+      long[] years = Arrays.copyOf(gram.getValue(), counts2.get(gram.getKey()));
+      Arrays.sort(years);
+      gram.setValue(years);
+    }
+
+    Map<String, Long> totals = new HashMap<>();
+    for (Map<String, Long> dictionary : dictionaries1) {
+      for (Map.Entry<String, Long> gram : dictionary.entrySet()) {
+        long[] years = occurrences2.get(gram.getKey());
+        if (years == null) {
+          continue;
+        }
+        int greater = years.length - upperBound(years, gram.getValue() * usageRatio);
+        if (greater > 0) {
+          Long total = totals.get(gram.getKey());
+          totals.put(gram.getKey(), (total == null ? 0 : total) + gram.getValue() * greater);
+        }
+      }
+    }
+
+    TopK<Map.Entry<String, Long>> top = new TopK<>(limit, byOccurrences);
+    for (Map.Entry<String, Long> gram : totals.entrySet()) {
+      top.offer(new AbstractMap.SimpleImmutableEntry<>(gram.getKey(), gram.getValue()));
+    }
+    return top.toList();
+  }
+
+  /**
+   * Finds the first value greater than a key in a sorted array.
+   *
+   * @param sorted The sorted values.
+   * @param key The key.
+   * @return The index of the first value greater than the key, or the length if there is none.
+   */
+  private static int upperBound(long[] sorted, long key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
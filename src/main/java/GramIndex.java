@@ -0,0 +1,385 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers point, prefix and year range lookups over the dictionary and the neologisms of an
+ * analysis, from an index written by GramIndexBuilder. The index is memory mapped, so opening it
+ * reads nothing and a lookup only touches the pages of the grams it needs. The mapping is released
+ * when the index is garbage collected.
+ *
+ * <p>The index has the records of the grams sorted by their UTF-8 bytes, every one with the gram
+ * and the postings of its years sorted by year. After them go the offsets of the records, which
+ * are binary searched, the neologisms of every year and a footer with where every section starts.
+ *
+ * @author julidipiti
+ */
+public class GramIndex {
+
+  static final int magic = 0x414e4149;
+  static final int version = 1;
+  // Offsets and counts of the sections, the version and the magic.
+  static final int footerBytes = 8 + 4 + 8 + 4 + 4 + 4;
+  // The year, the occurrences, the years with occurrences and if it was a neologism that year.
+  static final int postingBytes = 4 + 8 + 8 + 1;
+  // The year and the number of the gram.
+  static final int neologismBytes = 4 + 4;
+  // 1Gb = 1073741824B, the most bytes mapped by a buffer, so indexes over 2Gb can be mapped.
+  private static final long segmentBytes = 1L << 30;
+
+  /**
+   * The stats of a gram in a year.
+   */
+  public static final class Posting {
+    private final String gram;
+    private final int year;
+    private final long occurrences;
+    private final long yearOccurrences;
+    private final boolean neologism;
+
+    Posting(String gram, int year, long occurrences, long yearOccurrences, boolean neologism) {
+      this.gram = gram;
+      this.year = year;
+      this.occurrences = occurrences;
+      this.yearOccurrences = yearOccurrences;
+      this.neologism = neologism;
+    }
+
+    public String getGram() {
+      return gram;
+    }
+
+    public int getYear() {
+      return year;
+    }
+
+    public long getOccurrences() {
+      return occurrences;
+    }
+
+    public long getYearOccurrences() {
+      return yearOccurrences;
+    }
+
+    public boolean isNeologism() {
+      return neologism;
+    }
+
+    /**
+     * Formats the posting as a row of the outputs, with a mark if it was a neologism.
+     *
+     * @return The year, the gram, the occurrences and the years with occurrences, by tabs.
+     */
+    @Override
+    public String toString() {
+      return year + "\t" + gram + "\t" + occurrences + "\t" + yearOccurrences
+          + (neologism ? "\tneologism" : "");
+    }
+  }
+
+  private final MappedByteBuffer[] segments;
+  private final long offsetsPosition;
+  private final int grams;
+  private final long neologismsPosition;
+  private final int neologisms;
+
+  /**
+   * Maps an index and reads its footer.
+   *
+   * @param file The file of the index.
+   * @throws IOException If the file can't be mapped, or it is not an index of this version.
+   */
+  public GramIndex(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      long size = channel.size();
+      if (size < footerBytes) {
+        throw new IOException(file + " is not an index of grams.");
+      }
+      // The mappings stay valid after the channel is closed.
+      segments = new MappedByteBuffer[(int) ((size + segmentBytes - 1) / segmentBytes)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = i * segmentBytes;
+        segments[i] =
+            channel.map(
+                FileChannel.MapMode.READ_ONLY, position, Math.min(segmentBytes, size - position));
+      }
+      long footer = size - footerBytes;
+      if (getInt(footer + 28) != magic) {
+        throw new IOException(file + " is not an index of grams.");
+      }
+      if (getInt(footer + 24) != version) {
+        throw new IOException("Only version " + version + " of the index is supported.");
+      }
+      offsetsPosition = getLong(footer);
+      grams = getInt(footer + 8);
+      neologismsPosition = getLong(footer + 12);
+      neologisms = getInt(footer + 20);
+    }
+  }
+
+  /**
+   * Gets the number of grams in the index.
+   *
+   * @return The number of grams.
+   */
+  public int size() {
+    return grams;
+  }
+
+  /**
+   * Gets the stats of a gram in all its years.
+   *
+   * @param gram The gram.
+   * @return The postings of the gram sorted by year, or an empty list if it is not in the index.
+   */
+  public List<Posting> get(String gram) {
+    return get(gram, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the stats of a gram in a range of years.
+   *
+   * @param gram The gram.
+   * @param fromYear The first year, included.
+   * @param toYear The last year, included.
+   * @return The postings of the gram in the range sorted by year, or an empty list if it is not in
+   *     the index.
+   */
+  public List<Posting> get(String gram, int fromYear, int toYear) {
+    byte[] key = gram.getBytes(StandardCharsets.UTF_8);
+    int index = lowerBound(key);
+    if (index == grams || compare(getRecord(index), key) != 0) {
+      return new ArrayList<>();
+    }
+    return getPostings(getRecord(index), gram, fromYear, toYear);
+  }
+
+  /**
+   * Gets the stats of the gram at a position of the index, to go through all the grams in order.
+   *
+   * @param index The position of the gram, from 0 to the size of the index.
+   * @return The postings of the gram sorted by year.
+   */
+  public List<Posting> get(int index) {
+    if (index < 0 || index >= grams) {
+      throw new IndexOutOfBoundsException("The index has " + grams + " grams, not " + index + ".");
+    }
+    long record = getRecord(index);
+    String gram = new String(getGram(record), StandardCharsets.UTF_8);
+    return getPostings(record, gram, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the grams that start with a prefix, in the order of their UTF-8 bytes.
+   *
+   * @param prefix The prefix.
+   * @param limit The most grams to return.
+   * @return The grams.
+   */
+  public List<String> getGrams(String prefix, int limit) {
+    byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+    List<String> found = new ArrayList<>();
+    for (int index = lowerBound(key); index < grams && found.size() < limit; index++) {
+      byte[] gram = getGram(getRecord(index));
+      if (gram.length < key.length || compare(gram, 0, key.length, key) != 0) {
+        break;
+      }
+      found.add(new String(gram, StandardCharsets.UTF_8));
+    }
+    return found;
+  }
+
+  /**
+   * Gets the neologisms of a range of years.
+   *
+   * @param fromYear The first year, included.
+   * @param toYear The last year, included.
+   * @return The postings of the neologisms, by year and then by occurrences.
+   */
+  public List<Posting> getNeologisms(int fromYear, int toYear) {
+    // The first neologism of the range, by a binary search over the years.
+    int low = 0;
+    int high = neologisms;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (getInt(neologismsPosition + (long) middle * neologismBytes) < fromYear) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    List<Posting> found = new ArrayList<>();
+    for (int i = low; i < neologisms; i++) {
+      long position = neologismsPosition + (long) i * neologismBytes;
+      int year = getInt(position);
+      if (year > toYear) {
+        break;
+      }
+      long record = getRecord(getInt(position + 4));
+      String gram = new String(getGram(record), StandardCharsets.UTF_8);
+      found.addAll(getPostings(record, gram, year, year));
+    }
+    return found;
+  }
+
+  /**
+   * Finds the first gram that is not less than a key.
+   *
+   * @param key The UTF-8 bytes of the key.
+   * @return The number of the gram, or the number of grams if all of them are less.
+   */
+  private int lowerBound(byte[] key) {
+    int low = 0;
+    int high = grams;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(getRecord(middle), key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares the gram of a record with a key, without copying the gram.
+   *
+   * @param record The position of the record.
+   * @param key The UTF-8 bytes of the key.
+   * @return Less than 0, 0 or greater than 0 if the gram goes before, is or goes after the key.
+   */
+  private int compare(long record, byte[] key) {
+    int length = getInt(record);
+    for (int i = 0; i < Math.min(length, key.length); i++) {
+      int difference = (getByte(record + 4 + i) & 0xff) - (key[i] & 0xff);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - key.length;
+  }
+
+  /**
+   * Compares a part of some UTF-8 bytes with a key, as unsigned bytes.
+   *
+   * @param bytes The bytes.
+   * @param from The first byte to compare.
+   * @param length The number of bytes to compare.
+   * @param key The key.
+   * @return Less than 0, 0 or greater than 0 if the bytes go before, are or go after the key.
+   */
+  static int compare(byte[] bytes, int from, int length, byte[] key) {
+    for (int i = 0; i < Math.min(length, key.length); i++) {
+      int difference = (bytes[from + i] & 0xff) - (key[i] & 0xff);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return length - key.length;
+  }
+
+  /**
+   * Gets the position of the record of a gram.
+   *
+   * @param index The number of the gram.
+   * @return The position of the record.
+   */
+  private long getRecord(int index) {
+    return getLong(offsetsPosition + (long) index * 8);
+  }
+
+  /**
+   * Gets the gram of a record.
+   *
+   * @param record The position of the record.
+   * @return The UTF-8 bytes of the gram.
+   */
+  private byte[] getGram(long record) {
+    byte[] gram = new byte[getInt(record)];
+    getBytes(record + 4, gram);
+    return gram;
+  }
+
+  /**
+   * Gets the postings of a record in a range of years.
+   *
+   * @param record The position of the record.
+   * @param gram The gram of the record.
+   * @param fromYear The first year, included.
+   * @param toYear The last year, included.
+   * @return The postings sorted by year.
+   */
+  private List<Posting> getPostings(long record, String gram, int fromYear, int toYear) {
+    long position = record + 4 + getInt(record);
+    int count = getInt(position);
+    position += 4;
+    List<Posting> postings = new ArrayList<>();
+    for (int i = 0; i < count; i++, position += postingBytes) {
+      int year = getInt(position);
+      if (year > toYear) {
+        break;
+      }
+      if (year >= fromYear) {
+        postings.add(
+            new Posting(
+                gram,
+                year,
+                getLong(position + 4),
+                getLong(position + 12),
+                getByte(position + 20) != 0));
+      }
+    }
+    return postings;
+  }
+
+  private byte getByte(long position) {
+    return segments[(int) (position / segmentBytes)].get((int) (position % segmentBytes));
+  }
+
+  /**
+   * Reads bytes from the index, even across two buffers.
+   *
+   * @param position The position of the first byte.
+   * @param bytes Where to read them, as many as it fits.
+   */
+  private void getBytes(long position, byte[] bytes) {
+    int read = 0;
+    while (read < bytes.length) {
+      ByteBuffer segment = segments[(int) ((position + read) / segmentBytes)].duplicate();
+      segment.position((int) ((position + read) % segmentBytes));
+      int length = Math.min(bytes.length - read, segment.remaining());
+      segment.get(bytes, read, length);
+      read += length;
+    }
+  }
+
+  private int getInt(long position) {
+    int offset = (int) (position % segmentBytes);
+    MappedByteBuffer segment = segments[(int) (position / segmentBytes)];
+    if (offset + 4 <= segment.limit()) {
+      return segment.getInt(offset);
+    }
+    byte[] bytes = new byte[4];
+    getBytes(position, bytes);
+    return ByteBuffer.wrap(bytes).getInt();
+  }
+
+  private long getLong(long position) {
+    int offset = (int) (position % segmentBytes);
+    MappedByteBuffer segment = segments[(int) (position / segmentBytes)];
+    if (offset + 8 <= segment.limit()) {
+      return segment.getLong(offset);
+    }
+    byte[] bytes = new byte[8];
+    getBytes(position, bytes);
+    return ByteBuffer.wrap(bytes).getLong();
+  }
+}
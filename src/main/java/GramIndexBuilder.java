@@ -0,0 +1,333 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Builds a GramIndex from the files of a dictionary and its neologisms that the --results option
+ * downloads, whose rows are the year, the gram, the occurrences and the years with occurrences.
+ * Those files are sorted by year, so the rows are sorted by gram in runs that fit in memory, which
+ * are then merged into the records of the index, and the index never has to fit in memory.
+ *
+ * @author julidipiti
+ */
+public class GramIndexBuilder {
+
+  // The rows sorted in memory before they are written to a run, about 100Mb of heap.
+  private static final int rowsPerRun = 500000;
+
+  /**
+   * A row of the dictionary or of the neologisms.
+   */
+  private static class Row {
+    private final byte[] gram;
+    private final int year;
+    private final long occurrences;
+    private final long yearOccurrences;
+    private final boolean neologism;
+
+    Row(byte[] gram, int year, long occurrences, long yearOccurrences, boolean neologism) {
+      this.gram = gram;
+      this.year = year;
+      this.occurrences = occurrences;
+      this.yearOccurrences = yearOccurrences;
+      this.neologism = neologism;
+    }
+  }
+
+  // The grams by their UTF-8 bytes as GramIndex searches them, and then by year.
+  private static final Comparator<Row> order =
+      new Comparator<Row>() {
+        @Override
+        public int compare(Row a, Row b) {
+          int grams = GramIndex.compare(a.gram, 0, a.gram.length, b.gram);
+          return grams != 0 ? grams : Integer.compare(a.year, b.year);
+        }
+      };
+
+  /**
+   * The next row of a run while it is merged.
+   */
+  private static class Cursor {
+    private final DataInputStream in;
+    private Row row;
+
+    Cursor(DataInputStream in) {
+      this.in = in;
+    }
+
+    /**
+     * Moves to the next row of the run.
+     *
+     * @return False if there are no more rows.
+     * @throws IOException If the run can't be read.
+     */
+    boolean advance() throws IOException {
+      byte[] gram;
+      try {
+        gram = new byte[in.readInt()];
+      } catch (EOFException e) {
+        row = null;
+        return false;
+      }
+      in.readFully(gram);
+      row = new Row(gram, in.readInt(), in.readLong(), in.readLong(), in.readBoolean());
+      return true;
+    }
+  }
+
+  private GramIndexBuilder() {}
+
+  /**
+   * Builds the index of a dictionary and its neologisms.
+   *
+   * @param dictionary The file of the dictionary.
+   * @param neologisms The file of the neologisms, or null to index only the dictionary.
+   * @param index The file of the index to write.
+   * @return The number of grams in the index.
+   * @throws IOException If the files can't be read or written, or a row is not valid.
+   */
+  public static int build(File dictionary, File neologisms, File index) throws IOException {
+    return build(dictionary, neologisms, index, rowsPerRun);
+  }
+
+  /**
+   * Builds the index of a dictionary and its neologisms.
+   *
+   * @param dictionary The file of the dictionary.
+   * @param neologisms The file of the neologisms, or null to index only the dictionary.
+   * @param index The file of the index to write.
+   * @param rowsPerRun The rows sorted in memory before they are written to a run.
+   * @return The number of grams in the index.
+   * @throws IOException If the files can't be read or written, or a row is not valid.
+   */
+  static int build(File dictionary, File neologisms, File index, int rowsPerRun)
+      throws IOException {
+    File directory = index.getAbsoluteFile().getParentFile();
+    List<File> runs = new ArrayList<>();
+    try {
+      List<Row> rows = new ArrayList<>();
+      readRows(dictionary, false, rowsPerRun, rows, runs, directory);
+      if (neologisms != null) {
+        readRows(neologisms, true, rowsPerRun, rows, runs, directory);
+      }
+      runs.add(writeRun(rows, directory));
+      return merge(runs, index);
+    } finally {
+      for (File run : runs) {
+        run.delete();
+      }
+    }
+  }
+
+  /**
+   * Reads the rows of a file, writing a sorted run every time there are enough of them.
+   *
+   * @param file The file, with the year, the gram, the occurrences and the years with occurrences
+   *     of every row.
+   * @param neologism If the rows are neologisms.
+   * @param rowsPerRun The rows sorted in memory before they are written to a run.
+   * @param rows The rows not written yet.
+   * @param runs The runs written.
+   * @param directory The directory of the runs.
+   * @throws IOException If the file can't be read, or a row is not valid.
+   */
+  private static void readRows(
+      File file,
+      boolean neologism,
+      int rowsPerRun,
+      List<Row> rows,
+      List<File> runs,
+      File directory)
+      throws IOException {
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length != 4) {
+          throw new IOException(
+              file + " must have the year, the gram, the occurrences and the years with"
+                  + " occurrences of every row, not: " + line);
+        }
+        try {
+          rows.add(
+              new Row(
+                  fields[1].getBytes(StandardCharsets.UTF_8),
+                  Integer.parseInt(fields[0]),
+                  Long.parseLong(fields[2]),
+                  Long.parseLong(fields[3]),
+                  neologism));
+        } catch (NumberFormatException e) {
+          throw new IOException(file + " has a row with a wrong number: " + line, e);
+        }
+        if (rows.size() == rowsPerRun) {
+          runs.add(writeRun(rows, directory));
+        }
+      }
+    }
+  }
+
+  /**
+   * Sorts some rows and writes them to a temporary file.
+   *
+   * @param rows The rows, which are removed.
+   * @param directory The directory of the file.
+   * @return The file.
+   * @throws IOException If the file can't be written.
+   */
+  private static File writeRun(List<Row> rows, File directory) throws IOException {
+    Collections.sort(rows, order);
+    File run = File.createTempFile("run", ".tmp", directory);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+      for (Row row : rows) {
+        out.writeInt(row.gram.length);
+        out.write(row.gram);
+        out.writeInt(row.year);
+        out.writeLong(row.occurrences);
+        out.writeLong(row.yearOccurrences);
+        out.writeBoolean(row.neologism);
+      }
+    }
+    rows.clear();
+    return run;
+  }
+
+  /**
+   * Merges the runs into the records of the index, joining the row of a year of the dictionary
+   * with the row of the same year of the neologisms, and then writes the offsets, the neologisms
+   * and the footer.
+   *
+   * @param runs The runs.
+   * @param index The file of the index.
+   * @return The number of grams.
+   * @throws IOException If the runs can't be read or the index can't be written.
+   */
+  private static int merge(List<File> runs, File index) throws IOException {
+    PriorityQueue<Cursor> heap =
+        new PriorityQueue<>(
+            runs.size(),
+            new Comparator<Cursor>() {
+              @Override
+              public int compare(Cursor a, Cursor b) {
+                return order.compare(a.row, b.row);
+              }
+            });
+    List<Cursor> cursors = new ArrayList<>();
+    File offsets = File.createTempFile("offsets", ".tmp", index.getAbsoluteFile().getParentFile());
+    // The year and the number of the gram of every neologism, with its occurrences to sort them.
+    List<long[]> neologisms = new ArrayList<>();
+    int grams = 0;
+    long position = 0;
+
+    try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index)));
+        DataOutputStream offsetsOut =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(offsets)))) {
+      for (File run : runs) {
+        Cursor cursor =
+            new Cursor(new DataInputStream(new BufferedInputStream(new FileInputStream(run))));
+        cursors.add(cursor);
+        if (cursor.advance()) {
+          heap.add(cursor);
+        }
+      }
+
+      List<Row> postings = new ArrayList<>();
+      while (!heap.isEmpty()) {
+        // All the rows of the next gram.
+        byte[] gram = heap.peek().row.gram;
+        postings.clear();
+        while (!heap.isEmpty() && Arrays.equals(heap.peek().row.gram, gram)) {
+          Cursor cursor = heap.poll();
+          Row row = cursor.row;
+          Row last = postings.isEmpty() ? null : postings.get(postings.size() - 1);
+          if (last != null && last.year == row.year) {
+            // The stats of the dictionary, marked as a neologism if either row is one.
+            Row stats = last.neologism ? row : last;
+            postings.set(
+                postings.size() - 1,
+                new Row(
+                    gram,
+                    row.year,
+                    stats.occurrences,
+                    stats.yearOccurrences,
+                    last.neologism || row.neologism));
+          } else {
+            postings.add(row);
+          }
+          if (cursor.advance()) {
+            heap.add(cursor);
+          }
+        }
+
+        offsetsOut.writeLong(position);
+        out.writeInt(gram.length);
+        out.write(gram);
+        out.writeInt(postings.size());
+        for (Row posting : postings) {
+          out.writeInt(posting.year);
+          out.writeLong(posting.occurrences);
+          out.writeLong(posting.yearOccurrences);
+          out.writeBoolean(posting.neologism);
+          if (posting.neologism) {
+            neologisms.add(new long[] {posting.year, grams, posting.occurrences});
+          }
+        }
+        position += 4 + gram.length + 4 + (long) postings.size() * GramIndex.postingBytes;
+        grams++;
+      }
+
+      // Flushed instead of closed, as the try closes it, so the copy reads all the offsets.
+      offsetsOut.flush();
+      long offsetsPosition = position;
+      Files.copy(offsets.toPath(), out);
+      position += (long) grams * 8;
+
+      // The neologisms by year, and the ones of a year by occurrences as in the outputs.
+      Collections.sort(
+          neologisms,
+          new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+              int years = Long.compare(a[0], b[0]);
+              return years != 0 ? years : Long.compare(b[2], a[2]);
+            }
+          });
+      for (long[] neologism : neologisms) {
+        out.writeInt((int) neologism[0]);
+        out.writeInt((int) neologism[1]);
+      }
+
+      out.writeLong(offsetsPosition);
+      out.writeInt(grams);
+      out.writeLong(position);
+      out.writeInt(neologisms.size());
+      out.writeInt(GramIndex.version);
+      out.writeInt(GramIndex.magic);
+    } finally {
+      for (Cursor cursor : cursors) {
+        cursor.in.close();
+      }
+      offsets.delete();
+    }
+    return grams;
+  }
+}
@@ -0,0 +1,72 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Picks the same sample of grams as the import of a preview, for processing the ngrams locally. A
+ * gram is in the sample if pmod(hash(gram), 100) is less than the percent, as in ImportNgrams.q,
+ * so a gram is kept or dropped in all its years and the counters of the kept ones are exact.
+ *
+ * @author julidipiti
+ */
+public class GramSampler {
+
+  private final int samplePercent;
+
+  /**
+   * Creates a sampler.
+   *
+   * @param samplePercent The percent of the grams to keep, between 1 and 100.
+   * @throws IllegalArgumentException If the percent is out of range.
+   */
+  public GramSampler(int samplePercent) throws IllegalArgumentException {
+    if (samplePercent < 1 || samplePercent > 100) {
+      throw new IllegalArgumentException("samplePercent must be between 1 and 100.");
+    }
+    this.samplePercent = samplePercent;
+  }
+
+  /**
+   * Tells if a gram is in the sample.
+   *
+   * @param gram The gram.
+   * @return True if the gram is kept.
+   */
+  public boolean accept(String gram) {
+    return samplePercent == 100 || pmod(hash(gram), 100) < samplePercent;
+  }
+
+  /**
+   * Estimates a number of grams of the whole corpus from the number of grams in the sample.
+   *
+   * @param sampled The number of grams in the sample.
+   * @return The estimated number of grams without sampling.
+   */
+  public long scaleUp(long sampled) {
+    return sampled * 100 / samplePercent;
+  }
+
+  /**
+   * Hashes a gram as the hash function of Hive 1.0 does with a string column, which starts at 0 and
+   * adds the signed UTF-8 bytes of the text.
+   *
+   * @param gram The gram.
+   * @return The hash.
+   */
+  static int hash(String gram) {
+    int hash = 0;
+    for (byte b : gram.getBytes(StandardCharsets.UTF_8)) {
+      hash = 31 * hash + b;
+    }
+    return hash;
+  }
+
+  /**
+   * Computes the positive modulus, as the pmod function of Hive.
+   *
+   * @param a The dividend.
+   * @param b The divisor, positive.
+   * @return The modulus, between 0 and b - 1.
+   */
+  static int pmod(int a, int b) {
+    return ((a % b) + b) % b;
+  }
+}
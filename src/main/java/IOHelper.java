@@ -165,4 +165,28 @@ public class IOHelper {
 
     return line;
   }
+
+  /**
+   * Helps the user to select one of several options, listing them with a number each.
+   *
+   * @param options The options to choose from.
+   * @param <T> The type of the options.
+   * @return The option selected.
+   * @throws IllegalArgumentException If the number inserted is not an option.
+   */
+  public static <T> T selectOption(T[] options) {
+    println("Options:");
+    for (int i = 0; i < options.length; i++) {
+      println("\t" + (i + 1) + ". " + options[i]);
+    }
+
+    println();
+    println("Insert number option:");
+    int opt = getInteger();
+    if (opt < 1 || opt > options.length) {
+      throw new IllegalArgumentException("Incorrect option.");
+    }
+
+    return options[opt - 1];
+  }
 }
@@ -0,0 +1,34 @@
+/**
+ * Strategies to join the dictionaries of two languages when looking for foreignisms.
+ *
+ * @author julidipiti
+ */
+public enum JoinStrategy {
+  /**
+   * Both dictionaries are shuffled by gram and joined on the reducers, unless Hive converts the
+   * join into a map join by itself because one of them is small. Safe for any size.
+   */
+  SHUFFLE(false),
+
+  /**
+   * The smaller dictionary is broadcast to every mapper and joined there as a hash table, so the
+   * bigger one is never shuffled, up to a much bigger size than Hive broadcasts by itself. Hive
+   * falls back to SHUFFLE if neither side fits in memory.
+   */
+  BROADCAST(true);
+
+  private final boolean mapJoin;
+
+  JoinStrategy(boolean mapJoin) {
+    this.mapJoin = mapJoin;
+  }
+
+  /**
+   * Tells if the step forces the join to run on the mappers, with the settings of a map join.
+   *
+   * @return True if the smaller side is broadcast, false if Hive decides.
+   */
+  public boolean isMapJoin() {
+    return mapJoin;
+  }
+}
@@ -1,5 +1,6 @@
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AnonymousAWSCredentials;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
@@ -9,11 +10,21 @@ import com.amazonaws.services.elasticmapreduce.model.JobFlowInstancesConfig;
 import com.amazonaws.services.elasticmapreduce.model.RunJobFlowRequest;
 import com.amazonaws.services.elasticmapreduce.model.RunJobFlowResult;
 import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.management.JMException;
 
 /**
  * Main class to launch the analyzer.
@@ -24,24 +35,150 @@ public class Main {
 
   private static S3Helper s3h;
   private static EMRHelper emrh;
-  private static final String ngramsFullPath =
-      "s3://datasets.elasticmapreduce/ngrams/books/20090715/";
-  private static final String genericRegex = "^\\\\\\p{Ll}+(\\\\\\-)?\\\\\\p{Ll}+$";
-  private static String bucketName = "ana-" + UUID.randomUUID();
+  // The bucket of the account, and the folders of this run in it, once the credentials are known.
+  private static String bucketName;
   private static String scriptsRelativePath = "EMR/HiveScripts/";
-  private static String scriptsFullPath = "s3://" + bucketName + "/" + scriptsRelativePath;
-  private static String OutputFullPath = "s3://" + bucketName + "/EMR/Output/";
-  private static String logsPath = "s3://" + bucketName + "/EMR/Logs/";
-  private static int stepCounter = 1;
+  private static String scriptsFullPath;
+  private static String OutputFullPath;
+  private static String logsPath;
+  // The bucket to use instead of the one of the account, as a system property.
+  private static final String bucketProperty = "ana.bucket";
+  // The file where to write the metrics, as a system property.
+  private static final String metricsProperty = "ana.metrics";
+  // The endpoints of S3 and EMR instead of the ones of the region, as system properties.
+  private static final String s3EndpointProperty = "ana.s3.endpoint";
+  private static final String emrEndpointProperty = "ana.emr.endpoint";
+  // The most grams of a prefix that a query prints.
+  private static final int queryLimit = 100;
 
   /**
-   * Entry point.
+   * Entry point. With no arguments the analyzer asks for the parameters of one analysis. With
+   * "--batch spec.json" it runs all the analyses of the job spec without asking anything, and with
+   * "--dry-run spec.json" it only prints the steps of those analyses and their estimations. With
+   * "--generate corpus.json directory" it writes a synthetic corpus, and with "--check spec.json
+   * directory" it checks the parameters of the scripts of the analyses of the job spec and writes
+   * them there substituted. Neither of them uses AWS. With "--results s3://bucket/EMR/Output/
+   * directory" it downloads the results of the analyses into one file per output. "--index",
+   * "--query" and "--neologisms" index a dictionary and its neologisms downloaded that way and look
+   * grams up, and "--compact" exports an index as a compact dictionary.
    *
    * @param args Arguments to pass, if any.
    * @throws IOException An exception that indicates some problem in the execution.
    */
   public static void main(String[] args) throws IOException {
 
+    // Exposes the metrics through JMX, and in a Prometheus text file with -Dana.metrics=<file>.
+    try {
+      Metrics.getDefault().registerMBean();
+    } catch (JMException e) {
+      IOHelper.println("The metrics are not available through JMX: " + e.getMessage());
+    }
+    if (System.getProperty(metricsProperty) != null) {
+      Metrics.getDefault().exportTo(new File(System.getProperty(metricsProperty)), 10);
+    }
+
+    // Generates synthetic ngrams, which need no credentials.
+    if (args.length > 0 && args[0].equals("--generate")) {
+      if (args.length != 3) {
+        throw new IllegalArgumentException("Usage: --generate <corpus spec file> <directory>");
+      }
+      CorpusGenerator generator =
+          new ObjectMapper().readValue(new File(args[1]), CorpusGenerator.class);
+      long rows = generator.write(new File(args[2]));
+      IOHelper.println("Generated " + rows + " rows in " + args[2]);
+      return;
+    }
+
+    // Checks the parameters of the scripts of the analyses, which needs no credentials.
+    if (args.length > 0 && args[0].equals("--check")) {
+      if (args.length != 3) {
+        throw new IllegalArgumentException("Usage: --check <job spec file> <directory>");
+      }
+      // The steps are only built, so the helper needs no credentials.
+      EMRHelper localEmrh =
+          new EMRHelper(new AnonymousAWSCredentials(), Region.getRegion(Regions.US_EAST_1));
+      for (AnalysisSpec spec : BatchRunner.readJobSpec(new File(args[1])).analyses) {
+        String output = "s3://bucket/EMR/Output/" + spec.getName() + "/";
+        List<StepConfig> steps =
+            new StepPlanner(localEmrh, "s3://bucket/EMR/HiveScripts/", output).getSteps(spec);
+        IOHelper.println();
+        IOHelper.println(spec.getName() + ":");
+        IOHelper.println(new ScriptChecker(new File(args[2], spec.getName())).check(steps));
+      }
+      return;
+    }
+
+    // Indexes a dictionary and its neologisms downloaded with --results.
+    if (args.length > 0 && args[0].equals("--index")) {
+      if (args.length != 4) {
+        throw new IllegalArgumentException(
+            "Usage: --index <dictionary file> <neologisms file> <index file>");
+      }
+      int grams = GramIndexBuilder.build(new File(args[1]), new File(args[2]), new File(args[3]));
+      IOHelper.println("Indexed " + grams + " grams in " + args[3]);
+      return;
+    }
+
+    // Exports the dictionary of an index in the compact format.
+    if (args.length > 0 && args[0].equals("--compact")) {
+      if (args.length != 3) {
+        throw new IllegalArgumentException("Usage: --compact <index file> <dictionary file>");
+      }
+      GramIndex index = new GramIndex(new File(args[1]));
+      try (CompactDictionaryWriter writer = new CompactDictionaryWriter(new File(args[2]))) {
+        for (int i = 0; i < index.size(); i++) {
+          writer.append(index.get(i));
+        }
+      }
+      IOHelper.println(
+          "Exported " + index.size() + " grams in " + new File(args[2]).length() + " bytes");
+      return;
+    }
+
+    // Looks up a gram, or the grams of a prefix that ends with *, in an index.
+    if (args.length > 0 && args[0].equals("--query")) {
+      if (args.length != 3 && args.length != 5) {
+        throw new IllegalArgumentException(
+            "Usage: --query <index file> <gram or prefix*> [<from year> <to year>]");
+      }
+      long start = System.currentTimeMillis();
+      GramIndex index = new GramIndex(new File(args[1]));
+      int fromYear = args.length == 5 ? Integer.parseInt(args[3]) : Integer.MIN_VALUE;
+      int toYear = args.length == 5 ? Integer.parseInt(args[4]) : Integer.MAX_VALUE;
+      List<String> grams =
+          args[2].endsWith("*")
+              ? index.getGrams(args[2].substring(0, args[2].length() - 1), queryLimit)
+              : Collections.singletonList(args[2]);
+      int rows = 0;
+      for (String gram : grams) {
+        for (GramIndex.Posting posting : index.get(gram, fromYear, toYear)) {
+          IOHelper.println(posting.toString());
+          rows++;
+        }
+      }
+      IOHelper.println(rows + " rows in " + (System.currentTimeMillis() - start) + "ms");
+      return;
+    }
+
+    // Lists the neologisms of some years from an index.
+    if (args.length > 0 && args[0].equals("--neologisms")) {
+      if (args.length != 3 && args.length != 4) {
+        throw new IllegalArgumentException(
+            "Usage: --neologisms <index file> <from year> [<to year>]");
+      }
+      long start = System.currentTimeMillis();
+      int fromYear = Integer.parseInt(args[2]);
+      int toYear = args.length == 4 ? Integer.parseInt(args[3]) : fromYear;
+      List<GramIndex.Posting> neologisms =
+          new GramIndex(new File(args[1])).getNeologisms(fromYear, toYear);
+      for (GramIndex.Posting posting : neologisms) {
+        IOHelper.println(posting.toString());
+      }
+      IOHelper.println(
+          neologisms.size() + " rows in " + (System.currentTimeMillis() - start) + "ms");
+      return;
+    }
+
     // Credentials needed to execute on AWS.
     AWSCredentials credentials;
     Region region = Region.getRegion(Regions.US_EAST_1);
@@ -53,16 +190,65 @@ public class Main {
           "Cannot load the credentials from the credential profiles file. " + exc);
     }
 
+    // The scripts are kept between runs in the bucket of the account, so the unchanged ones are
+    // not uploaded again, while the results and the logs of every run go to folders of their own.
+    bucketName = System.getProperty(bucketProperty, getBucketName(credentials.getAWSAccessKeyId()));
+    String run = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    scriptsFullPath = "s3://" + bucketName + "/" + scriptsRelativePath;
+    OutputFullPath = "s3://" + bucketName + "/EMR/Output/" + run + "/";
+    logsPath = "s3://" + bucketName + "/EMR/Logs/" + run + "/";
+
     s3h = new S3Helper(credentials, region);
+    emrh = new EMRHelper(credentials, region);
+    // Local stand-ins for S3 and EMR, i.e.: -Dana.s3.endpoint=http://localhost:9000.
+    if (System.getProperty(s3EndpointProperty) != null) {
+      s3h.withEndpoint(System.getProperty(s3EndpointProperty));
+    }
+    if (System.getProperty(emrEndpointProperty) != null) {
+      emrh.withEndpoint(System.getProperty(emrEndpointProperty));
+    }
+
+    // Downloads the results of finished analyses, merged into one file per output.
+    if (args.length > 0 && args[0].equals("--results")) {
+      if (args.length != 3) {
+        throw new IllegalArgumentException("Usage: --results <s3 path of the output> <directory>");
+      }
+      File directory = new File(args[2]);
+      directory.mkdirs();
+      s3h.downloadResults(args[1], directory);
+      return;
+    }
+
+    // Shows what the analyses would run, without creating anything on AWS.
+    if (args.length > 0 && args[0].equals("--dry-run")) {
+      if (args.length != 2) {
+        throw new IllegalArgumentException("Usage: --dry-run <job spec file>");
+      }
+      new BatchRunner(s3h, emrh, OutputFullPath, logsPath).dryRun(new File(args[1]));
+      return;
+    }
+
+    // Loads the languages in the background while the bucket is created.
+    s3h.prefetchLanguages();
 
     // Creates bucket to store the output.
     s3h.createBucket(bucketName);
 
-    emrh = new EMRHelper(credentials, region);
+    if (args.length > 0 && args[0].equals("--batch")) {
+      if (args.length != 2) {
+        throw new IllegalArgumentException("Usage: --batch <job spec file>");
+      }
+      s3h.uploadHiveScripts(bucketName, scriptsRelativePath);
+      new BatchRunner(s3h, emrh, OutputFullPath, logsPath).run(new File(args[1]));
+      return;
+    }
+
+    AnalysisSpec spec = new AnalysisSpec();
 
     IOHelper.println();
     IOHelper.println("Select the main language to analyze:");
     String language1 = s3h.selectLanguageOption();
+    spec.withLanguage1(language1);
 
     IOHelper.println();
     IOHelper.println(
@@ -70,163 +256,137 @@ public class Main {
             + " are only interested in neologisms:");
 
     String language2 = s3h.selectLanguageOption();
+    spec.withLanguage2(language2);
 
     IOHelper.println();
-    IOHelper.println("Select master instance type (i.e.: m2.xlarge):");
-    String masterInstanceType = emrh.selectInstanceType();
+    IOHelper.println(
+        "Insert the number of words of the grams, between 1 and 5 (e.g., 1). The grams of more "
+            + "words are much bigger, so they need bigger clusters:");
+    int ngramOrder = IOHelper.getInteger();
+    spec.withNgramOrder(ngramOrder);
 
-    IOHelper.println();
-    IOHelper.println("Select slave instance type:");
-    String slaveInstanceType = emrh.selectInstanceType();
+    // Sizes the input in the background while the rest of the parameters are inserted.
+    Future<Long> inputSize1 = s3h.prefetchNgramsSize(language1, ngramOrder);
+    Future<Long> inputSize2 =
+        language1.equals(language2) ? null : s3h.prefetchNgramsSize(language2, ngramOrder);
 
     s3h.uploadHiveScripts(bucketName, scriptsRelativePath);
 
     IOHelper.println();
     IOHelper.println(
         "Insert the year from which to start the analisis, between 1700 and 2008 (e.g., 1800):");
-    int fromYear = IOHelper.getInteger();
+    spec.withFromYear(IOHelper.getInteger());
 
     IOHelper.println();
     IOHelper.println(
         "Insert the year to end the analisis, between the previous selected number and 2008 (e.g., "
             + "1820):");
-    int toYear = IOHelper.getInteger();
+    spec.withToYear(IOHelper.getInteger());
 
     IOHelper.println();
     IOHelper.println(
         "Insert the size of the window, which must be smaller than the difference of the years "
             + "(e.g., 5):");
-    int windowSize = IOHelper.getInteger();
+    spec.withWindowSize(IOHelper.getInteger());
 
     IOHelper.println();
     IOHelper.println(
         "Insert the percent of years needed for a gram, between 0.1 and 1.0 (e.g., 0.8):");
-    double percentOfYears = IOHelper.getDouble();
-
-    runFinders(
-        masterInstanceType,
-        slaveInstanceType,
-        language1,
-        language1.replace('-', '_'),
-        language2,
-        language2.replace('-', '_'),
-        fromYear,
-        toYear,
-        windowSize,
-        percentOfYears);
+    spec.withPercentOfYears(IOHelper.getDouble());
+
+    IOHelper.println();
+    IOHelper.println("Insert the number of neologisms to export per year (e.g., 20):");
+    spec.withNeologismsPerYear(IOHelper.getInteger());
+
+    if (spec.hasForeignisms()) {
+      IOHelper.println();
+      IOHelper.println("Select the strategy to join the dictionaries of both languages:");
+      spec.withJoinStrategy(IOHelper.selectOption(JoinStrategy.values()));
+
+      IOHelper.println();
+      IOHelper.println(
+          "Insert how many times more a gram must be used in the second language to be a "
+              + "foreignism (e.g., 1000):");
+      spec.withUsageRatio(IOHelper.getInteger());
+
+      IOHelper.println();
+      IOHelper.println("Insert the number of foreignisms to export (e.g., 1000):");
+      spec.withForeignismsLimit(IOHelper.getInteger());
+    }
+
+    IOHelper.println();
+    IOHelper.println(
+        "Select the compression for the data shuffled inside the cluster (e.g., SNAPPY):");
+    spec.withIntermediateCodec(IOHelper.selectOption(CompressionCodec.getIntermediateCodecs()));
+
+    IOHelper.println();
+    IOHelper.println("Select the compression for the results written to S3 (e.g., GZIP):");
+    spec.withOutputCodec(IOHelper.selectOption(CompressionCodec.getOutputCodecs()));
+
+    ClusterPlanner plan =
+        new ClusterPlanner(
+            getInputSize(inputSize1) + getInputSize(inputSize2),
+            spec.getFromYear(),
+            spec.getToYear(),
+            spec.getWindowSize());
+    IOHelper.println();
+    IOHelper.println("Recommended cluster for this analysis:");
+    IOHelper.println(plan.toString());
+
+    IOHelper.println();
+    IOHelper.println("Select master instance type (i.e.: m2.xlarge):");
+    spec.withMasterInstanceType(emrh.selectInstanceType());
+
+    IOHelper.println();
+    IOHelper.println(
+        "Select slave instance type (recommended: " + plan.getSlaveInstanceType() + "):");
+    spec.withSlaveInstanceType(emrh.selectInstanceType());
+
+    IOHelper.println();
+    IOHelper.println(
+        "Insert the size of the cluster, between 1 and 20 (recommended: "
+            + plan.getInstanceCount()
+            + "):");
+    int clusterSize = IOHelper.getInteger();
+    spec.withClusterSize(clusterSize);
+
+    IOHelper.println();
+    IOHelper.println(
+        "Insert how many of those instances are task instances, which are removed while the "
+            + "windows shift and added back for the big scans, or 0 to keep the same instances "
+            + "during the whole analysis (e.g., "
+            + (clusterSize - 1) / 2
+            + "):");
+    spec.withTaskInstances(IOHelper.getInteger());
+
+    runFinders(spec, plan);
   }
 
   /**
    * Launches an EMR cluster on AWS that analyzes the Google Books Ngrams looking for neologisms and
    * foreignisms between 2 languages.
    *
-   * @param masterInstanceType The type of instance for the only master.
-   * @param slaveInstanceType The type of instance for all the slaves.
-   * @param language1 The main language to analyze.
-   * @param ngramsTable1 The name to give to the table of language1.
-   * @param language2 The language that sources the foreignisms to language1.
-   * @param ngramsTable2 The name to give to the table of language2.
-   * @param fromYear The year to start from.
-   * @param toYear The last year to analyze.
-   * @param windowSize The size of the window to shift and analyze between fromYear and toYear.
-   * @param percentOfYears The ratio of the years that a word need to be in to be considered as a
-   *     part of the dictionary.
+   * @param spec The parameters of the analysis and the shape of its cluster.
+   * @param plan The recommended split size and reducers for the cluster.
    * @throws IllegalArgumentException Accuses some problem with the input.
    */
-  static void runFinders(
-      String masterInstanceType,
-      String slaveInstanceType,
-      String language1,
-      String ngramsTable1,
-      String language2,
-      String ngramsTable2,
-      int fromYear,
-      int toYear,
-      int windowSize,
-      double percentOfYears)
+  static void runFinders(AnalysisSpec spec, ClusterPlanner plan)
       throws IllegalArgumentException {
-    if (windowSize < 1) {
-      throw new IllegalArgumentException("windowSize must be at least 1.");
-    }
-    if (fromYear < 1700 || fromYear > 2008 || toYear < 1700 || toYear > 2008) {
-      throw new IllegalArgumentException("fromYear and toYear must be between 1700 and 2008");
-    }
-    if (fromYear >= toYear) {
-      throw new IllegalArgumentException("fromYear must be less than toYear.");
-    }
-    if (fromYear + windowSize > toYear) {
-      throw new IllegalArgumentException(
-          "There are not enough years to shift the window. Make sure fromYear + windowSize is less "
-              + "than toYear.");
-    }
-    if (percentOfYears < 0.1 || percentOfYears > 1.0) {
-      throw new IllegalArgumentException("percentOfYears must be between 0.1 and 1.0");
-    }
-
-    List<StepConfig> steps = new LinkedList<>();
-    steps.addAll(
-        getHiveStepsForCreatingDictionary(
-            ngramsFullPath + language1 + "/1gram/",
-            ngramsTable1,
-            fromYear,
-            toYear,
-            windowSize,
-            percentOfYears));
-
-    // Defines if the steps for finding foreignisms are needed.
-    if (!language1.equals(language2)) {
-      steps.addAll(
-          getHiveStepsForCreatingDictionary(
-              ngramsFullPath + language2 + "/1gram/",
-              ngramsTable2,
-              fromYear,
-              toYear,
-              windowSize,
-              percentOfYears));
-
-      steps.addAll(
-          getHiveStepsForForeignismsFinder(
-              ngramsTable1,
-              ngramsTable2,
-              fromYear,
-              toYear,
-              windowSize,
-              percentOfYears));
+    spec.validate();
+    if (spec.getClusterSize() < 1) {
+      throw new IllegalArgumentException("The size of the cluster must be between 1 and 20.");
     }
 
-    steps.addAll(
-        getHiveStepsForNeologismsFinder(
-            ngramsTable1,
-            fromYear,
-            toYear,
-            windowSize,
-            percentOfYears));
-
-    Application[] applications = emrh.getApplications();
-    Configuration[] configurations = emrh.getConfigurations();
-
-    IOHelper.println();
-    IOHelper.println("Insert the size of the cluster, between 1 and 20 (e.g., 10):");
-    int clusterSize = IOHelper.getInteger();
-
-    // Uncomment these lines and pass the parameter to the getRunJobFlowRequest if you want to use
-    // an ec2-key on the connection, needed for SSH.
+    // Uncomment these lines and pass the parameter to the getJobFlowInstancesConfig if you want to
+    // use an ec2-key on the connection, needed for SSH.
     //System.out.println();
     //System.out.println("Insert the name of the ec2-key (e.g., my-key):");
     //String ec2key = IOHelper.getWord();
 
-    JobFlowInstancesConfig jobFlowInstancesConfig =
-        emrh.getJobFlowInstancesConfig(
-            /* ec2key ,*/ clusterSize, masterInstanceType, slaveInstanceType);
-
-    RunJobFlowRequest request =
-        emrh.getRunJobFlowRequest(
-            applications, configurations, steps, jobFlowInstancesConfig, logsPath);
-
     IOHelper.println();
     IOHelper.println("Wait...");
 
-    RunJobFlowResult result = emrh.runJobFlow(request);
+    RunJobFlowResult result = launchAnalysis(spec, plan, OutputFullPath, logsPath);
     IOHelper.println();
     IOHelper.println("Launching job with id:");
     IOHelper.println(result.getJobFlowId());
@@ -234,158 +394,103 @@ public class Main {
   }
 
   /**
-   * Gets the steps needed for finding foreignisms between language1 and language2 and exporting
-   * them to S3.
+   * Builds the steps of an analysis and launches the cluster that runs them. It can be called from
+   * several threads at once, every analysis gets its own planner.
    *
-   * @param ngramsLocation1 The location on S3 of the main ngrams.
-   * @param ngramsLocation2 The location on S3 of the other ngrams.
-   * @param ngramsTable1 The name of the table for the main ngrams.
-   * @param ngramsTable2 The name of the table for the other ngrams.
-   * @param fromYear The year to start from.
-   * @param toYear The last year to analyze.
-   * @param windowSize Size of the window.
-   * @param percentOfYears Percent of years needed for a ngram to be in the window.
-   * @return A list of the steps needed for launching the foreignisms finder.
+   * @param spec The parameters of the analysis, with the size of the cluster already decided.
+   * @param plan The recommended plan, whose splits and reducers are resized to the spec.
+   * @param outputFullPath The URL in S3 where to export the results.
+   * @param logsPath The URL in S3 where to store the logs.
+   * @return The result of launching the cluster, with its id.
+   * @throws IllegalArgumentException Accuses some problem with the input.
    */
-  static List<StepConfig> getHiveStepsForForeignismsFinder(
-      String ngramsTable1,
-      String ngramsTable2,
-      int fromYear,
-      int toYear,
-      int windowSize,
-      double percentOfYears) {
-    List<StepConfig> steps = new LinkedList<StepConfig>();
-
-    steps.add(
-        emrh.getHiveStep(
-            getStepName(),
-            scriptsFullPath + "ExportForeignisms.q",
-            createParameters(
-                "ngramsTable1=" + ngramsTable1,
-                "ngramsTable2=" + ngramsTable2,
-                "output=" + OutputFullPath + ngramsTable1 + "/Foreignisms/" + ngramsTable2)));
-
-    return steps;
-  }
+  static RunJobFlowResult launchAnalysis(
+      AnalysisSpec spec, ClusterPlanner plan, String outputFullPath, String logsPath)
+      throws IllegalArgumentException {
+    List<StepConfig> steps = planSteps(spec, outputFullPath);
+    if (steps.size() > PlanEstimator.maxSteps) {
+      throw new IllegalArgumentException(
+          "The analysis needs "
+              + steps.size()
+              + " steps, but EMR accepts "
+              + PlanEstimator.maxSteps
+              + ". Analyze fewer years or languages.");
+    }
 
-  /**
-   * Gets the steps needed for creating a dictionary made out of all the words in a language, and
-   * exporting them to S3.
-   *
-   * @param ngramsLocation The location on S3 of the ngrams.
-   * @param ngramsTable The name of the table for the ngrams.
-   * @param fromYear The year to start from.
-   * @param toYear The last year to analyze.
-   * @param windowSize Size of the window.
-   * @param percentOfYears Percent of years needed for a ngram to be in the window.
-   * @return A list of steps needed for creating a dictionary.
-   */
-  static List<StepConfig> getHiveStepsForCreatingDictionary(
-      String ngramsLocation,
-      String ngramsTable,
-      int fromYear,
-      int toYear,
-      int windowSize,
-      double percentOfYears) {
-
-    List<StepConfig> steps = new LinkedList<StepConfig>();
-
-    steps.add(
-        emrh.getHiveStep(
-            getStepName(),
-            scriptsFullPath + "ImportNgrams.q",
-            createParameters(
-                "ngramsLocation=" + ngramsLocation,
-                "regex=" + genericRegex,
-                "ngramsTable=" + ngramsTable)));
-
-    steps.add(
-        emrh.getHiveStep(
-            getStepName(),
-            scriptsFullPath + "CreateWindow.q",
-            createParameters(
-                "ngramsTable=" + ngramsTable,
-                "fromYear=" + fromYear,
-                "toYear=" + (fromYear + windowSize))));
-
-    for (int i = fromYear + windowSize; i <= toYear; i++) {
-      steps.add(
-          emrh.getHiveStep(
-              getStepName(),
-              scriptsFullPath + "ShiftWindow.q",
-              createParameters(
-                  "ngramsTable=" + ngramsTable,
-                  "newYear=" + i,
-                  "windowSize=" + windowSize)));
+    // The splits and the reducers are sized for the slaves that are launched, which the user may
+    // have chosen instead of the recommended ones.
+    ClusterPlanner cluster = plan.forInstances(spec.getClusterSize());
+    Application[] applications = emrh.getApplications();
+    Configuration[] configurations =
+        emrh.getConfigurations(
+            spec.getIntermediateCodec(), cluster.getSplitSize(), cluster.getMaxReducers());
+
+    JobFlowInstancesConfig jobFlowInstancesConfig;
+    if (spec.getTaskInstances() > 0) {
+      int coreInstances = spec.getClusterSize() - 1 - spec.getTaskInstances();
+      jobFlowInstancesConfig =
+          emrh.getJobFlowInstancesConfig(
+              spec.getMasterInstanceType(),
+              coreInstances,
+              spec.getTaskInstances(),
+              spec.getSlaveInstanceType());
+    } else {
+      jobFlowInstancesConfig =
+          emrh.getJobFlowInstancesConfig(
+              /* ec2key ,*/
+              spec.getClusterSize(), spec.getMasterInstanceType(), spec.getSlaveInstanceType());
     }
 
-    steps.add(
-        emrh.getHiveStep(
-            getStepName(),
-            scriptsFullPath + "ExportDictionary.q",
-            createParameters(
-                "ngramsTable=" + ngramsTable,
-                "windowSize=" + windowSize,
-                "percentOfYears=" + percentOfYears,
-                "output=" + OutputFullPath + ngramsTable + "/Dic")));
-
-    return steps;
+    RunJobFlowRequest request =
+        emrh.getRunJobFlowRequest(
+            applications, configurations, steps, jobFlowInstancesConfig, logsPath);
+
+    return emrh.runJobFlow(request);
   }
 
   /**
-   * Gets the steps needed for finding neologisms in a language and exporting them to S3.
+   * Builds the steps of an analysis.
    *
-   * @param ngramsTable The name of the table for the ngrams.
-   * @param fromYear The year to start from.
-   * @param toYear The last year to analyze.
-   * @param windowSize Size of the window.
-   * @param percentOfYears Percent of years needed for a ngram to be in the window.
-   * @return A list of steps needed for launching the neologisms finder.
+   * @param spec The parameters of the analysis, with the size of the cluster already decided.
+   * @param outputFullPath The URL in S3 where to export the results.
+   * @return The steps, in order.
+   * @throws IllegalArgumentException Accuses some problem with the input.
    */
-  static List<StepConfig> getHiveStepsForNeologismsFinder(
-      String ngramsTable, int fromYear, int toYear, int windowSize, double percentOfYears) {
-    List<StepConfig> steps = new LinkedList<StepConfig>();
-
-    for (int i = fromYear + windowSize; i <= toYear; i++) {
-      steps.add(
-          emrh.getHiveStep(
-              getStepName(),
-              scriptsFullPath + "ProcessNeologisms.q",
-              createParameters("ngramsTable=" + ngramsTable, "year=" + i)));
-    }
-
-    steps.add(
-        emrh.getHiveStep(
-            getStepName(),
-            scriptsFullPath + "ExportNeologisms.q",
-            createParameters(
-                "ngramsTable=" + ngramsTable, "output=" + OutputFullPath + ngramsTable + "/Neo")));
-
-    return steps;
+  static List<StepConfig> planSteps(AnalysisSpec spec, String outputFullPath)
+      throws IllegalArgumentException {
+    return new StepPlanner(emrh, scriptsFullPath, outputFullPath).getSteps(spec);
   }
 
   /**
-   * Creates an array of parameters for hive scripts, which need the "-d" option before every
-   * parameter.
+   * Gets the bucket of an account, which is the same in every run with its credentials.
    *
-   * @param parameters A few strings to pass as parameters.
-   * @return A well-formatted string for passing paramters.
+   * @param accessKeyId The access key of the credentials.
+   * @return The name of the bucket, i.e.: ana-0cc175b9c0f1b6a8.
    */
-  private static String[] createParameters(String... parameters) {
-    String[] parametersArray = new String[parameters.length * 2];
-    for (int i = 0; i < parameters.length; i++) {
-      parametersArray[i * 2] = "-d";
-      parametersArray[i * 2 + 1] = parameters[i];
-    }
-    return parametersArray;
+  static String getBucketName(String accessKeyId) {
+    // The key is hashed, so the name of the bucket does not tell it.
+    byte[] md5 = Md5Utils.computeMD5Hash(accessKeyId.getBytes(StandardCharsets.UTF_8));
+    return "ana-" + BinaryUtils.toHex(md5).substring(0, 16);
   }
 
   /**
-   * Gets a generic name for EMR steps. There could be up to 256 steps in the queue of steps, so the
-   * names have a 3-digit number id.
-   * @return The name of the next step.
+   * Waits for the size of some ngrams, computed in the background.
+   *
+   * @param inputSize The size being computed, or null if there are no ngrams.
+   * @return The size in bytes, or 0 if there are no ngrams or it could not be computed.
    */
-  private static String getStepName() {
-    return "Step-" + String.format("%03d", stepCounter++);
+  static long getInputSize(Future<Long> inputSize) {
+    if (inputSize == null) {
+      return 0;
+    }
+    try {
+      return inputSize.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      return 0;
+    } catch (ExecutionException ee) {
+      IOHelper.println("The size of the ngrams could not be computed: " + ee.getCause());
+      return 0;
+    }
   }
 }
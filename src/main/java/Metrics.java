@@ -0,0 +1,592 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A registry of counters, gauges and histograms of the local processing and of the calls to AWS.
+ * The metrics are exposed through JMX, as the attributes of the ana:type=Metrics bean, and in the
+ * text format of Prometheus, which can be written to a file for the textfile collector of the node
+ * exporter.
+ *
+ * <p>A metric is identified by its name and its labels, and asking for it again returns the same
+ * one, so the classes keep theirs in static fields and the hot paths only add to them.
+ *
+ * @author julidipiti
+ */
+public class Metrics {
+
+  private static final Metrics defaultMetrics = new Metrics();
+  private static final Pattern namePattern = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+  // From 1ms to 1m, for timers in seconds.
+  private static final double[] secondsBuckets = {
+    0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 60
+  };
+
+  /**
+   * A metric with its name, labels and help.
+   */
+  public abstract static class Metric {
+    private final String name;
+    private final String labels;
+    private final String help;
+
+    Metric(String name, String labels, String help) {
+      this.name = name;
+      this.labels = labels;
+      this.help = help;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the type of the metric for Prometheus.
+     *
+     * @return counter, gauge or histogram.
+     */
+    abstract String getType();
+
+    /**
+     * Writes the samples of the metric in the text format of Prometheus.
+     *
+     * @param writer The writer.
+     * @throws IOException If the samples can't be written.
+     */
+    abstract void write(Writer writer) throws IOException;
+
+    /**
+     * Gets the values of the metric for JMX.
+     *
+     * @param values Where to put the values, by the name of their attribute.
+     */
+    abstract void getValues(Map<String, Number> values);
+
+    /**
+     * Writes a sample.
+     *
+     * @param writer The writer.
+     * @param suffix The suffix of the name of the sample.
+     * @param extraLabel A label of the sample besides the ones of the metric, or empty.
+     * @param value The value.
+     * @throws IOException If the sample can't be written.
+     */
+    void writeSample(Writer writer, String suffix, String extraLabel, String value)
+        throws IOException {
+      writer.write(name);
+      writer.write(suffix);
+      String all = labels;
+      if (!extraLabel.isEmpty()) {
+        all = all.isEmpty() ? extraLabel : all + "," + extraLabel;
+      }
+      if (!all.isEmpty()) {
+        writer.write("{" + all + "}");
+      }
+      writer.write(" " + value + "\n");
+    }
+
+    String getKey() {
+      return labels.isEmpty() ? name : name + "{" + labels + "}";
+    }
+  }
+
+  /**
+   * A count that only goes up. Every thread adds to one of several stripes, each one in a cache
+   * line of its own, so the threads counting the same rows don't contend on a single value, and
+   * the stripes are only summed when the count is read.
+   */
+  public static final class Counter extends Metric {
+    private static final int stripes = 16;
+    // 8 longs of 8 bytes, a cache line of 64 bytes per stripe.
+    private static final int padding = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(stripes * padding);
+
+    Counter(String name, String labels, String help) {
+      super(name, labels, help);
+    }
+
+    /**
+     * Adds one to the count.
+     */
+    public void inc() {
+      add(1);
+    }
+
+    /**
+     * Adds to the count.
+     *
+     * @param n What to add, which must not be negative.
+     */
+    public void add(long n) {
+      cells.getAndAdd((int) (Thread.currentThread().getId() & (stripes - 1)) * padding, n);
+    }
+
+    /**
+     * Gets the count.
+     *
+     * @return The sum of all the stripes.
+     */
+    public long get() {
+      long sum = 0;
+      for (int i = 0; i < stripes; i++) {
+        sum += cells.get(i * padding);
+      }
+      return sum;
+    }
+
+    @Override
+    String getType() {
+      return "counter";
+    }
+
+    @Override
+    void write(Writer writer) throws IOException {
+      writeSample(writer, "", "", Long.toString(get()));
+    }
+
+    @Override
+    void getValues(Map<String, Number> values) {
+      values.put(getKey(), get());
+    }
+  }
+
+  /**
+   * A value that goes up and down, such as the memory of a window.
+   */
+  public static final class Gauge extends Metric {
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge(String name, String labels, String help) {
+      super(name, labels, help);
+    }
+
+    public void set(long value) {
+      this.value.set(value);
+    }
+
+    public long get() {
+      return value.get();
+    }
+
+    @Override
+    String getType() {
+      return "gauge";
+    }
+
+    @Override
+    void write(Writer writer) throws IOException {
+      writeSample(writer, "", "", Long.toString(get()));
+    }
+
+    @Override
+    void getValues(Map<String, Number> values) {
+      values.put(getKey(), get());
+    }
+  }
+
+  /**
+   * Counts the values observed in buckets, and keeps their sum. A timer is a histogram of
+   * seconds.
+   */
+  public static final class Histogram extends Metric {
+    private final double[] bounds;
+    // The values up to every bound, and the ones over the last bound at the end.
+    private final AtomicLongArray buckets;
+    private final AtomicLong sumBits = new AtomicLong(Double.doubleToLongBits(0));
+
+    Histogram(String name, String labels, String help, double[] bounds) {
+      super(name, labels, help);
+      this.bounds = bounds.clone();
+      this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * Observes a value.
+     *
+     * @param value The value.
+     */
+    public void observe(double value) {
+      int bucket = 0;
+      while (bucket < bounds.length && value > bounds[bucket]) {
+        bucket++;
+      }
+      buckets.incrementAndGet(bucket);
+      while (true) {
+        long bits = sumBits.get();
+        long updated = Double.doubleToLongBits(Double.longBitsToDouble(bits) + value);
+        if (sumBits.compareAndSet(bits, updated)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Observes the seconds elapsed since a time.
+     *
+     * @param startNanos The time, from System.nanoTime().
+     */
+    public void observeSince(long startNanos) {
+      observe((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Gets the number of values observed.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        count += buckets.get(i);
+      }
+      return count;
+    }
+
+    /**
+     * Gets the sum of the values observed.
+     *
+     * @return The sum.
+     */
+    public double getSum() {
+      return Double.longBitsToDouble(sumBits.get());
+    }
+
+    @Override
+    String getType() {
+      return "histogram";
+    }
+
+    @Override
+    void write(Writer writer) throws IOException {
+      // The buckets of Prometheus are cumulative.
+      long cumulative = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+        cumulative += buckets.get(i);
+        String bound = i < bounds.length ? Double.toString(bounds[i]) : "+Inf";
+        writeSample(writer, "_bucket", "le=\"" + bound + "\"", Long.toString(cumulative));
+      }
+      writeSample(writer, "_sum", "", Double.toString(getSum()));
+      writeSample(writer, "_count", "", Long.toString(cumulative));
+    }
+
+    @Override
+    void getValues(Map<String, Number> values) {
+      values.put(getKey() + ".count", getCount());
+      values.put(getKey() + ".sum", getSum());
+    }
+  }
+
+  /**
+   * The bean that exposes the values of the metrics as read-only attributes.
+   */
+  private class MetricsBean implements DynamicMBean {
+
+    /**
+     * Gets the values of all the metrics.
+     *
+     * @return The values, by the name of their attribute.
+     */
+    private Map<String, Number> getValues() {
+      Map<String, Number> values = new ConcurrentSkipListMap<>();
+      for (Metric metric : metrics.values()) {
+        metric.getValues(values);
+      }
+      return values;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Number value = getValues().get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException("There is no metric " + attribute + ".");
+      }
+      return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Number> values = getValues();
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        if (values.containsKey(attribute)) {
+          list.add(new Attribute(attribute, values.get(attribute)));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+      throw new UnsupportedOperationException("The metrics are read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException("The metrics have no operations.");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attributes = new ArrayList<>();
+      for (Map.Entry<String, Number> value : getValues().entrySet()) {
+        attributes.add(
+            new MBeanAttributeInfo(
+                value.getKey(),
+                value.getValue().getClass().getName(),
+                value.getKey(),
+                true,
+                false,
+                false));
+      }
+      return new MBeanInfo(
+          Metrics.class.getName(),
+          "The metrics of the analyzer.",
+          attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+          null,
+          null,
+          null);
+    }
+  }
+
+  // Sorted by key, so the metrics of a name are together.
+  private final ConcurrentMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+  /**
+   * Gets the registry of the whole program.
+   *
+   * @return The registry.
+   */
+  public static Metrics getDefault() {
+    return defaultMetrics;
+  }
+
+  /**
+   * Gets a counter, creating it the first time.
+   *
+   * @param name The name of the counter, i.e.: ana_aws_retries_total.
+   * @param help What it counts.
+   * @param labels The names and the values of its labels, one after the other.
+   * @return The counter.
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter) register(new Counter(name, formatLabels(name, labels), help));
+  }
+
+  /**
+   * Gets a gauge, creating it the first time.
+   *
+   * @param name The name of the gauge.
+   * @param help What it measures.
+   * @param labels The names and the values of its labels, one after the other.
+   * @return The gauge.
+   */
+  public Gauge gauge(String name, String help, String... labels) {
+    return (Gauge) register(new Gauge(name, formatLabels(name, labels), help));
+  }
+
+  /**
+   * Gets a histogram, creating it the first time.
+   *
+   * @param name The name of the histogram.
+   * @param help What it measures.
+   * @param bounds The upper bounds of its buckets, in ascending order.
+   * @param labels The names and the values of its labels, one after the other.
+   * @return The histogram.
+   */
+  public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+    for (int i = 1; i < bounds.length; i++) {
+      if (bounds[i] <= bounds[i - 1]) {
+        throw new IllegalArgumentException("The bounds of " + name + " must be ascending.");
+      }
+    }
+    return (Histogram) register(new Histogram(name, formatLabels(name, labels), help, bounds));
+  }
+
+  /**
+   * Gets a timer, a histogram of seconds from 1ms to 1m, creating it the first time.
+   *
+   * @param name The name of the timer, i.e.: ana_aws_call_seconds.
+   * @param help What it times.
+   * @param labels The names and the values of its labels, one after the other.
+   * @return The timer.
+   */
+  public Histogram timer(String name, String help, String... labels) {
+    return histogram(name, help, secondsBuckets, labels);
+  }
+
+  /**
+   * Adds a metric, or gets the one with the same name and labels.
+   *
+   * @param metric The metric.
+   * @return The metric of the registry.
+   */
+  private Metric register(Metric metric) {
+    Metric existing = metrics.putIfAbsent(metric.getKey(), metric);
+    if (existing == null) {
+      return metric;
+    }
+    if (!existing.getClass().equals(metric.getClass())) {
+      throw new IllegalArgumentException(
+          metric.getKey() + " is already a " + existing.getType() + ".");
+    }
+    return existing;
+  }
+
+  /**
+   * Checks a name and formats its labels as Prometheus does.
+   *
+   * @param name The name.
+   * @param labels The names and the values of the labels, one after the other.
+   * @return The labels, i.e.: service="s3",operation="GetObject".
+   */
+  private static String formatLabels(String name, String... labels) {
+    if (!namePattern.matcher(name).matches()) {
+      throw new IllegalArgumentException(name + " is not a valid name for a metric.");
+    }
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Every label of " + name + " needs a value.");
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (!namePattern.matcher(labels[i]).matches()) {
+        throw new IllegalArgumentException(labels[i] + " is not a valid name for a label.");
+      }
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(labels[i]).append("=\"");
+      sb.append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+      sb.append('"');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes all the metrics in the text format of Prometheus.
+   *
+   * @param writer The writer.
+   * @throws IOException If the metrics can't be written.
+   */
+  public void writePrometheus(Writer writer) throws IOException {
+    String family = null;
+    for (Metric metric : metrics.values()) {
+      if (!metric.getName().equals(family)) {
+        family = metric.getName();
+        writer.write("# HELP " + family + " " + metric.help.replace("\n", " ") + "\n");
+        writer.write("# TYPE " + family + " " + metric.getType() + "\n");
+      }
+      metric.write(writer);
+    }
+  }
+
+  /**
+   * Writes all the metrics to a file in the text format of Prometheus. The file is replaced at
+   * once, so a collector never reads it half written.
+   *
+   * @param file The file.
+   * @throws IOException If the file can't be written.
+   */
+  public void writePrometheus(File file) throws IOException {
+    File temporary = new File(file.getPath() + ".tmp");
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8))) {
+      writePrometheus(writer);
+    }
+    Files.move(
+        temporary.toPath(),
+        file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Writes the metrics to a file every some seconds in the background, and once more when the
+   * program ends.
+   *
+   * @param file The file.
+   * @param periodSeconds The seconds between two writes.
+   */
+  public void exportTo(final File file, long periodSeconds) {
+    Runnable export =
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              writePrometheus(file);
+            } catch (IOException e) {
+              IOHelper.println("The metrics could not be written to " + file + ": " + e);
+            }
+          }
+        };
+    ScheduledExecutorService exporter =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable r) {
+                // A daemon thread, so the export never keeps the program alive.
+                Thread thread = new Thread(r, "metrics-export");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    exporter.scheduleAtFixedRate(export, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(export, "metrics-export-final"));
+  }
+
+  /**
+   * Registers the metrics as the attributes of a bean.
+   *
+   * @param server The server of the bean.
+   * @param name The name of the bean.
+   * @throws JMException If the bean can't be registered.
+   */
+  public void registerMBean(MBeanServer server, ObjectName name) throws JMException {
+    server.registerMBean(new MetricsBean(), name);
+  }
+
+  /**
+   * Registers the metrics as the attributes of the ana:type=Metrics bean of the platform, which
+   * jconsole and the JMX agents show.
+   *
+   * @throws JMException If the bean can't be registered.
+   */
+  public void registerMBean() throws JMException {
+    registerMBean(ManagementFactory.getPlatformMBeanServer(), new ObjectName("ana:type=Metrics"));
+  }
+}
@@ -0,0 +1,398 @@
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes the steps of an analysis before launching them: the script and parameters of every
+ * step, the steps it depends on, the bytes it reads and how long it may take. The estimations come
+ * from the size of the ngrams of every language, spread evenly over their years, and from the
+ * throughput of the usual instance types, so they are only meant to catch the analyses that are
+ * far too big or impossible.
+ *
+ * @author julidipiti
+ */
+public class PlanEstimator {
+
+  // The most steps that EMR accepts in a cluster.
+  public static final int maxSteps = 256;
+  // 16Mb = 16777216B, what every slave reads per second in a scan.
+  private static final long bytesPerSecondPerSlave = 16777216L;
+  // What Hive needs to start a job, compile the script and commit the output.
+  private static final int secondsPerStep = 30;
+  // What a task group needs to be resized, which its step waits for: new instances take minutes
+  // to boot and join the cluster.
+  private static final int secondsPerResize = 300;
+  // What a cluster needs to start and bootstrap.
+  private static final int secondsToStart = 600;
+
+  private final Map<String, Long> tableBytes;
+  private final int coreInstances;
+  private final int taskInstances;
+  private final int samplePercent;
+
+  /**
+   * Creates an estimator for the cluster of an analysis.
+   *
+   * @param tableBytes The size of the ngrams of every language, by the name of its table.
+   * @param clusterSize The number of instances, counting the master.
+   * @param taskInstances The task instances of the cluster, 0 if it has none.
+   */
+  public PlanEstimator(Map<String, Long> tableBytes, int clusterSize, int taskInstances) {
+    this(tableBytes, clusterSize, taskInstances, 100);
+  }
+
+  /**
+   * Creates an estimator for the cluster of a preview, which imports only a sample of the grams.
+   * Every step but the import reads only that sample.
+   *
+   * @param tableBytes The size of the ngrams of every language, by the name of its table.
+   * @param clusterSize The number of instances, counting the master.
+   * @param taskInstances The task instances of the cluster, 0 if it has none.
+   * @param samplePercent The percent of the grams that are imported, 100 if all of them.
+   */
+  public PlanEstimator(
+      Map<String, Long> tableBytes, int clusterSize, int taskInstances, int samplePercent) {
+    this.tableBytes = tableBytes;
+    this.samplePercent = samplePercent;
+    // A cluster of 1 runs everything on the master.
+    this.coreInstances = Math.max(1, clusterSize - 1 - taskInstances);
+    this.taskInstances = taskInstances;
+  }
+
+  /**
+   * Describes all the steps of an analysis, one per line with its parameters below, followed by
+   * the totals.
+   *
+   * @param steps The steps of the analysis, in order.
+   * @return The description.
+   */
+  public String describe(List<StepConfig> steps) {
+    StringBuilder sb = new StringBuilder();
+    // The last step that wrote every table, and the years of the window of every table.
+    Map<String, String> writers = new HashMap<>();
+    Map<String, Integer> windowYears = new HashMap<>();
+    int slaves = coreInstances + taskInstances;
+    long totalBytes = 0;
+    long totalSeconds = secondsToStart;
+    // What the same steps would take with all the grams.
+    long fullSeconds = secondsToStart;
+
+    for (StepConfig step : steps) {
+      String script = getScript(step);
+      Map<String, String> parameters = getParameters(step);
+      List<String> dependencies = new ArrayList<>();
+      long bytes = 0;
+      long seconds;
+
+      if (script.equals("ResizeTaskGroup.sh")) {
+        slaves = coreInstances + Integer.parseInt(getArgs(step).get(1));
+        seconds = secondsPerResize;
+        fullSeconds += seconds;
+      } else {
+        bytes = getInputBytes(script, parameters, windowYears);
+        for (String table : getReadTables(script, parameters)) {
+          if (writers.containsKey(table) && !dependencies.contains(writers.get(table))) {
+            dependencies.add(writers.get(table));
+          }
+        }
+        for (String table : getWrittenTables(script, parameters)) {
+          writers.put(table, step.getName());
+        }
+        seconds = getSeconds(bytes, slaves);
+        if (script.equals("ImportNgrams.q")) {
+          fullSeconds += seconds;
+        } else {
+          fullSeconds += secondsPerStep + (seconds - secondsPerStep) * 100 / samplePercent;
+        }
+      }
+      totalBytes += bytes;
+      totalSeconds += seconds;
+
+      sb.append(step.getName())
+          .append(' ')
+          .append(script)
+          .append(", after: ")
+          .append(dependencies.isEmpty() ? "-" : join(dependencies))
+          .append(", input: ")
+          .append(bytes / 1048576)
+          .append("Mb, time: ")
+          .append(seconds / 60)
+          .append("m")
+          .append(String.format("%02d", seconds % 60))
+          .append("s\n");
+      for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+        sb.append("    ")
+            .append(parameter.getKey())
+            .append('=')
+            .append(parameter.getValue())
+            .append('\n');
+      }
+    }
+
+    sb.append("Steps: ").append(steps.size()).append(" of ").append(maxSteps);
+    if (steps.size() > maxSteps) {
+      sb.append(", TOO MANY STEPS, EMR will not accept this analysis");
+    }
+    sb.append('\n')
+        .append("Input read: ")
+        .append(totalBytes / 1048576)
+        .append("Mb\n")
+        .append("Estimated time: ")
+        .append(totalSeconds / 60)
+        .append(" minutes, ")
+        .append(secondsToStart / 60)
+        .append(" of them to start the cluster\n");
+    if (samplePercent < 100) {
+      sb.append("Sample: ")
+          .append(samplePercent)
+          .append("% of the grams, the full analysis would take ")
+          .append(fullSeconds / 60)
+          .append(" minutes\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Estimates the bytes that a script reads. The size of a year is the size of the language over
+   * all the years of the ngrams, and the tables of the window are as big as the years in them. The
+   * import reads all the ngrams, even if it keeps only a sample, and the statistics read every
+   * year of the dictionary.
+   *
+   * @param script The name of the script.
+   * @param parameters The parameters of the script.
+   * @param windowYears The years of the window of every table so far, updated by the script.
+   * @return The estimated bytes.
+   */
+  long getInputBytes(
+      String script, Map<String, String> parameters, Map<String, Integer> windowYears) {
+    String table = parameters.get("ngramsTable");
+    switch (script) {
+      case "ImportNgrams.q":
+        return getTableBytes(table);
+      case "ComputeStats.q":
+        // Every partition of the dictionary.
+        return getYearBytes(table) * getWindowYears(windowYears, table);
+      case "CreateWindow.q":
+        // The whole range is read, but it is written as a single year.
+        windowYears.put(table, 1);
+        return getYearBytes(table)
+            * (Integer.parseInt(parameters.get("toYear"))
+                - Integer.parseInt(parameters.get("fromYear")));
+      case "ShiftWindow.q":
+        windowYears.put(table, getWindowYears(windowYears, table) + 1);
+        return getShiftBytes(getTableBytes(table), samplePercent);
+      case "ProcessNeologisms.q":
+        // The year and the previous one.
+        return getYearBytes(table) * 2;
+      case "ExportForeignisms.q":
+        String table1 = parameters.get("ngramsTable1");
+        String table2 = parameters.get("ngramsTable2");
+        return getYearBytes(table1) * getWindowYears(windowYears, table1)
+            + getYearBytes(table2) * getWindowYears(windowYears, table2);
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Gets the tables that a script reads.
+   *
+   * @param script The name of the script.
+   * @param parameters The parameters of the script.
+   * @return The names of the tables.
+   */
+  static List<String> getReadTables(String script, Map<String, String> parameters) {
+    List<String> tables = new ArrayList<>();
+    String table = parameters.get("ngramsTable");
+    switch (script) {
+      case "ComputeStats.q":
+        tables.add(parameters.get("table") + "_" + table);
+        break;
+      case "CreateWindow.q":
+        tables.add("normalized_" + table);
+        break;
+      case "ShiftWindow.q":
+        tables.add("pre_dictionary_" + table);
+        tables.add("normalized_" + table);
+        break;
+      case "ProcessNeologisms.q":
+        tables.add("dictionary_" + table);
+        break;
+      case "ExportForeignisms.q":
+        tables.add("dictionary_" + parameters.get("ngramsTable1"));
+        tables.add("dictionary_" + parameters.get("ngramsTable2"));
+        break;
+      default:
+        break;
+    }
+    return tables;
+  }
+
+  /**
+   * Gets the tables that a script writes.
+   *
+   * @param script The name of the script.
+   * @param parameters The parameters of the script.
+   * @return The names of the tables.
+   */
+  static List<String> getWrittenTables(String script, Map<String, String> parameters) {
+    List<String> tables = new ArrayList<>();
+    String table = parameters.get("ngramsTable");
+    switch (script) {
+      case "ImportNgrams.q":
+        tables.add("normalized_" + table);
+        break;
+      case "CreateWindow.q":
+      case "ShiftWindow.q":
+        tables.add("pre_dictionary_" + table);
+        tables.add("dictionary_" + table);
+        break;
+      case "ProcessNeologisms.q":
+        tables.add("neologisms_" + table);
+        break;
+      case "ExportForeignisms.q":
+        tables.add(
+            "foreignisms_" + parameters.get("ngramsTable1") + "_" + parameters.get("ngramsTable2"));
+        break;
+      default:
+        break;
+    }
+    return tables;
+  }
+
+  /**
+   * Estimates how long a step takes.
+   *
+   * @param bytes The bytes that the step reads.
+   * @param slaves The instances that read them.
+   * @return The estimated seconds.
+   */
+  static long getSeconds(long bytes, int slaves) {
+    return secondsPerStep + bytes / (bytesPerSecondPerSlave * Math.max(1, slaves));
+  }
+
+  /**
+   * Gets the name of the script that a step runs.
+   *
+   * @param step The step.
+   * @return The name of the file of the script, without its path.
+   */
+  static String getScript(StepConfig step) {
+    List<String> args = getArgs(step);
+    String path = args.get(0);
+    int index = args.indexOf("-f");
+    if (index >= 0) {
+      path = args.get(index + 1);
+    }
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Gets the parameters that a step passes to its hive script with the "-d" option.
+   *
+   * @param step The step.
+   * @return The value of every parameter by its name, in order.
+   */
+  static Map<String, String> getParameters(StepConfig step) {
+    Map<String, String> parameters = new LinkedHashMap<>();
+    List<String> args = getArgs(step);
+    for (int i = 0; i < args.size() - 1; i++) {
+      if (args.get(i).equals("-d")) {
+        String parameter = args.get(i + 1);
+        int index = parameter.indexOf('=');
+        parameters.put(parameter.substring(0, index), parameter.substring(index + 1));
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Gets the arguments of the jar of a step.
+   *
+   * @param step The step.
+   * @return The arguments.
+   */
+  private static List<String> getArgs(StepConfig step) {
+    return step.getHadoopJarStep().getArgs();
+  }
+
+  /**
+   * Gets the bytes of one year of a language, once it is imported.
+   *
+   * @param table The name of the table of the language.
+   * @return The bytes of the sample of the year.
+   */
+  private long getYearBytes(String table) {
+    return getYearBytes(getTableBytes(table), samplePercent);
+  }
+
+  /**
+   * Estimates the bytes of one year of some ngrams, once they are imported.
+   *
+   * @param tableBytes The bytes of all the ngrams of the language.
+   * @param samplePercent The percent of the grams that are imported.
+   * @return The bytes of the sample of the year.
+   */
+  static long getYearBytes(long tableBytes, int samplePercent) {
+    return tableBytes
+        * samplePercent
+        / 100
+        / (ClusterPlanner.lastYear - ClusterPlanner.firstYear + 1);
+  }
+
+  /**
+   * Estimates the bytes that a shift of the window reads: the last year of the window, the year to
+   * add and the year to subtract.
+   *
+   * @param tableBytes The bytes of all the ngrams of the language.
+   * @param samplePercent The percent of the grams that are imported.
+   * @return The bytes read by the shift.
+   */
+  static long getShiftBytes(long tableBytes, int samplePercent) {
+    return getYearBytes(tableBytes, samplePercent) * 3;
+  }
+
+  /**
+   * Gets the bytes of all the ngrams of a language.
+   *
+   * @param table The name of the table of the language.
+   * @return The bytes, 0 if unknown.
+   */
+  private long getTableBytes(String table) {
+    Long bytes = tableBytes.get(table);
+    return bytes == null ? 0 : bytes;
+  }
+
+  /**
+   * Gets the years in the window of a language.
+   *
+   * @param windowYears The years of the window of every table.
+   * @param table The name of the table of the language.
+   * @return The years, 0 if there is no window yet.
+   */
+  private static int getWindowYears(Map<String, Integer> windowYears, String table) {
+    Integer years = windowYears.get(table);
+    return years == null ? 0 : years;
+  }
+
+  /**
+   * Joins some names with commas.
+   *
+   * @param names The names to join.
+   * @return The names separated by commas.
+   */
+  private static String join(List<String> names) {
+    StringBuilder sb = new StringBuilder();
+    for (String name : names) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(name);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,165 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Merges the part files of an output of an analysis into one local file. Hive writes every
+ * partition of the dictionaries, the neologisms and the foreignisms sorted by occurrences, so a
+ * k-way merge keeps the order while it reads every part once, as a stream, without sorting again.
+ *
+ * @author julidipiti
+ */
+public class ResultMerger {
+
+  /**
+   * The next row of a part file while it is merged.
+   */
+  private static class Cursor {
+    private final BufferedReader reader;
+    private final String year;
+    private final int index;
+    private String row;
+    private long occurrences;
+
+    Cursor(BufferedReader reader, String year, int index) {
+      this.reader = reader;
+      this.year = year;
+      this.index = index;
+    }
+
+    /**
+     * Moves to the next row of the part.
+     *
+     * @return False if there are no more rows.
+     * @throws IOException If the part can't be read, or a row has no occurrences.
+     */
+    boolean advance() throws IOException {
+      row = reader.readLine();
+      if (row == null) {
+        return false;
+      }
+      // The occurrences are the second column of every output.
+      String[] fields = row.split("\t", 3);
+      try {
+        occurrences = Long.parseLong(fields[1]);
+      } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+        throw new IOException("A row has no occurrences: " + row, e);
+      }
+      return true;
+    }
+  }
+
+  // The years go up, the occurrences of a year go down, and the ties keep the order of the parts.
+  private static final Comparator<Cursor> order =
+      new Comparator<Cursor>() {
+        @Override
+        public int compare(Cursor a, Cursor b) {
+          if (a.year != null && b.year != null) {
+            int years = Integer.compare(Integer.parseInt(a.year), Integer.parseInt(b.year));
+            if (years != 0) {
+              return years;
+            }
+          }
+          int occurrences = Long.compare(b.occurrences, a.occurrences);
+          return occurrences != 0 ? occurrences : Integer.compare(a.index, b.index);
+        }
+      };
+
+  private ResultMerger() {}
+
+  /**
+   * Merges the part files of an output into one file, with the year of the partition as the first
+   * column of every row of a partitioned output.
+   *
+   * @param parts The part files, each one sorted by occurrences, the second column of its rows.
+   * @param years The year of the partition of every part, or null if the output is not
+   *     partitioned.
+   * @param output The file to write.
+   * @return The number of rows written.
+   * @throws IOException If a part can't be read or decompressed, or the output can't be written.
+   */
+  public static long merge(List<File> parts, List<String> years, File output)
+      throws IOException {
+    if (parts.size() != years.size()) {
+      throw new IllegalArgumentException("There must be a year for every part.");
+    }
+    List<Cursor> cursors = new ArrayList<>();
+    PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, parts.size()), order);
+    long rows = 0;
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8))) {
+      for (int i = 0; i < parts.size(); i++) {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(open(parts.get(i)), StandardCharsets.UTF_8));
+        Cursor cursor = new Cursor(reader, years.get(i), i);
+        cursors.add(cursor);
+        if (cursor.advance()) {
+          heap.add(cursor);
+        }
+      }
+      while (!heap.isEmpty()) {
+        Cursor cursor = heap.poll();
+        if (cursor.year != null) {
+          writer.write(cursor.year);
+          writer.write('\t');
+        }
+        writer.write(cursor.row);
+        writer.write('\n');
+        rows++;
+        if (cursor.advance()) {
+          heap.add(cursor);
+        }
+      }
+    } finally {
+      for (Cursor cursor : cursors) {
+        cursor.reader.close();
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Opens a part file, decompressing it as a stream if Hive compressed it, as the extension of its
+   * name tells.
+   *
+   * @param part The part file.
+   * @return The stream of its rows.
+   * @throws IOException If the file can't be opened, or it was compressed with a codec that needs
+   *     the native libraries of Hadoop.
+   */
+  static InputStream open(File part) throws IOException {
+    String name = part.getName();
+    if (name.endsWith(".snappy") || name.endsWith(".lz4") || name.endsWith(".bz2")) {
+      throw new IOException(
+          name + " can only be decompressed with Hadoop, use GZIP as the codec of the output.");
+    }
+    InputStream in = new FileInputStream(part);
+    try {
+      if (name.endsWith(".gz")) {
+        return new GZIPInputStream(in, 65536);
+      }
+      if (name.endsWith(".deflate")) {
+        return new InflaterInputStream(in);
+      }
+      return in;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+}
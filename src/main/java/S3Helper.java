@@ -1,20 +1,42 @@
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.regions.Region;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
+import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.Md5Utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Helper to interact with S3 on AWS.
@@ -23,40 +45,126 @@ import java.util.List;
  */
 public class S3Helper {
 
-  private static AmazonS3 s3;
   private static final String emrBucket = "datasets.elasticmapreduce";
   private static final String ngramsPath = "ngrams/books/20090715/";
+  // The scripts in the resources of the project, which run in the cluster.
+  private static final String[] scripts = {
+    "/hiveScripts/ImportNgrams.q",
+    "/hiveScripts/CreateWindow.q",
+    "/hiveScripts/ShiftWindow.q",
+    "/hiveScripts/ExportForeignisms.q",
+    "/hiveScripts/ProcessNeologisms.q",
+    "/hiveScripts/ComputeStats.q",
+    "/emrScripts/ResizeTaskGroup.sh"
+  };
+  // 8Mb = 8388608B, the bytes of a part file fetched by every ranged request.
+  private static final long rangeBytes = 8388608L;
+  // User metadata with the MD5 of the content, to skip the uploads of objects that did not change.
+  private static final String contentHashKey = "content-md5";
+  private static final String languagesCacheKey = "languages";
+  private static final String sizeCacheKeyPrefix = "size.";
+
+  private final AmazonS3 s3;
+  private final CatalogCache cache;
+  private final AwsCallPool pool;
+  private final ExecutorService prefetcher =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              // A daemon thread, so a pending prefetch never keeps the program alive.
+              Thread thread = new Thread(r, "catalog-prefetch");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+  private Future<List<String>> languages;
 
   public S3Helper(AWSCredentials credentials, Region region) {
-    s3 = new AmazonS3Client(credentials);
-    s3.setRegion(region);
+    this(credentials, region, new CatalogCache());
+  }
+
+  /**
+   * Creates a helper that caches the metadata of the catalog in a specific cache.
+   *
+   * @param credentials The credentials to access AWS.
+   * @param region The region of the client.
+   * @param cache The cache for the metadata of the catalog.
+   */
+  public S3Helper(AWSCredentials credentials, Region region, CatalogCache cache) {
+    // The latency, retries and errors of every call are collected in the metrics. The throttled
+    // calls are retried by the pool instead of the client.
+    this.s3 =
+        new AmazonS3Client(
+            new StaticCredentialsProvider(credentials),
+            AwsCallPool.getClientConfiguration(),
+            new AwsCallMetrics(Metrics.getDefault(), "s3"));
+    this.s3.setRegion(region);
+    this.cache = cache;
+    this.pool = AwsCallPool.getDefault();
   }
 
   /**
-   * Creates a bucket in S3.
+   * Creates a helper over a specific client, such as a stand-in for S3 in the tests.
+   *
+   * @param client The client of S3.
+   * @param cache The cache for the metadata of the catalog.
+   */
+  S3Helper(AmazonS3 client, CatalogCache cache) {
+    this(client, cache, AwsCallPool.getDefault());
+  }
+
+  /**
+   * Creates a helper over a specific client that makes its calls through a specific pool.
+   *
+   * @param client The client of S3.
+   * @param cache The cache for the metadata of the catalog.
+   * @param pool The pool for the calls to S3.
+   */
+  S3Helper(AmazonS3 client, CatalogCache cache, AwsCallPool pool) {
+    this.s3 = client;
+    this.cache = cache;
+    this.pool = pool;
+  }
+
+  /**
+   * Sends the calls to another endpoint than the one of the region, such as a local stand-in for
+   * S3. The buckets go in the path of the requests, as the stand-ins do not resolve them as hosts.
+   *
+   * @param endpoint The URL of the endpoint, i.e.: http://localhost:9000.
+   * @return The helper.
+   */
+  public S3Helper withEndpoint(String endpoint) {
+    s3.setEndpoint(endpoint);
+    s3.setS3ClientOptions(new S3ClientOptions().withPathStyleAccess(true));
+    return this;
+  }
+
+  /**
+   * Creates a bucket in S3, or does nothing if it already is one of the account.
    *
    * @param bucketName The name of the bucket, which must be unique.
+   * @throws AmazonClientException If the bucket can't be created, even after retrying the calls
+   *     that were throttled.
    */
-  void createBucket(String bucketName) {
+  void createBucket(final String bucketName) {
+    IOHelper.println();
+    IOHelper.println("Creating a bucket with name: " + bucketName);
     try {
-      IOHelper.println();
-      IOHelper.println("Creating a bucket with name: " + bucketName);
-      s3.createBucket(bucketName);
+      pool.call(
+          "s3.CreateBucket",
+          new Callable<Bucket>() {
+            @Override
+            public Bucket call() {
+              return s3.createBucket(bucketName);
+            }
+          });
     } catch (AmazonServiceException ase) {
-      IOHelper.println(
-          "Caught an AmazonServiceException, which means your request made it to Amazon S3, but was"
-              + " rejected with an error response for some reason.");
-      IOHelper.println("Error Message:    " + ase.getMessage());
-      IOHelper.println("HTTP Status Code: " + ase.getStatusCode());
-      IOHelper.println("AWS Error Code:   " + ase.getErrorCode());
-      IOHelper.println("Error Type:       " + ase.getErrorType());
-      IOHelper.println("Request ID:       " + ase.getRequestId());
-    } catch (AmazonClientException ace) {
-      IOHelper.println(
-          "Caught an AmazonClientException, which means the client encountered a serious internal "
-          + "problem while trying to communicate with S3, such as not being able to access the "
-          + "network.");
-      IOHelper.println("Error Message: " + ace.getMessage());
+      // The regions other than US Standard refuse to create a bucket that the account has.
+      if (!"BucketAlreadyOwnedByYou".equals(ase.getErrorCode())) {
+        printAmazonServiceException(ase);
+        throw ase;
+      }
     }
   }
 
@@ -66,93 +174,533 @@ public class S3Helper {
    * @param bucketName The existing bucket where to insert the file.
    * @param relativePath The path within the bucket to insert the new object.
    * @param file The file to insert in S3, which is going to be an object in the file system of S3.
+   * @throws AmazonClientException If the object can't be inserted, even after retrying the calls
+   *     that were throttled.
    */
   void putObject(String bucketName, String relativePath, File file) {
+    IOHelper.println();
+    IOHelper.println("Uploading file " + file.getName() + " ...");
+    IOHelper.println("Path on S3: s3://" + bucketName + "/" + relativePath);
+    try {
+      pool.call("s3.PutObject", putObjectCall(bucketName, relativePath, file));
+    } catch (AmazonServiceException ase) {
+      printAmazonServiceException(ase);
+      throw ase;
+    }
+  }
+
+  /**
+   * Starts inserting an object on the specified bucket, in S3, so many objects can be inserted at
+   * once within the rate limit of S3.
+   *
+   * @param bucketName The existing bucket where to insert the file.
+   * @param relativePath The path within the bucket to insert the new object.
+   * @param file The file to insert in S3.
+   * @return The result of the insertion, once it is done.
+   * @throws InterruptedException If the thread is interrupted while the pool of calls is full.
+   */
+  Future<PutObjectResult> putObjectAsync(String bucketName, String relativePath, File file)
+      throws InterruptedException {
+    return pool.submit("s3.PutObject", putObjectCall(bucketName, relativePath, file));
+  }
+
+  /**
+   * Creates the call that inserts an object on a bucket.
+   *
+   * @param bucketName The existing bucket where to insert the file.
+   * @param relativePath The path within the bucket to insert the new object.
+   * @param file The file to insert in S3.
+   * @return The call.
+   */
+  private Callable<PutObjectResult> putObjectCall(
+      final String bucketName, final String relativePath, final File file) {
+    return new Callable<PutObjectResult>() {
+      @Override
+      public PutObjectResult call() {
+        return s3.putObject(new PutObjectRequest(bucketName, relativePath + file.getName(), file));
+      }
+    };
+  }
+
+  /**
+   * Gets the hive scripts and the rest of the scripts for the cluster from the resources within
+   * the project and uploads them concurrently in S3 to be available for later use. The scripts are
+   * streamed from the classpath without temporary files, and the ones already in S3 with the same
+   * content are not uploaded again.
+   *
+   * @param bucketName The existing bucket where to upload the scripts.
+   * @param scriptsRelativePath The path within the bucket where to upload the scripts.
+   * @throws IOException If a script can not be read or the upload is interrupted.
+   * @throws AmazonClientException If a script can't be uploaded, even after retrying the calls that
+   *     were throttled.
+   */
+  void uploadHiveScripts(final String bucketName, String scriptsRelativePath) throws IOException {
     try {
-      IOHelper.println();
-      IOHelper.println("Uploading file " + file.getName() + " ...");
-      IOHelper.println("Path on S3: s3://" + bucketName + "/" + relativePath);
-      s3.putObject(new PutObjectRequest(bucketName, relativePath + file.getName(), file));
+      // Asks for the hashes of all the scripts at once, so they take a single round trip.
+      Map<String, byte[]> contents = new LinkedHashMap<>();
+      Map<String, Future<String>> hashes = new LinkedHashMap<>();
+      for (String resource : scripts) {
+        String script = resource.substring(resource.lastIndexOf('/') + 1);
+        try (InputStream in = Main.class.getResourceAsStream(resource)) {
+          contents.put(script, IOUtils.toByteArray(in));
+        }
+        hashes.put(script, getContentHash(bucketName, scriptsRelativePath + script));
+      }
+
+      List<Future<PutObjectResult>> uploads = new LinkedList<>();
+      for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+        String script = entry.getKey();
+        final byte[] content = entry.getValue();
+        byte[] md5 = Md5Utils.computeMD5Hash(content);
+        String hash = BinaryUtils.toHex(md5);
+
+        if (hash.equals(getResult(hashes.get(script)))) {
+          IOHelper.println();
+          IOHelper.println("Skipping " + script + ", it is already uploaded.");
+          continue;
+        }
+
+        IOHelper.println();
+        IOHelper.println("Uploading file " + script + " ...");
+        IOHelper.println("Path on S3: s3://" + bucketName + "/" + scriptsRelativePath);
+        final String key = scriptsRelativePath + script;
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setContentMD5(BinaryUtils.toBase64(md5));
+        metadata.addUserMetadata(contentHashKey, hash);
+        uploads.add(
+            pool.submit(
+                "s3.PutObject",
+                new Callable<PutObjectResult>() {
+                  @Override
+                  public PutObjectResult call() {
+                    // A new stream for every attempt, as a throttled one may have read it.
+                    return s3.putObject(
+                        new PutObjectRequest(
+                            bucketName, key, new ByteArrayInputStream(content), metadata));
+                  }
+                }));
+      }
+
+      for (Future<PutObjectResult> upload : uploads) {
+        getResult(upload);
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("The upload of the hive scripts was interrupted.", ie);
     } catch (AmazonServiceException ase) {
-      IOHelper.println(
-          "Caught an AmazonServiceException, which means your request made it to Amazon S3, but was"
-          + " rejected with an error response for some reason.");
-      IOHelper.println("Error Message:    " + ase.getMessage());
-      IOHelper.println("HTTP Status Code: " + ase.getStatusCode());
-      IOHelper.println("AWS Error Code:   " + ase.getErrorCode());
-      IOHelper.println("Error Type:       " + ase.getErrorType());
-      IOHelper.println("Request ID:       " + ase.getRequestId());
+      printAmazonServiceException(ase);
+      throw ase;
     } catch (AmazonClientException ace) {
-      IOHelper.println(
-          "Caught an AmazonClientException, which means the client encountered a serious internal "
-          + "problem while trying to communicate with S3, such as not being able to access the "
-          + "network.");
-      IOHelper.println("Error Message: " + ace.getMessage());
+      printAmazonClientException(ace);
+      throw ace;
+    }
+  }
+
+  /**
+   * Waits for the result of a call made through the pool.
+   *
+   * @param future The result of the call.
+   * @param <T> The type of the result.
+   * @return The result.
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   * @throws IOException If the call failed with a checked exception.
+   */
+  private static <T> T getResult(Future<T> future) throws InterruptedException, IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException ee) {
+      // The errors of the calls to S3 are thrown as they are, as if the call was not pooled.
+      if (ee.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ee.getCause();
+      }
+      throw new IOException("A call to S3 failed.", ee.getCause());
+    }
+  }
+
+  /**
+   * Downloads the results of the analyses under a path of S3 into one local file per output: the
+   * dictionaries, the neologisms and the foreignisms of every table. The part files are fetched
+   * concurrently through the pool of calls, in ranges of 8Mb, and then every output is
+   * decompressed as a stream and merged in the order of its occurrences. The manifests and the
+   * markers of Hadoop are skipped.
+   *
+   * @param outputUrl The path of the results in S3, i.e.: s3://bucket/EMR/Output/analysis/.
+   * @param directory The local directory where to write a tsv file for every output.
+   * @return The files written.
+   * @throws IOException If a part can't be downloaded or merged, or the download is interrupted.
+   */
+  public List<File> downloadResults(String outputUrl, File directory) throws IOException {
+    return downloadResults(outputUrl, directory, rangeBytes);
+  }
+
+  /**
+   * Downloads the results of the analyses under a path of S3 into one local file per output.
+   *
+   * @param outputUrl The path of the results in S3, i.e.: s3://bucket/EMR/Output/analysis/.
+   * @param directory The local directory where to write a tsv file for every output.
+   * @param rangeBytes The bytes of a part file fetched by every request.
+   * @return The files written.
+   * @throws IOException If a part can't be downloaded or merged, or the download is interrupted.
+   */
+  List<File> downloadResults(String outputUrl, File directory, long rangeBytes)
+      throws IOException {
+    if (!outputUrl.startsWith("s3://")) {
+      throw new IllegalArgumentException("The path of the results must start with s3://.");
+    }
+    String path = outputUrl.substring("s3://".length());
+    int slash = path.indexOf('/');
+    String bucketName = slash < 0 ? path : path.substring(0, slash);
+    String prefix = slash < 0 ? "" : path.substring(slash + 1);
+    if (!prefix.isEmpty() && !prefix.endsWith("/")) {
+      prefix += "/";
+    }
+
+    Map<String, List<S3ObjectSummary>> outputs = listOutputs(bucketName, prefix);
+    Map<S3ObjectSummary, File> parts = new LinkedHashMap<>();
+    List<File> files = new ArrayList<>();
+    List<Future<?>> ranges = new LinkedList<>();
+
+    try {
+      for (List<S3ObjectSummary> summaries : outputs.values()) {
+        for (S3ObjectSummary summary : summaries) {
+          // The temporary file keeps the name of the part, which tells its codec.
+          String key = summary.getKey();
+          File part =
+              File.createTempFile("part", "-" + key.substring(key.lastIndexOf('/') + 1), directory);
+          parts.put(summary, part);
+          try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+            file.setLength(summary.getSize());
+          }
+          for (long start = 0; start < summary.getSize(); start += rangeBytes) {
+            long end = Math.min(start + rangeBytes, summary.getSize()) - 1;
+            ranges.add(
+                pool.submit("s3.GetObject", downloadRange(bucketName, key, start, end, part)));
+          }
+        }
+      }
+      for (Future<?> range : ranges) {
+        range.get();
+      }
+
+      for (Map.Entry<String, List<S3ObjectSummary>> output : outputs.entrySet()) {
+        List<File> outputParts = new ArrayList<>();
+        List<String> years = new ArrayList<>();
+        for (S3ObjectSummary summary : output.getValue()) {
+          outputParts.add(parts.get(summary));
+          years.add(getYear(summary.getKey()));
+        }
+        File file = new File(directory, output.getKey() + ".tsv");
+        file.getParentFile().mkdirs();
+        long rows = ResultMerger.merge(outputParts, years, file);
+        IOHelper.println("Downloaded " + rows + " rows in " + file.getPath());
+        files.add(file);
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("The download of the results was interrupted.", ie);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ee.getCause();
+      }
+      throw new IOException("A part of the results could not be downloaded.", ee.getCause());
+    } finally {
+      // The ranges left after a failure are not downloaded.
+      for (Future<?> range : ranges) {
+        range.cancel(false);
+      }
+      for (File part : parts.values()) {
+        part.delete();
+      }
     }
+    return files;
   }
 
   /**
-   * Gets the files from the resources within the project and uploads them in S3 to be available for
-   * later use.
+   * Lists the part files of every output under a prefix, going through all the pages of the
+   * listing. The parts of the partitions of a year belong to the table above them.
+   *
+   * @param bucketName The bucket of the results.
+   * @param prefix The prefix of the results, empty or ending with a slash.
+   * @return The parts of every output, by the path of the output relative to the prefix.
    */
-  void uploadHiveScripts(String bucketName, String scriptsRelativePath) throws IOException {
+  private Map<String, List<S3ObjectSummary>> listOutputs(String bucketName, String prefix) {
+    Map<String, List<S3ObjectSummary>> outputs = new LinkedHashMap<>();
+    ObjectListing ol =
+        listObjects(new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix));
+    while (true) {
+      for (S3ObjectSummary summary : ol.getObjectSummaries()) {
+        String key = summary.getKey().substring(prefix.length());
+        // Skips the folders, the manifests and the markers such as _SUCCESS or x_$folder$.
+        if (key.endsWith("/") || key.startsWith("_") || key.contains("/_") || key.contains("$")) {
+          continue;
+        }
+        String output = key.substring(0, Math.max(0, key.lastIndexOf('/')));
+        if (getYear(key) != null) {
+          output = output.substring(0, Math.max(0, output.lastIndexOf('/')));
+        }
+        if (output.isEmpty()) {
+          // The prefix is the output itself, which is named after its last folder.
+          String parent = prefix.substring(0, Math.max(0, prefix.length() - 1));
+          output = parent.substring(parent.lastIndexOf('/') + 1);
+        }
+        if (!outputs.containsKey(output)) {
+          outputs.put(output, new ArrayList<S3ObjectSummary>());
+        }
+        outputs.get(output).add(summary);
+      }
+      if (!ol.isTruncated()) {
+        return outputs;
+      }
+      ol = listNextBatchOfObjects(ol);
+    }
+  }
 
-    File file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/ImportNgrams.q"), "ImportNgrams.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Lists the first page of objects through the pool of calls.
+   *
+   * @param request The request of the listing.
+   * @return The first page.
+   * @throws AmazonClientException If the objects can't be listed, even after retrying the calls
+   *     that were throttled.
+   */
+  private ObjectListing listObjects(final ListObjectsRequest request) {
+    return pool.call(
+        "s3.ListObjects",
+        new Callable<ObjectListing>() {
+          @Override
+          public ObjectListing call() {
+            return s3.listObjects(request);
+          }
+        });
+  }
 
-    file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/CreateWindow.q"), "CreateWindow.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Lists the next page of objects through the pool of calls.
+   *
+   * @param previous The previous page, which is truncated.
+   * @return The next page.
+   * @throws AmazonClientException If the objects can't be listed, even after retrying the calls
+   *     that were throttled.
+   */
+  private ObjectListing listNextBatchOfObjects(final ObjectListing previous) {
+    return pool.call(
+        "s3.ListObjects",
+        new Callable<ObjectListing>() {
+          @Override
+          public ObjectListing call() {
+            return s3.listNextBatchOfObjects(previous);
+          }
+        });
+  }
 
-    file =
-        streamToFile(Main.class.getResourceAsStream("/hiveScripts/ShiftWindow.q"), "ShiftWindow.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Gets the year of the partition of a part file.
+   *
+   * @param key The key of the part, i.e.: EMR/Output/spa_all/Dic/year=1950/000000_0.
+   * @return The year, or null if the part is not in the partition of a year.
+   */
+  private static String getYear(String key) {
+    String[] folders = key.split("/");
+    if (folders.length < 2 || !folders[folders.length - 2].startsWith("year=")) {
+      return null;
+    }
+    return folders[folders.length - 2].substring("year=".length());
+  }
 
-    file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/ExportDictionary.q"),
-            "ExportDictionary.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Creates a task that downloads a range of an object into its place of a local file, so the
+   * ranges of a part are written concurrently.
+   *
+   * @param bucketName The bucket of the object.
+   * @param key The key of the object.
+   * @param start The first byte of the range.
+   * @param end The last byte of the range, included.
+   * @param part The local file of the object, already of its size.
+   * @return The task.
+   */
+  private Callable<Void> downloadRange(
+      final String bucketName,
+      final String key,
+      final long start,
+      final long end,
+      final File part) {
+    return new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        S3Object object =
+            s3.getObject(new GetObjectRequest(bucketName, key).withRange(start, end));
+        try (InputStream in = object.getObjectContent();
+            RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+          file.seek(start);
+          byte[] buffer = new byte[65536];
+          long remaining = end - start + 1;
+          int read;
+          while (remaining > 0 && (read = in.read(buffer)) != -1) {
+            file.write(buffer, 0, read);
+            remaining -= read;
+          }
+          if (remaining != 0) {
+            throw new IOException(
+                "The range " + start + "-" + end + " of " + key + " was not downloaded whole.");
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  /**
+   * Starts getting the hash of the content of an object uploaded by this helper.
+   *
+   * @param bucketName The bucket of the object.
+   * @param key The key of the object.
+   * @return The MD5 of the object as hexadecimal, or null if the object does not exist or it was
+   *     not uploaded by this helper.
+   * @throws InterruptedException If the thread is interrupted while the pool of calls is full.
+   */
+  private Future<String> getContentHash(final String bucketName, final String key)
+      throws InterruptedException {
+    return pool.submit(
+        "s3.GetObjectMetadata",
+        new Callable<String>() {
+          @Override
+          public String call() {
+            try {
+              return s3.getObjectMetadata(bucketName, key).getUserMetaDataOf(contentHashKey);
+            } catch (AmazonServiceException ase) {
+              if (ase.getStatusCode() == 404) {
+                return null;
+              }
+              throw ase;
+            }
+          }
+        });
+  }
+
+  /**
+   * Prints the details of an error response from S3.
+   *
+   * @param ase The exception to print.
+   */
+  private void printAmazonServiceException(AmazonServiceException ase) {
+    IOHelper.println(
+        "Caught an AmazonServiceException, which means your request made it to Amazon S3, but was"
+        + " rejected with an error response for some reason.");
+    IOHelper.println("Error Message:    " + ase.getMessage());
+    IOHelper.println("HTTP Status Code: " + ase.getStatusCode());
+    IOHelper.println("AWS Error Code:   " + ase.getErrorCode());
+    IOHelper.println("Error Type:       " + ase.getErrorType());
+    IOHelper.println("Request ID:       " + ase.getRequestId());
+  }
 
-    file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/ExportForeignisms.q"),
-            "ExportForeignisms.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Prints the details of an error in the client while communicating with S3.
+   *
+   * @param ace The exception to print.
+   */
+  private void printAmazonClientException(AmazonClientException ace) {
+    IOHelper.println(
+        "Caught an AmazonClientException, which means the client encountered a serious internal "
+        + "problem while trying to communicate with S3, such as not being able to access the "
+        + "network.");
+    IOHelper.println("Error Message: " + ace.getMessage());
+  }
+
+  /**
+   * Starts loading the languages of the ngrams in the background, so they are ready when the user
+   * is asked for them. The languages come from the cache if it has them, or from S3 otherwise.
+   * Calling it more than once has no effect, unless the languages could not be loaded.
+   *
+   * @return The languages, once they are loaded.
+   */
+  public synchronized Future<List<String>> prefetchLanguages() {
+    if (languages == null) {
+      languages =
+          prefetcher.submit(
+              new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                  List<String> cached = cache.get(languagesCacheKey);
+                  if (cached != null) {
+                    return cached;
+                  }
+                  try {
+                    List<String> loaded = listLanguages();
+                    cache.put(languagesCacheKey, loaded);
+                    return loaded;
+                  } catch (RuntimeException e) {
+                    // Forgets the failed prefetch, so the next one lists the languages again.
+                    synchronized (S3Helper.this) {
+                      languages = null;
+                    }
+                    throw e;
+                  }
+                }
+              });
+    }
+    return languages;
+  }
 
-    file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/ProcessNeologisms.q"),
-            "ProcessNeologisms.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Starts computing the size of the 1gram shards of a language in the background. The size comes
+   * from the cache if it has it, or from listing the shards in S3 otherwise.
+   *
+   * @param language The name of the language, i.e.: eng-all.
+   * @return The size in bytes of all the shards, once it is computed.
+   */
+  public Future<Long> prefetchNgramsSize(String language) {
+    return prefetchNgramsSize(language, 1);
+  }
 
-    file =
-        streamToFile(
-            Main.class.getResourceAsStream("/hiveScripts/ExportNeologisms.q"),
-            "ExportNeologisms.q");
-    putObject(bucketName, scriptsRelativePath, file);
+  /**
+   * Starts computing the size of the shards of a language in the background. The size comes from
+   * the cache if it has it, or from listing the shards in S3 otherwise.
+   *
+   * @param language The name of the language, i.e.: eng-all.
+   * @param ngramOrder The number of words of the grams, from 1 to 5.
+   * @return The size in bytes of all the shards, once it is computed.
+   */
+  public Future<Long> prefetchNgramsSize(final String language, final int ngramOrder) {
+    return prefetcher.submit(
+        new Callable<Long>() {
+          @Override
+          public Long call() {
+            String key = sizeCacheKeyPrefix + language;
+            if (ngramOrder > 1) {
+              key += "." + ngramOrder + "gram";
+            }
+            List<String> cached = cache.get(key);
+            if (cached != null && cached.size() == 1) {
+              return Long.parseLong(cached.get(0));
+            }
+            long size = sumSizes(emrBucket, ngramsPath + language + "/" + ngramOrder + "gram/");
+            cache.put(key, Collections.singletonList(Long.toString(size)));
+            return size;
+          }
+        });
   }
 
   /**
-   * Creates a file from a stream. This method is needed because the files in the program are loaded
-   * as resources, which we get a streams. Then on execution we create temporary files to upload to
-   * S3 and then be deleted when the VM stops.
+   * Sums the size of all the objects under a prefix, going through all the pages of the listing.
    *
-   * @param in The stream with the script.
-   * @param name The name of the file to create.
-   * @return A file with the content of the stream.
-   * @throws IOException An exception that indicates some problem in the execution.
+   * @param bucketName The bucket of the objects.
+   * @param prefix The prefix of the objects.
+   * @return The size in bytes.
    */
-  private File streamToFile(InputStream in, String name) throws IOException {
-    final File tmp = new File(name);
-    tmp.deleteOnExit();
-    try (FileOutputStream out = new FileOutputStream(tmp)) {
-      IOUtils.copy(in, out);
+  long sumSizes(String bucketName, String prefix) {
+    long size = 0;
+    ObjectListing ol =
+        listObjects(new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix));
+    while (true) {
+      for (S3ObjectSummary summary : ol.getObjectSummaries()) {
+        size += summary.getSize();
+      }
+      if (!ol.isTruncated()) {
+        return size;
+      }
+      ol = listNextBatchOfObjects(ol);
     }
-    return tmp;
   }
 
   /**
@@ -162,31 +710,60 @@ public class S3Helper {
    */
   public String selectLanguageOption() {
     IOHelper.println("Loading options...");
-    ObjectListing ol =
-        s3.listObjects(
-            new ListObjectsRequest()
-                .withBucketName(emrBucket)
-                .withPrefix(ngramsPath)
-                .withDelimiter("/"));
+    List<String> languages = getLanguages();
 
     IOHelper.println("Language options:");
-
-    List<String> languagePaths = ol.getCommonPrefixes();
-    Iterator<String> it = languagePaths.iterator();
-    String[] languages = new String[languagePaths.size()];
-    for (int i = 0; i < languagePaths.size(); i++) {
-      languages[i] = getLanguageName(it.next());
-      IOHelper.println("\t" + (i + 1) + ". " + languages[i]);
+    for (int i = 0; i < languages.size(); i++) {
+      IOHelper.println("\t" + (i + 1) + ". " + languages.get(i));
     }
 
     IOHelper.println();
     IOHelper.println("Insert number option:");
     int opt = IOHelper.getInteger();
-    if (opt < 1 || opt > languages.length) {
+    if (opt < 1 || opt > languages.size()) {
       throw new IllegalArgumentException("Incorrect option.");
     }
 
-    return languages[opt - 1];
+    return languages.get(opt - 1);
+  }
+
+  /**
+   * Waits for the languages of the ngrams, starting the prefetch if it was not started yet.
+   *
+   * @return The names of the languages.
+   */
+  private List<String> getLanguages() {
+    try {
+      return prefetchLanguages().get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while loading the languages.", ie);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ee.getCause();
+      }
+      throw new AmazonClientException("The languages could not be loaded.", ee.getCause());
+    }
+  }
+
+  /**
+   * Lists the languages of the ngrams in S3.
+   *
+   * @return The names of the languages, i.e.: eng-all.
+   */
+  private List<String> listLanguages() {
+    ObjectListing ol =
+        listObjects(
+            new ListObjectsRequest()
+                .withBucketName(emrBucket)
+                .withPrefix(ngramsPath)
+                .withDelimiter("/"));
+
+    List<String> languages = new LinkedList<>();
+    for (String languagePath : ol.getCommonPrefixes()) {
+      languages.add(getLanguageName(languagePath));
+    }
+    return languages;
   }
 
   /**
@@ -0,0 +1,127 @@
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.amazonaws.util.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the steps of an analysis without running them: every step must run a script of the
+ * resources, and pass exactly the parameters that its script uses. Every hive script is written
+ * with its parameters substituted, as hive would run it, so the scripts of two versions of the
+ * analyzer can be compared. Nothing is run, so it tells nothing about how long the scripts take.
+ *
+ * @author julidipiti
+ */
+public class ScriptChecker {
+
+  private static final Pattern parameterPattern = Pattern.compile("\\$\\{([A-Za-z0-9_]+)\\}");
+
+  private final File directory;
+
+  /**
+   * Creates a checker.
+   *
+   * @param directory The directory where the substituted scripts are written.
+   */
+  public ScriptChecker(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Checks the steps of an analysis and writes the script of every hive step, i.e.:
+   * directory/Step-001-ImportNgrams.q.
+   *
+   * @param steps The steps, as StepPlanner builds them.
+   * @return A report of the script and the parameters of every step.
+   * @throws IOException If a script can't be read or written.
+   * @throws IllegalArgumentException If a step runs an unknown script, misses a parameter of its
+   *     script or passes one that its script does not use.
+   */
+  public String check(List<StepConfig> steps) throws IOException, IllegalArgumentException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Can not create " + directory);
+    }
+    StringBuilder sb = new StringBuilder();
+    for (StepConfig step : steps) {
+      String script = PlanEstimator.getScript(step);
+      Map<String, String> parameters = PlanEstimator.getParameters(step);
+      String text = getScript(step.getName(), script);
+      if (script.endsWith(".q")) {
+        File file = new File(directory, step.getName() + "-" + script);
+        try (OutputStream out = new FileOutputStream(file)) {
+          out.write(substitute(step.getName(), text, parameters).getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      sb.append(String.format("%s %s: %d parameters%n", step.getName(), script, parameters.size()));
+    }
+    sb.append(String.format("%d steps checked, their scripts are in %s", steps.size(), directory));
+    return sb.toString();
+  }
+
+  /**
+   * Reads a script of the resources, where the hive scripts and the scripts of EMR are.
+   *
+   * @param name The name of the step.
+   * @param script The name of the script.
+   * @return The text of the script.
+   * @throws IOException If the script can't be read.
+   * @throws IllegalArgumentException If there is no such script.
+   */
+  private static String getScript(String name, String script)
+      throws IOException, IllegalArgumentException {
+    String folder = script.endsWith(".q") ? "/hiveScripts/" : "/emrScripts/";
+    try (InputStream in = Main.class.getResourceAsStream(folder + script)) {
+      if (in == null) {
+        throw new IllegalArgumentException(name + " runs an unknown script: " + script);
+      }
+      return IOUtils.toString(in);
+    }
+  }
+
+  /**
+   * Substitutes the parameters of a script, as "-d name=value" does for ${name} in hive. The lines
+   * of comments are removed first, as the hive CLI does.
+   *
+   * @param name The name of the step.
+   * @param script The text of the script.
+   * @param parameters The parameters.
+   * @return The script that hive would run.
+   * @throws IllegalArgumentException If the script needs a parameter that is not given, or a
+   *     parameter is given that the script does not use.
+   */
+  static String substitute(String name, String script, Map<String, String> parameters)
+      throws IllegalArgumentException {
+    StringBuilder commands = new StringBuilder();
+    for (String line : script.split("\n")) {
+      if (!line.trim().startsWith("--")) {
+        commands.append(line).append('\n');
+      }
+    }
+    Set<String> unused = new LinkedHashSet<>(parameters.keySet());
+    StringBuffer sb = new StringBuffer();
+    Matcher matcher = parameterPattern.matcher(commands);
+    while (matcher.find()) {
+      String value = parameters.get(matcher.group(1));
+      if (value == null) {
+        throw new IllegalArgumentException(name + " does not pass ${" + matcher.group(1) + "}.");
+      }
+      unused.remove(matcher.group(1));
+      matcher.appendReplacement(sb, Matcher.quoteReplacement(value));
+    }
+    matcher.appendTail(sb);
+    if (!unused.isEmpty()) {
+      throw new IllegalArgumentException(name + " passes parameters it does not use: " + unused);
+    }
+    return sb.toString();
+  }
+}
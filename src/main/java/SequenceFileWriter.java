@@ -0,0 +1,155 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes an uncompressed Hadoop SequenceFile of LongWritable keys and Text values, the format of
+ * the Google Books Ngrams in S3, without depending on Hadoop. Every value is a row of the ngrams,
+ * with its fields separated by tabs, and every key is the number of the row.
+ *
+ * @author julidipiti
+ */
+public class SequenceFileWriter implements Closeable {
+
+  static final byte version = 6;
+  static final String keyClassName = "org.apache.hadoop.io.LongWritable";
+  static final String valueClassName = "org.apache.hadoop.io.Text";
+  // A sync marker every 2000 bytes, as Hadoop does, lets the readers split the file.
+  private static final int syncInterval = 2000;
+  private static final int syncEscape = -1;
+
+  private final DataOutputStream out;
+  private final byte[] sync = new byte[16];
+  // The size of the stream saturates at 2Gb, so the position is counted here.
+  private long position;
+  private long lastSync;
+  private long rows;
+
+  /**
+   * Creates the file and writes its header.
+   *
+   * @param file The file.
+   * @param seed The seed of the sync marker, so the same rows always make the same file.
+   * @throws IOException If the file can't be written.
+   */
+  public SequenceFileWriter(File file, long seed) throws IOException {
+    this(new FileOutputStream(file), seed);
+  }
+
+  /**
+   * Writes the header of a file to a stream.
+   *
+   * @param stream The stream, which is closed with the writer.
+   * @param seed The seed of the sync marker, so the same rows always make the same file.
+   * @throws IOException If the stream can't be written.
+   */
+  public SequenceFileWriter(OutputStream stream, long seed) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(stream));
+    new Random(seed).nextBytes(sync);
+    out.write(new byte[] {'S', 'E', 'Q', version});
+    writeText(out, keyClassName.getBytes(StandardCharsets.UTF_8));
+    writeText(out, valueClassName.getBytes(StandardCharsets.UTF_8));
+    // Neither compressed nor block compressed.
+    out.writeBoolean(false);
+    out.writeBoolean(false);
+    // No metadata.
+    out.writeInt(0);
+    out.write(sync);
+    position = out.size();
+    lastSync = position;
+  }
+
+  /**
+   * Appends a row, whose key is the number of rows appended before it.
+   *
+   * @param row The fields of the row, separated by tabs.
+   * @throws IOException If the file can't be written.
+   */
+  public void append(String row) throws IOException {
+    if (position - lastSync >= syncInterval) {
+      out.writeInt(syncEscape);
+      out.write(sync);
+      position += 4 + sync.length;
+      lastSync = position;
+    }
+    byte[] value = row.getBytes(StandardCharsets.UTF_8);
+    int valueLength = getVIntSize(value.length) + value.length;
+    // The length of the record, the length of the key, the key and the value.
+    out.writeInt(8 + valueLength);
+    out.writeInt(8);
+    out.writeLong(rows++);
+    writeText(out, value);
+    position += 16 + valueLength;
+  }
+
+  /**
+   * Gets the number of rows appended.
+   *
+   * @return The rows.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  /**
+   * Writes a Text as Hadoop serializes it: the length as a variable-length integer and the UTF-8
+   * bytes.
+   *
+   * @param out The stream.
+   * @param bytes The UTF-8 bytes of the text.
+   * @throws IOException If the stream can't be written.
+   */
+  static void writeText(DataOutputStream out, byte[] bytes) throws IOException {
+    writeVInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a non-negative integer as Hadoop's WritableUtils does: a single byte up to 127, or a
+   * byte with the number of bytes that follow, from -113 for one byte to -116 for four bytes, and
+   * the integer in big-endian.
+   *
+   * @param out The stream.
+   * @param value The integer.
+   * @throws IOException If the stream can't be written.
+   */
+  static void writeVInt(DataOutputStream out, int value) throws IOException {
+    if (value <= 127) {
+      out.writeByte(value);
+      return;
+    }
+    int bytes = getVIntSize(value) - 1;
+    out.writeByte(-112 - bytes);
+    for (int i = bytes - 1; i >= 0; i--) {
+      out.writeByte(value >>> (8 * i));
+    }
+  }
+
+  /**
+   * Gets the number of bytes of a non-negative variable-length integer.
+   *
+   * @param value The integer.
+   * @return The bytes, the first one included.
+   */
+  static int getVIntSize(int value) {
+    if (value <= 127) {
+      return 1;
+    }
+    int bytes = 0;
+    for (int rest = value; rest != 0; rest >>>= 8) {
+      bytes++;
+    }
+    return bytes + 1;
+  }
+}
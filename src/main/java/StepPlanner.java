@@ -0,0 +1,400 @@
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Builds the EMR steps of an analysis: the hive scripts to run, in order, with their parameters.
+ * Every analysis needs its own planner, which names its steps from Step-001 onwards.
+ *
+ * @author julidipiti
+ */
+public class StepPlanner {
+
+  static final String ngramsFullPath = "s3://datasets.elasticmapreduce/ngrams/books/20090715/";
+  // A word in lowercase, which may have a hyphen inside.
+  private static final String wordRegex = "\\\\\\p{Ll}+(\\\\\\-)?\\\\\\p{Ll}+";
+  // The words of a gram are separated by a whitespace.
+  private static final String separatorRegex = "\\\\\\s";
+  // 100Mb = 104857600B, the biggest dictionary that is broadcast on a map join.
+  private static final long mapJoinSize = 104857600L;
+  // 32Mb = 33554432B, the input of a shift handled by each reducer. Hive computes the number of
+  // reducers of every shift from the size of its own years, so bigger years get more reducers.
+  private static final long shiftBytesPerReducer = 33554432L;
+
+  private final EMRHelper emrh;
+  private final String scriptsFullPath;
+  private final String outputFullPath;
+  private int stepCounter = 1;
+
+  /**
+   * Creates a planner for an analysis.
+   *
+   * @param emrh The helper that creates the steps.
+   * @param scriptsFullPath The URL in S3 where the scripts are uploaded.
+   * @param outputFullPath The URL in S3 where to export the results.
+   */
+  public StepPlanner(EMRHelper emrh, String scriptsFullPath, String outputFullPath) {
+    this.emrh = emrh;
+    this.scriptsFullPath = scriptsFullPath;
+    this.outputFullPath = outputFullPath;
+  }
+
+  /**
+   * Gets all the steps of an analysis: the dictionaries of every language, the foreignisms if the
+   * languages differ and the neologisms. With a list of languages, the neologisms of all of them
+   * and the foreignisms of every ordered pair are found from the same dictionaries, so every
+   * language is imported only once.
+   *
+   * @param spec The analysis, with the size of the cluster already decided.
+   * @return A list of the steps, in order.
+   * @throws IllegalArgumentException Accuses some problem with the analysis.
+   */
+  public List<StepConfig> getSteps(AnalysisSpec spec) throws IllegalArgumentException {
+    spec.validate();
+
+    List<StepConfig> steps = new LinkedList<>();
+    List<String> languages = spec.getLanguages();
+
+    for (String language : languages) {
+      steps.addAll(
+          getHiveStepsForCreatingDictionary(
+              ngramsFullPath + language + "/" + spec.getNgramOrder() + "gram/",
+              spec.getNgramsTable(language),
+              spec.getNgramOrder(),
+              spec.getSamplePercent(),
+              spec.getFromYear(),
+              spec.getToYear(),
+              spec.getWindowSize(),
+              spec.getPercentOfYears(),
+              spec.getOutputCodec(),
+              spec.getTaskInstances()));
+    }
+
+    // The join of the dictionaries is a big scan again.
+    if (spec.hasForeignisms()) {
+      addResizeStep(steps, spec.getTaskInstances(), spec.getTaskInstances());
+    }
+
+    // Without a list, the foreignisms are only the ones that language1 borrowed from language2.
+    int borrowers = spec.isMultiLanguage() ? languages.size() : 1;
+    for (int i = 0; i < borrowers; i++) {
+      for (int j = 0; j < languages.size(); j++) {
+        if (i != j) {
+          steps.addAll(
+              getHiveStepsForForeignismsFinder(
+                  spec.getNgramsTable(languages.get(i)),
+                  spec.getNgramsTable(languages.get(j)),
+                  spec.getFromYear(),
+                  spec.getToYear(),
+                  spec.getWindowSize(),
+                  spec.getPercentOfYears(),
+                  spec.getJoinStrategy(),
+                  spec.getUsageRatio(),
+                  spec.getForeignismsLimit(),
+                  spec.getOutputCodec()));
+        }
+      }
+    }
+
+    for (int i = 0; i < borrowers; i++) {
+      steps.addAll(
+          getHiveStepsForNeologismsFinder(
+              spec.getNgramsTable(languages.get(i)),
+              spec.getFromYear(),
+              spec.getToYear(),
+              spec.getWindowSize(),
+              spec.getPercentOfYears(),
+              spec.getNeologismsPerYear(),
+              spec.getOutputCodec(),
+              spec.getTaskInstances()));
+    }
+
+    return steps;
+  }
+
+  /**
+   * Gets the steps needed for finding foreignisms between language1 and language2 and exporting
+   * them to S3.
+   *
+   * @param ngramsTable1 The name of the table for the main ngrams.
+   * @param ngramsTable2 The name of the table for the other ngrams.
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize Size of the window.
+   * @param percentOfYears Percent of years needed for a ngram to be in the window.
+   * @param joinStrategy The strategy to join the dictionaries of both languages.
+   * @param usageRatio How many times more a gram must be used in the other language.
+   * @param limit The number of foreignisms to export, the ones with the most occurrences.
+   * @param outputCodec The compression for the foreignisms written to S3.
+   * @return A list of the steps needed for launching the foreignisms finder.
+   */
+  List<StepConfig> getHiveStepsForForeignismsFinder(
+      String ngramsTable1,
+      String ngramsTable2,
+      int fromYear,
+      int toYear,
+      int windowSize,
+      double percentOfYears,
+      JoinStrategy joinStrategy,
+      int usageRatio,
+      int limit,
+      CompressionCodec outputCodec) {
+    List<StepConfig> steps = new LinkedList<StepConfig>();
+
+    List<String> args =
+        new ArrayList<>(
+            Arrays.asList(
+                createParameters(
+                    "ngramsTable1=" + ngramsTable1,
+                    "ngramsTable2=" + ngramsTable2,
+                    "usageRatio=" + usageRatio,
+                    "limit=" + limit,
+                    "compressOutput=" + outputCodec.isEnabled(),
+                    "outputCodec=" + outputCodec.getCodecClass(),
+                    "output=" + outputFullPath + ngramsTable1 + "/Foreignisms/" + ngramsTable2)));
+    // Only a broadcast changes how Hive joins, otherwise it picks the join as for any other query.
+    if (joinStrategy.isMapJoin()) {
+      args.addAll(
+          Arrays.asList(
+              createSettings(
+                  "hive.auto.convert.join=true",
+                  "hive.auto.convert.join.noconditionaltask=true",
+                  "hive.auto.convert.join.noconditionaltask.size=" + mapJoinSize,
+                  "hive.mapjoin.smalltable.filesize=" + mapJoinSize)));
+    }
+    steps.add(
+        emrh.getHiveStep(
+            getStepName(),
+            scriptsFullPath + "ExportForeignisms.q",
+            args.toArray(new String[args.size()])));
+
+    return steps;
+  }
+
+  /**
+   * Gets the steps needed for creating a dictionary made out of all the words in a language, which
+   * publish every year to S3 as soon as it is computed.
+   *
+   * @param ngramsLocation The location on S3 of the ngrams.
+   * @param ngramsTable The name of the table for the ngrams.
+   * @param ngramOrder The number of words of the grams.
+   * @param samplePercent The percent of the grams to import, 100 if all of them.
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize Size of the window.
+   * @param percentOfYears Percent of years needed for a ngram to be in the window.
+   * @param outputCodec The compression for the dictionary written to S3.
+   * @param taskInstances The task instances for the scans, which are removed while the window
+   *     shifts. 0 if the cluster has no task instances.
+   * @return A list of steps needed for creating a dictionary.
+   */
+  List<StepConfig> getHiveStepsForCreatingDictionary(
+      String ngramsLocation,
+      String ngramsTable,
+      int ngramOrder,
+      int samplePercent,
+      int fromYear,
+      int toYear,
+      int windowSize,
+      double percentOfYears,
+      CompressionCodec outputCodec,
+      int taskInstances) {
+
+    List<StepConfig> steps = new LinkedList<StepConfig>();
+
+    addResizeStep(steps, taskInstances, taskInstances);
+
+    steps.add(
+        emrh.getHiveStep(
+            getStepName(),
+            scriptsFullPath + "ImportNgrams.q",
+            createParameters(
+                "ngramsLocation=" + ngramsLocation,
+                "regex=" + getRegex(ngramOrder),
+                "ngramsTable=" + ngramsTable,
+                "fromYear=" + fromYear,
+                "toYear=" + toYear,
+                "samplePercent=" + samplePercent)));
+
+    // The windows read the years of the import with no join, so its statistics would not plan
+    // anything: the inserts gather its rows and sizes, and its columns are not analyzed.
+    steps.add(
+        emrh.getHiveStep(
+            getStepName(),
+            scriptsFullPath + "CreateWindow.q",
+            createParameters(
+                "ngramsTable=" + ngramsTable,
+                "fromYear=" + fromYear,
+                "toYear=" + (fromYear + windowSize),
+                "lastYear=" + (fromYear + windowSize - 1),
+                "windowSize=" + windowSize,
+                "percentOfYears=" + percentOfYears,
+                "compressOutput=" + outputCodec.isEnabled(),
+                "outputCodec=" + outputCodec.getCodecClass(),
+                "output=" + outputFullPath + ngramsTable + "/Dic")));
+
+    // Every shift reads only two years, so the scans are over.
+    addResizeStep(steps, taskInstances, 0);
+
+    for (int i = fromYear + windowSize; i <= toYear; i++) {
+      steps.add(
+          emrh.getHiveStep(
+              getStepName(),
+              scriptsFullPath + "ShiftWindow.q",
+              createParameters(
+                  "ngramsTable=" + ngramsTable,
+                  "newYear=" + i,
+                  "windowSize=" + windowSize,
+                  "bytesPerReducer=" + shiftBytesPerReducer,
+                  "percentOfYears=" + percentOfYears,
+                  "compressOutput=" + outputCodec.isEnabled(),
+                  "outputCodec=" + outputCodec.getCodecClass())));
+    }
+
+    // The dictionary is complete after the last shift. Every partition is analyzed in a single
+    // step instead of one per shift, before the neologisms and the foreignisms join it.
+    addStatsStep(steps, "dictionary", ngramsTable, "gram,occurrences,yearOccurrences");
+
+    return steps;
+  }
+
+  /**
+   * Gets the steps needed for finding neologisms in a language, which publish every year to S3 as
+   * soon as it is computed.
+   *
+   * @param ngramsTable The name of the table for the ngrams.
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize Size of the window.
+   * @param percentOfYears Percent of years needed for a ngram to be in the window.
+   * @param topK The number of neologisms to keep per year.
+   * @param outputCodec The compression for the neologisms written to S3.
+   * @param taskInstances The task instances of the cluster, which are removed while looking for
+   *     neologisms. 0 if the cluster has no task instances.
+   * @return A list of steps needed for launching the neologisms finder.
+   */
+  List<StepConfig> getHiveStepsForNeologismsFinder(
+      String ngramsTable,
+      int fromYear,
+      int toYear,
+      int windowSize,
+      double percentOfYears,
+      int topK,
+      CompressionCodec outputCodec,
+      int taskInstances) {
+    List<StepConfig> steps = new LinkedList<StepConfig>();
+
+    // Every year reads only two partitions of the dictionary.
+    addResizeStep(steps, taskInstances, 0);
+
+    for (int i = fromYear + windowSize; i <= toYear; i++) {
+      steps.add(
+          emrh.getHiveStep(
+              getStepName(),
+              scriptsFullPath + "ProcessNeologisms.q",
+              createParameters(
+                  "ngramsTable=" + ngramsTable,
+                  "year=" + i,
+                  "topK=" + topK,
+                  "compressOutput=" + outputCodec.isEnabled(),
+                  "outputCodec=" + outputCodec.getCodecClass(),
+                  "output=" + outputFullPath + ngramsTable + "/Neo")));
+    }
+
+    return steps;
+  }
+
+  /**
+   * Adds a step that resizes the task instance group, if the cluster has one.
+   *
+   * @param steps The steps where to add the new step.
+   * @param taskInstances The task instances at launch. There is no task group if 0.
+   * @param newTaskInstances The number of task instances after the resize.
+   */
+  private void addResizeStep(List<StepConfig> steps, int taskInstances, int newTaskInstances) {
+    if (taskInstances > 0) {
+      steps.add(
+          emrh.getResizeStep(
+              getStepName(), scriptsFullPath + "ResizeTaskGroup.sh", newTaskInstances));
+    }
+  }
+
+  /**
+   * Adds a step that gathers the statistics of the columns of all the partitions of a table, so
+   * the cost-based optimizer knows how big every side of a join is. Hive turns a join into a map
+   * join by itself when the statistics show that one side is small, as the sparse early years are.
+   *
+   * @param steps The steps where to add the new step.
+   * @param table The table, without the name of the ngrams, i.e.: dictionary.
+   * @param ngramsTable The name of the table for the ngrams.
+   * @param columns The columns to analyze, separated by commas.
+   */
+  private void addStatsStep(
+      List<StepConfig> steps, String table, String ngramsTable, String columns) {
+    steps.add(
+        emrh.getHiveStep(
+            getStepName(),
+            scriptsFullPath + "ComputeStats.q",
+            createParameters(
+                "table=" + table, "ngramsTable=" + ngramsTable, "columns=" + columns)));
+  }
+
+  /**
+   * Gets the regex that the grams must match to be imported: words in lowercase, separated by
+   * whitespaces.
+   *
+   * @param ngramOrder The number of words of the grams.
+   * @return The regex, escaped to be passed as a parameter.
+   */
+  static String getRegex(int ngramOrder) {
+    StringBuilder sb = new StringBuilder("^").append(wordRegex);
+    for (int i = 1; i < ngramOrder; i++) {
+      sb.append(separatorRegex).append(wordRegex);
+    }
+    return sb.append("$").toString();
+  }
+
+  /**
+   * Creates an array of parameters for hive scripts, which need the "-d" option before every
+   * parameter.
+   *
+   * @param parameters A few strings to pass as parameters.
+   * @return A well-formatted string for passing paramters.
+   */
+  static String[] createParameters(String... parameters) {
+    String[] parametersArray = new String[parameters.length * 2];
+    for (int i = 0; i < parameters.length; i++) {
+      parametersArray[i * 2] = "-d";
+      parametersArray[i * 2 + 1] = parameters[i];
+    }
+    return parametersArray;
+  }
+
+  /**
+   * Creates an array of settings of hive for a single step, which need the "--hiveconf" option
+   * before every setting.
+   *
+   * @param settings A few settings, i.e.: hive.auto.convert.join=true.
+   * @return A well-formatted string for passing settings.
+   */
+  static String[] createSettings(String... settings) {
+    String[] settingsArray = new String[settings.length * 2];
+    for (int i = 0; i < settings.length; i++) {
+      settingsArray[i * 2] = "--hiveconf";
+      settingsArray[i * 2 + 1] = settings[i];
+    }
+    return settingsArray;
+  }
+
+  /**
+   * Gets a generic name for EMR steps. There could be up to 256 steps in the queue of steps, so the
+   * names have a 3-digit number id.
+   * @return The name of the next step.
+   */
+  private String getStepName() {
+    return "Step-" + String.format("%03d", stepCounter++);
+  }
+}
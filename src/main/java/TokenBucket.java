@@ -0,0 +1,65 @@
+/**
+ * Limits the rate of the calls to an API. The bucket holds up to a burst of tokens and refills at
+ * a steady rate, and every call takes a token. A call that finds the bucket empty takes the token
+ * anyway and waits until it would have been refilled, so the calls that wait get their turns in
+ * order instead of competing for every new token.
+ *
+ * @author julidipiti
+ */
+public class TokenBucket {
+
+  private final double permitsPerSecond;
+  private final double burst;
+  private double tokens;
+  private long lastNanos;
+
+  /**
+   * Creates a full bucket.
+   *
+   * @param permitsPerSecond The calls per second, greater than 0.
+   * @param burst The most calls that can be made at once after a while without calls, at least 1.
+   */
+  public TokenBucket(double permitsPerSecond, int burst) {
+    if (!(permitsPerSecond > 0)) {
+      throw new IllegalArgumentException("The calls per second must be greater than 0.");
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("The burst must be at least 1.");
+    }
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.tokens = burst;
+    this.lastNanos = System.nanoTime();
+  }
+
+  /**
+   * Takes a token, waiting until there is one.
+   *
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public void acquire() throws InterruptedException {
+    long waitNanos = reserve(System.nanoTime());
+    if (waitNanos > 0) {
+      Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+    }
+  }
+
+  /**
+   * Takes a token at a given time, even if the bucket is empty.
+   *
+   * @param nowNanos The time, as System.nanoTime gives it.
+   * @return The nanoseconds to wait until the token would be there, or 0 if it is already there.
+   */
+  synchronized long reserve(long nowNanos) {
+    if (nowNanos > lastNanos) {
+      tokens = Math.min(burst, tokens + (nowNanos - lastNanos) * permitsPerSecond / 1e9);
+      lastNanos = nowNanos;
+    }
+    tokens--;
+    if (tokens >= 0) {
+      return 0;
+    }
+    // The tokens below 0 are the calls already waiting for their turn.
+    return (long) Math.ceil(-tokens / permitsPerSecond * 1e9);
+  }
+}
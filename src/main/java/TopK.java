@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming top-K selection with a bounded heap. It keeps the K greatest elements offered so far
+ * and it never holds more than K of them, the same pruning that Hive does on every mapper when a
+ * query ends with ORDER BY ... LIMIT K.
+ *
+ * @param <T> The type of the elements to select.
+ * @author julidipiti
+ */
+public class TopK<T> {
+
+  private final int k;
+  private final Comparator<? super T> comparator;
+  private final PriorityQueue<T> heap;
+
+  /**
+   * Creates an empty selection.
+   *
+   * @param k The number of elements to keep, must be at least 1.
+   * @param comparator The order of the elements, the greatest ones are kept.
+   */
+  public TopK(int k, Comparator<? super T> comparator) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be at least 1.");
+    }
+    this.k = k;
+    this.comparator = comparator;
+    // The head of the heap is the smallest element kept, the first one to be evicted.
+    this.heap = new PriorityQueue<T>(k, comparator);
+  }
+
+  /**
+   * Offers an element to the selection. It is kept only if it is among the K greatest so far.
+   *
+   * @param element The element to offer.
+   * @return True if the element was kept, false otherwise.
+   */
+  public boolean offer(T element) {
+    if (heap.size() < k) {
+      heap.add(element);
+      return true;
+    }
+    if (comparator.compare(element, heap.peek()) <= 0) {
+      return false;
+    }
+    heap.poll();
+    heap.add(element);
+    return true;
+  }
+
+  /**
+   * Merges another selection into this one, as the final reducer does with the heaps of every
+   * mapper.
+   *
+   * @param other The selection to merge.
+   */
+  public void merge(TopK<? extends T> other) {
+    for (T element : other.heap) {
+      offer(element);
+    }
+  }
+
+  /**
+   * Gets the number of elements kept, which is never greater than K.
+   *
+   * @return The number of elements kept.
+   */
+  public int size() {
+    return heap.size();
+  }
+
+  /**
+   * Gets the elements kept, from the greatest to the smallest.
+   *
+   * @return A new list with the elements kept.
+   */
+  public List<T> toList() {
+    List<T> list = new ArrayList<T>(heap);
+    Collections.sort(list, Collections.reverseOrder(comparator));
+    return list;
+  }
+}
@@ -0,0 +1,126 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The window of years of a language, for processing the ngrams locally. It keeps the occurrences
+ * of every gram in the window and the number of years it appears in, as the pre dictionary of
+ * CreateWindow.q and ShiftWindow.q does, and it is shifted by adding a year and removing the
+ * oldest one.
+ *
+ * @author julidipiti
+ */
+public class WindowAggregator {
+
+  // The entry of the map, its share of the table of the map and the array of the stats of a gram,
+  // in a 64-bit JVM with compressed pointers. The grams are shared with the years, so they are not
+  // counted.
+  private static final int bytesPerGram = 32 + 8 + 32;
+
+  // The occurrences and the years of every gram, in a single array to avoid a map per counter.
+  private final Map<String, long[]> window = new HashMap<>();
+
+  /**
+   * Adds a year to the window.
+   *
+   * @param year The occurrences of every gram in the year.
+   */
+  public void add(Map<String, Long> year) {
+    for (Map.Entry<String, Long> gram : year.entrySet()) {
+      long[] stats = window.get(gram.getKey());
+      if (stats == null) {
+        stats = new long[2];
+        window.put(gram.getKey(), stats);
+      }
+      stats[0] += gram.getValue();
+      stats[1]++;
+    }
+  }
+
+  /**
+   * Removes a year from the window. The grams that are left in no year are removed, as the shifts
+   * do with their HAVING clause.
+   *
+   * @param year The occurrences of every gram in the year, which must have been added before.
+   */
+  public void remove(Map<String, Long> year) {
+    for (Map.Entry<String, Long> gram : year.entrySet()) {
+      long[] stats = window.get(gram.getKey());
+      if (stats == null) {
+        continue;
+      }
+      stats[0] -= gram.getValue();
+      stats[1]--;
+      if (stats[1] <= 0) {
+        window.remove(gram.getKey());
+      }
+    }
+  }
+
+  /**
+   * Shifts the window by one year.
+   *
+   * @param newYear The occurrences of every gram in the year that enters the window.
+   * @param oldYear The occurrences of every gram in the year that leaves the window.
+   */
+  public void shift(Map<String, Long> newYear, Map<String, Long> oldYear) {
+    add(newYear);
+    remove(oldYear);
+  }
+
+  /**
+   * Gets the number of grams in the window.
+   *
+   * @return The number of grams that appear in any year of the window.
+   */
+  public int size() {
+    return window.size();
+  }
+
+  /**
+   * Estimates the memory that the window takes, without the grams.
+   *
+   * @return The bytes of the heap.
+   */
+  public long getMemoryBytes() {
+    return (long) window.size() * bytesPerGram;
+  }
+
+  /**
+   * Gets the occurrences of a gram in the window.
+   *
+   * @param gram The gram.
+   * @return The occurrences, 0 if it is not in the window.
+   */
+  public long getOccurrences(String gram) {
+    long[] stats = window.get(gram);
+    return stats == null ? 0 : stats[0];
+  }
+
+  /**
+   * Gets the number of years of the window that a gram appears in.
+   *
+   * @param gram The gram.
+   * @return The years, 0 if it is not in the window.
+   */
+  public int getYearOccurrences(String gram) {
+    long[] stats = window.get(gram);
+    return stats == null ? 0 : (int) stats[1];
+  }
+
+  /**
+   * Gets the dictionary of the window, as ShiftWindow.q publishes it: the grams that appear in
+   * enough years.
+   *
+   * @param minYearOccurrences The years a gram must appear in, FLOOR(windowSize * percentOfYears).
+   * @return The occurrences of every gram of the dictionary.
+   */
+  public Map<String, Long> getDictionary(int minYearOccurrences) {
+    Map<String, Long> dictionary = new HashMap<>();
+    for (Map.Entry<String, long[]> gram : window.entrySet()) {
+      if (gram.getValue()[1] >= minYearOccurrences) {
+        dictionary.put(gram.getKey(), gram.getValue()[0]);
+      }
+    }
+    return dictionary;
+  }
+}
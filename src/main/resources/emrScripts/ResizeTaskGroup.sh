@@ -0,0 +1,70 @@
+#!/bin/bash
+# Resizes the task instance group of the cluster where it runs, so the cluster
+# grows for the big scans and shrinks during the long chain of small steps.
+# Needs the number of task instances as the first argument.
+# The EC2 role of the cluster needs the elasticmapreduce:ListInstanceGroups and
+# elasticmapreduce:ModifyInstanceGroups permissions, which EMR_EC2_DefaultRole
+# does not have by default. The README tells how to grant them.
+set -e
+
+COUNT=$1
+# The resize is waited for up to 20 minutes, checking it every 30 seconds.
+TIMEOUT_SECONDS=1200
+POLL_SECONDS=30
+
+# Fails the step with a message that stands out in its stderr. The step
+# continues on failure, so the cluster goes on with the size it has.
+fail() {
+  echo "********************************************************************" >&2
+  echo "ERROR: the task instance group was not resized to $COUNT instances." >&2
+  echo "$1" >&2
+  if echo "$2" | grep -q "AccessDenied"; then
+    echo "The EC2 role of the cluster can not resize it. Grant it the" >&2
+    echo "permissions of the task instance groups, as the README tells." >&2
+  fi
+  echo "The analysis goes on with the instances that the cluster has." >&2
+  echo "********************************************************************" >&2
+  exit 1
+}
+
+# The id of the cluster is in the info of the job flow, in every node.
+CLUSTER_ID=$(sed -n 's/.*"jobFlowId" *: *"\([^"]*\)".*/\1/p' /mnt/var/lib/info/job-flow.json)
+
+# The region is the availability zone of the instance without its last letter.
+REGION=$(curl -s http://169.254.169.254/latest/meta-data/placement/availability-zone \
+  | sed 's/[a-z]$//')
+
+if ! GROUP_ID=$(aws emr list-instance-groups --region "$REGION" --cluster-id "$CLUSTER_ID" \
+    --query "InstanceGroups[?InstanceGroupType=='TASK'].Id" --output text 2>&1); then
+  fail "The instance groups of $CLUSTER_ID could not be listed: $GROUP_ID" "$GROUP_ID"
+fi
+
+if [ -z "$GROUP_ID" ] || [ "$GROUP_ID" == "None" ]; then
+  echo "There is no task instance group to resize."
+  exit 0
+fi
+
+echo "Resizing the task instance group $GROUP_ID to $COUNT instances."
+if ! OUTPUT=$(aws emr modify-instance-groups --region "$REGION" \
+    --instance-groups InstanceGroupId="$GROUP_ID",InstanceCount="$COUNT" 2>&1); then
+  fail "The resize of $GROUP_ID was refused: $OUTPUT" "$OUTPUT"
+fi
+
+# The resize is only requested above. The step waits until the group has the
+# new size, so the next step neither starts before the new instances are up
+# nor gets its attempts killed on the instances that are being removed.
+DEADLINE=$(($(date +%s) + TIMEOUT_SECONDS))
+while true; do
+  if ! RUNNING=$(aws emr list-instance-groups --region "$REGION" --cluster-id "$CLUSTER_ID" \
+      --query "InstanceGroups[?Id=='$GROUP_ID'].RunningInstanceCount" --output text 2>&1); then
+    fail "The size of $GROUP_ID could not be checked: $RUNNING" "$RUNNING"
+  fi
+  echo "The task instance group $GROUP_ID has $RUNNING of $COUNT instances running."
+  if [ "$RUNNING" == "$COUNT" ]; then
+    exit 0
+  fi
+  if [ "$(date +%s)" -ge "$DEADLINE" ]; then
+    fail "The group still has $RUNNING instances after $TIMEOUT_SECONDS seconds." ""
+  fi
+  sleep "$POLL_SECONDS"
+done
@@ -0,0 +1,144 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+
+public class AnalysisSpecTest {
+
+  /**
+   * Gets a valid analysis of neologisms.
+   *
+   * @return The analysis.
+   */
+  private AnalysisSpec getSpec() {
+    return new AnalysisSpec()
+        .withLanguage1("spa-all")
+        .withFromYear(1900)
+        .withToYear(1950)
+        .withWindowSize(5)
+        .withPercentOfYears(0.8);
+  }
+
+  /**
+   * Tests that the second language defaults to the main one, so there are no foreignisms.
+   */
+  @Test
+  public void defaultLanguage2Test() {
+    AnalysisSpec spec = getSpec();
+    spec.validate();
+
+    assertEquals("spa-all", spec.getLanguage2());
+    assertFalse(spec.hasForeignisms());
+    assertEquals("spa_all", spec.getNgramsTable2());
+
+    spec.withLanguage2("eng-all");
+    assertTrue(spec.hasForeignisms());
+    assertEquals("eng_all", spec.getNgramsTable2());
+  }
+
+  /**
+   * Tests that a list of languages is used for the main language and for the foreignisms.
+   */
+  @Test
+  public void languagesTest() {
+    AnalysisSpec spec =
+        getSpec().withLanguage1(null).withLanguages(Arrays.asList("spa-all", "eng-all", "fre-all"));
+    spec.validate();
+
+    assertTrue(spec.isMultiLanguage());
+    assertTrue(spec.hasForeignisms());
+    assertEquals("spa_all", spec.getNgramsTable1());
+    assertEquals("eng_all", spec.getNgramsTable2());
+    assertEquals(3, spec.getLanguages().size());
+  }
+
+  /**
+   * Tests that a language can not be analyzed twice in the same cluster.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void repeatedLanguagesTest() {
+    getSpec().withLanguage1(null).withLanguages(Arrays.asList("spa-all", "spa-all")).validate();
+  }
+
+  /**
+   * Tests that the tables of grams of more words are named after their order.
+   */
+  @Test
+  public void ngramOrderTest() {
+    AnalysisSpec spec = getSpec().withNgramOrder(2);
+    spec.validate();
+
+    assertEquals("spa_all_2gram", spec.getNgramsTable1());
+  }
+
+  /**
+   * Tests that there are no grams of more than 5 words.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidNgramOrderTest() {
+    getSpec().withNgramOrder(6).validate();
+  }
+
+  /**
+   * Tests that a window that does not fit in the years is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void windowTooBigTest() {
+    getSpec().withWindowSize(51).validate();
+  }
+
+  /**
+   * Tests that a name that can not be a folder in S3 is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidNameTest() {
+    getSpec().withName("my analysis/1").validate();
+  }
+
+  /**
+   * Tests that the task instances must leave a core instance.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void tooManyTaskInstancesTest() {
+    getSpec().withClusterSize(4).withTaskInstances(3).validate();
+  }
+
+  /**
+   * Tests that the codecs heavy on CPU are rejected for the data shuffled inside the cluster.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void intermediateCodecTest() {
+    getSpec().withIntermediateCodec(CompressionCodec.GZIP).validate();
+  }
+
+  /**
+   * Tests that an output that --results could not read is rejected before launching anything.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void outputCodecTest() {
+    getSpec().withOutputCodec(CompressionCodec.SNAPPY).validate();
+  }
+
+  /**
+   * Tests that the usual codecs are accepted.
+   */
+  @Test
+  public void codecsTest() {
+    getSpec()
+        .withIntermediateCodec(CompressionCodec.LZ4)
+        .withOutputCodec(CompressionCodec.GZIP)
+        .validate();
+  }
+
+  /**
+   * Tests that the task instances are not checked until the size of the cluster is decided.
+   */
+  @Test
+  public void recommendedSizeTest() {
+    getSpec().withTaskInstances(3).validate();
+  }
+}
@@ -0,0 +1,70 @@
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class AwsCallMetricsTest {
+
+  private Metrics metrics;
+  private DefaultRequest<GetObjectRequest> request;
+
+  /**
+   * Creates a request to S3 that was retried twice, measured as the client does it.
+   */
+  @Before
+  public void setUp() {
+    metrics = new Metrics();
+    request = new DefaultRequest<>(new GetObjectRequest("bucket", "key"), "Amazon S3");
+    AWSRequestMetrics requestMetrics = new AWSRequestMetricsFullSupport();
+    requestMetrics.startEvent(AWSRequestMetrics.Field.ClientExecuteTime);
+    requestMetrics.incrementCounter(AWSRequestMetrics.Field.HttpClientRetryCount);
+    requestMetrics.incrementCounter(AWSRequestMetrics.Field.HttpClientRetryCount);
+    requestMetrics.endEvent(AWSRequestMetrics.Field.ClientExecuteTime);
+    request.setAWSRequestMetrics(requestMetrics);
+  }
+
+  /**
+   * Tests that the latency and the retries of a call are collected by its operation.
+   */
+  @Test
+  public void collectMetricsTest() {
+    new AwsCallMetrics(metrics, "s3").collectMetrics(request, new Response<>(null, null));
+
+    assertEquals(
+        1,
+        metrics
+            .timer("ana_aws_call_seconds", "", "service", "s3", "operation", "GetObject")
+            .getCount());
+    assertEquals(
+        2,
+        metrics
+            .counter("ana_aws_retries_total", "", "service", "s3", "operation", "GetObject")
+            .get());
+    assertEquals(
+        0,
+        metrics
+            .counter("ana_aws_errors_total", "", "service", "s3", "operation", "GetObject")
+            .get());
+  }
+
+  /**
+   * Tests that a call without a response counts as an error.
+   */
+  @Test
+  public void errorTest() {
+    new AwsCallMetrics(metrics, "s3").collectMetrics(request, null);
+
+    assertEquals(
+        1,
+        metrics
+            .counter("ana_aws_errors_total", "", "service", "s3", "operation", "GetObject")
+            .get());
+  }
+}
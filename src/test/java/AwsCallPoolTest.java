@@ -0,0 +1,302 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class AwsCallPoolTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private AwsCallPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new AwsCallPool(4, 8, 3, 1, 10);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that a throttled call is retried until it goes through.
+   */
+  @Test
+  public void retryTest() {
+    Callable<String> call = throttled(2, "SlowDown", 503);
+
+    assertEquals("done", pool.call("s3.PutObject", call));
+  }
+
+  /**
+   * Tests that a call still throttled after all its retries throws the error of the service.
+   */
+  @Test
+  public void maxRetriesTest() {
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      pool.call("emr.DescribeCluster", throttled(10, "ThrottlingException", 400, attempts));
+      fail("The call should have been throttled.");
+    } catch (AmazonServiceException ase) {
+      assertEquals("ThrottlingException", ase.getErrorCode());
+    }
+
+    assertEquals(4, attempts.get());
+  }
+
+  /**
+   * Tests that a call waits for its retry without holding its thread, so the next call runs
+   * meanwhile.
+   */
+  @Test
+  public void backoffWithoutThreadTest() throws Exception {
+    AwsCallPool single = new AwsCallPool(1, 1, 3, 200, 200);
+    final CountDownLatch submitted = new CountDownLatch(1);
+    final Callable<String> throttled = throttled(1, "SlowDown", 503);
+    final Future<String> first =
+        single.submit(
+            "s3.PutObject",
+            new Callable<String>() {
+              @Override
+              public String call() throws Exception {
+                submitted.await();
+                return throttled.call();
+              }
+            });
+    Future<Boolean> second =
+        single.submit(
+            "s3.PutObject",
+            new Callable<Boolean>() {
+              @Override
+              public Boolean call() {
+                return first.isDone();
+              }
+            });
+    submitted.countDown();
+
+    assertFalse(second.get());
+    assertEquals("done", first.get());
+    single.shutdown();
+  }
+
+  /**
+   * Tests that the clients of the pool leave the throttled calls to it, but still retry the rest
+   * of the errors that the SDK retries.
+   */
+  @Test
+  public void clientConfigurationTest() {
+    RetryPolicy.RetryCondition condition =
+        AwsCallPool.getClientConfiguration().getRetryPolicy().getRetryCondition();
+    AmazonServiceException slowDown = new AmazonServiceException("Please reduce your rate.");
+    slowDown.setErrorCode("SlowDown");
+    slowDown.setStatusCode(503);
+    AmazonServiceException internal = new AmazonServiceException("Internal error.");
+    internal.setErrorCode("InternalError");
+    internal.setStatusCode(500);
+
+    assertFalse(condition.shouldRetry(null, slowDown, 0));
+    assertTrue(condition.shouldRetry(null, internal, 0));
+  }
+
+  /**
+   * Tests that the errors other than throttling are not retried.
+   */
+  @Test
+  public void noRetryTest() {
+    AtomicInteger attempts = new AtomicInteger();
+    try {
+      pool.call("s3.PutObject", throttled(1, "AccessDenied", 403, attempts));
+      fail("The call should have failed.");
+    } catch (AmazonServiceException ase) {
+      assertEquals("AccessDenied", ase.getErrorCode());
+    }
+
+    assertEquals(1, attempts.get());
+  }
+
+  /**
+   * Tests that the waits before the retries double with every attempt, up to the maximum.
+   */
+  @Test
+  public void backoffTest() {
+    AwsCallPool backoff = new AwsCallPool(1, 0, 3, 100, 1000);
+    long longest = 0;
+    for (int i = 0; i < 1000; i++) {
+      long millis = backoff.getBackoffMillis(2);
+      assertTrue(millis >= 0 && millis <= 400);
+      longest = Math.max(longest, millis);
+      assertTrue(backoff.getBackoffMillis(40) <= 1000);
+    }
+    backoff.shutdown();
+
+    // The waits are spread over the whole range.
+    assertTrue(longest > 200);
+  }
+
+  /**
+   * Tests that the calls to an API are limited to its rate, and the ones to the other APIs of the
+   * service to the rate of the service.
+   */
+  @Test
+  public void rateLimitTest() throws Exception {
+    pool.withRateLimit("emr", 1000, 100).withRateLimit("emr.DescribeCluster", 20, 1);
+    Callable<String> call = throttled(0, null, 0);
+    long start = System.nanoTime();
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      results.add(pool.submit("emr.DescribeCluster", call));
+    }
+    for (Future<String> result : results) {
+      result.get();
+    }
+    long describeNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      pool.call("emr.RunJobFlow", call);
+    }
+
+    assertTrue(describeNanos >= TimeUnit.MILLISECONDS.toNanos(190));
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(190));
+  }
+
+  /**
+   * Tests that submitting calls blocks while all the threads are busy and the queue is full.
+   */
+  @Test
+  public void boundedTest() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AwsCallPool bounded = new AwsCallPool(1, 1, 0, 0, 0);
+    final Callable<String> blocked =
+        new Callable<String>() {
+          @Override
+          public String call() throws InterruptedException {
+            release.await();
+            return "done";
+          }
+        };
+    bounded.submit("s3.PutObject", blocked);
+    bounded.submit("s3.PutObject", blocked);
+    final CountDownLatch submitted = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  bounded.submit("s3.PutObject", blocked);
+                  submitted.countDown();
+                } catch (InterruptedException ie) {
+                  Thread.currentThread().interrupt();
+                }
+              }
+            });
+    thread.start();
+
+    assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+    release.countDown();
+    assertTrue(submitted.await(5, TimeUnit.SECONDS));
+    bounded.shutdown();
+  }
+
+  /**
+   * Tests the calls of S3Helper against a local stand-in for S3, which throttles the first
+   * requests as S3 does.
+   */
+  @Test
+  public void standInEndpointTest() throws IOException {
+    final AtomicInteger requests = new AtomicInteger();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        new HttpHandler() {
+          @Override
+          public void handle(HttpExchange exchange) throws IOException {
+            if (requests.incrementAndGet() <= 2) {
+              byte[] error =
+                  ("<Error><Code>SlowDown</Code><Message>Please reduce your request rate."
+                          + "</Message></Error>")
+                      .getBytes(StandardCharsets.UTF_8);
+              exchange.sendResponseHeaders(503, error.length);
+              try (OutputStream out = exchange.getResponseBody()) {
+                out.write(error);
+              }
+            } else {
+              exchange.sendResponseHeaders(200, -1);
+              exchange.close();
+            }
+          }
+        });
+    server.start();
+    try {
+      // The client leaves the throttled calls to the pool, so the retries of the pool are tested.
+      AmazonS3Client s3 =
+          new AmazonS3Client(
+              new BasicAWSCredentials("key", "secret"), AwsCallPool.getClientConfiguration());
+      s3.setEndpoint("http://localhost:" + server.getAddress().getPort());
+      s3.setS3ClientOptions(new S3ClientOptions().withPathStyleAccess(true));
+      new S3Helper(s3, new CatalogCache(folder.newFile(), 0), pool).createBucket("bucket");
+    } finally {
+      server.stop(0);
+    }
+
+    assertEquals(3, requests.get());
+  }
+
+  private static Callable<String> throttled(int times, String errorCode, int statusCode) {
+    return throttled(times, errorCode, statusCode, new AtomicInteger());
+  }
+
+  /**
+   * Creates a call that fails some times before it goes through.
+   *
+   * @param times The times that the call fails.
+   * @param errorCode The code of the error.
+   * @param statusCode The HTTP status of the error.
+   * @param attempts Where to count the attempts.
+   * @return The call, which returns "done".
+   */
+  private static Callable<String> throttled(
+      final int times, final String errorCode, final int statusCode, final AtomicInteger attempts) {
+    return new Callable<String>() {
+      @Override
+      public String call() {
+        if (attempts.incrementAndGet() <= times) {
+          AmazonServiceException ase = new AmazonServiceException("Failed.");
+          ase.setErrorCode(errorCode);
+          ase.setStatusCode(statusCode);
+          throw ase;
+        }
+        return "done";
+      }
+    };
+  }
+}
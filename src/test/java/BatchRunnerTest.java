@@ -0,0 +1,89 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+
+public class BatchRunnerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final String analysis =
+      "{\"language1\": \"spa-all\", \"fromYear\": 1900, \"toYear\": 1950, \"windowSize\": 5, "
+          + "\"percentOfYears\": 0.8";
+
+  /**
+   * Writes a job spec in a temporary file.
+   *
+   * @param json The content of the job spec.
+   * @return The file.
+   * @throws IOException If the file can not be written.
+   */
+  private File writeSpec(String json) throws IOException {
+    File file = folder.newFile();
+    Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /**
+   * Tests that a job spec is read with the defaults of every parameter not given.
+   */
+  @Test
+  public void readJobSpecTest() throws IOException {
+    File file =
+        writeSpec(
+            "{\"maxParallelClusters\": 2, \"analyses\": ["
+                + analysis
+                + "}, "
+                + analysis
+                + ", \"name\": \"eng\", \"language2\": \"eng-all\", \"joinStrategy\": "
+                + "\"BROADCAST\", \"outputCodec\": \"GZIP\", \"clusterSize\": 5}]}");
+
+    BatchRunner.JobSpec job = BatchRunner.readJobSpec(file);
+
+    assertEquals(2, job.maxParallelClusters);
+    assertEquals(2, job.analyses.size());
+    AnalysisSpec first = job.analyses.get(0);
+    assertEquals("analysis-1", first.getName());
+    assertEquals(20, first.getNeologismsPerYear());
+    assertEquals(CompressionCodec.NONE, first.getOutputCodec());
+    assertEquals(0, first.getClusterSize());
+    AnalysisSpec second = job.analyses.get(1);
+    assertEquals("eng", second.getName());
+    assertEquals(JoinStrategy.BROADCAST, second.getJoinStrategy());
+    assertEquals(CompressionCodec.GZIP, second.getOutputCodec());
+    assertEquals(5, second.getClusterSize());
+  }
+
+  /**
+   * Tests that two analyses can not export to the same folder.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void duplicatedNameTest() throws IOException {
+    File file =
+        writeSpec(
+            "{\"analyses\": ["
+                + analysis
+                + ", \"name\": \"a\"}, "
+                + analysis
+                + ", \"name\": \"a\"}]}");
+
+    BatchRunner.readJobSpec(file);
+  }
+
+  /**
+   * Tests that nothing is launched if any analysis is wrong.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidAnalysisTest() throws IOException {
+    File file = writeSpec("{\"analyses\": [" + analysis + ", \"windowSize\": 100}]}");
+
+    BatchRunner.readJobSpec(file);
+  }
+}
@@ -0,0 +1,78 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class CatalogCacheTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+
+  /**
+   * Gets the environment ready for testing with a cache file in a temporary folder.
+   */
+  @Before
+  public void setUp() {
+    file = new File(folder.getRoot(), "cache/catalog.properties");
+  }
+
+  /**
+   * Tests that an entry is read back as it was stored, even from another instance of the cache.
+   */
+  @Test
+  public void putGetTest() {
+    List<String> languages = Arrays.asList("eng-all", "fre-all", "spa-all");
+    new CatalogCache(file, CatalogCache.defaultTtl).put("languages", languages);
+
+    assertTrue(file.isFile());
+    assertEquals(languages, new CatalogCache(file, CatalogCache.defaultTtl).get("languages"));
+  }
+
+  /**
+   * Tests that an empty list is cached as an empty list and not as a missing entry.
+   */
+  @Test
+  public void putGetEmptyTest() {
+    CatalogCache cache = new CatalogCache(file, CatalogCache.defaultTtl);
+    cache.put("languages", Collections.<String>emptyList());
+
+    assertEquals(Collections.<String>emptyList(), cache.get("languages"));
+  }
+
+  /**
+   * Tests that a missing entry is null.
+   */
+  @Test
+  public void getMissingTest() {
+    CatalogCache cache = new CatalogCache(file, CatalogCache.defaultTtl);
+    assertNull(cache.get("languages"));
+
+    cache.put("languages", Arrays.asList("eng-all"));
+    assertNull(cache.get("instanceTypes"));
+  }
+
+  /**
+   * Tests that an entry older than the time to live is null.
+   *
+   * @throws InterruptedException if there is any interruption while sleeping the thread.
+   */
+  @Test
+  public void getExpiredTest() throws InterruptedException {
+    CatalogCache cache = new CatalogCache(file, 1);
+    cache.put("languages", Arrays.asList("eng-all"));
+    Thread.sleep(10);
+
+    assertNull(cache.get("languages"));
+  }
+}
@@ -0,0 +1,90 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class ClusterPlannerTest {
+
+  // 1Gb = 1073741824B
+  private static final long gigabyte = 1073741824L;
+
+  /**
+   * Tests that an unknown input size gets the smallest cluster and the default split size.
+   */
+  @Test
+  public void unknownInputTest() {
+    ClusterPlanner plan = new ClusterPlanner(0, 1900, 1950, 5);
+
+    assertEquals(2, plan.getInstanceCount());
+    assertEquals(ClusterPlanner.defaultSplitSize, plan.getSplitSize());
+    assertEquals("m3.xlarge", plan.getSlaveInstanceType());
+  }
+
+  /**
+   * Tests that a bigger input or a longer range of years never gets a smaller cluster.
+   */
+  @Test
+  public void growsWithInputTest() {
+    ClusterPlanner small = new ClusterPlanner(2 * gigabyte, 1900, 1920, 5);
+    ClusterPlanner bigger = new ClusterPlanner(20 * gigabyte, 1900, 1920, 5);
+    ClusterPlanner longer = new ClusterPlanner(20 * gigabyte, 1800, 2000, 5);
+
+    assertTrue(small.getInstanceCount() <= bigger.getInstanceCount());
+    assertTrue(bigger.getInstanceCount() <= longer.getInstanceCount());
+    assertEquals((bigger.getInstanceCount() - 1) * 2, bigger.getMaxReducers());
+  }
+
+  /**
+   * Tests that a huge input is limited to 20 instances, of the bigger type, and the split size is
+   * limited too.
+   */
+  @Test
+  public void limitsTest() {
+    ClusterPlanner plan = new ClusterPlanner(1000 * gigabyte, 1700, 2008, 10);
+
+    assertEquals(20, plan.getInstanceCount());
+    assertEquals("m3.2xlarge", plan.getSlaveInstanceType());
+    assertTrue(plan.getSplitSize() <= 536870912L);
+  }
+
+  /**
+   * Tests that the split size spreads the input over two waves of mappers.
+   */
+  @Test
+  public void splitSizeTest() {
+    ClusterPlanner plan = new ClusterPlanner(4 * gigabyte, 1900, 1910, 2);
+    int mapSlots = (plan.getInstanceCount() - 1) * 4;
+
+    assertEquals(4 * gigabyte / (mapSlots * 2), plan.getSplitSize());
+  }
+
+  /**
+   * Tests that a cluster bigger than the recommended one gets the splits and the reducers of its
+   * own slaves, instead of those of the recommended ones.
+   */
+  @Test
+  public void forInstancesTest() {
+    ClusterPlanner plan = new ClusterPlanner(gigabyte, 1900, 1910, 2);
+    ClusterPlanner launched = plan.forInstances(20);
+
+    assertEquals(2, plan.getInstanceCount());
+    assertEquals(2, plan.getMaxReducers());
+    assertEquals(20, launched.getInstanceCount());
+    assertEquals(19 * 2, launched.getMaxReducers());
+    assertEquals(33554432L, launched.getSplitSize());
+    assertEquals(gigabyte / (4 * 2), plan.getSplitSize());
+    assertEquals(plan.getSlaveInstanceType(), launched.getSlaveInstanceType());
+  }
+
+  /**
+   * Tests that a cluster of a single instance is planned as if the master were a slave.
+   */
+  @Test
+  public void singleInstanceTest() {
+    ClusterPlanner plan = new ClusterPlanner(gigabyte, 1900, 1910, 2).forInstances(1);
+
+    assertEquals(2, plan.getMaxReducers());
+    assertEquals(gigabyte / (4 * 2), plan.getSplitSize());
+  }
+}
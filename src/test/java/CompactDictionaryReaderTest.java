@@ -0,0 +1,118 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class CompactDictionaryReaderTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+  private List<String> grams;
+
+  /**
+   * Writes a dictionary of 100 grams in blocks of 8, every one in 3 years, with long shared
+   * prefixes and the neologisms of 1951.
+   */
+  @Before
+  public void setUp() throws IOException {
+    file = folder.newFile();
+    grams = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      grams.add(String.format("guerra%03d", i));
+    }
+    grams.set(99, "ñandú");
+    try (CompactDictionaryWriter writer =
+        new CompactDictionaryWriter(Files.newOutputStream(file.toPath()), 8)) {
+      for (int i = 0; i < grams.size(); i++) {
+        writer.append(
+            Arrays.asList(
+                new GramIndex.Posting(grams.get(i), 1950, i, 1, false),
+                new GramIndex.Posting(grams.get(i), 1951, 1000000000000L + i, 2, i % 10 == 0),
+                new GramIndex.Posting(grams.get(i), 1960, 5, 3, false)));
+      }
+    }
+  }
+
+  /**
+   * Tests that all the grams are read back in order with their postings.
+   */
+  @Test
+  public void nextTest() throws IOException {
+    try (CompactDictionaryReader reader = new CompactDictionaryReader(file)) {
+      assertEquals(100, reader.size());
+      for (int i = 0; i < grams.size(); i++) {
+        List<GramIndex.Posting> postings = reader.next();
+        assertEquals(3, postings.size());
+        assertEquals(
+            grams.get(i) + "\t1950\t" + i,
+            postings.get(0).getGram() + "\t" + postings.get(0).getYear() + "\t"
+                + postings.get(0).getOccurrences());
+        assertEquals(1000000000000L + i, postings.get(1).getOccurrences());
+        assertEquals(i % 10 == 0, postings.get(1).isNeologism());
+        assertEquals(1960, postings.get(2).getYear());
+        assertEquals(3, postings.get(2).getYearOccurrences());
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  /**
+   * Tests that every gram is found, including the first and the last one of every block, and that
+   * the missing ones are not.
+   */
+  @Test
+  public void getTest() throws IOException {
+    try (CompactDictionaryReader reader = new CompactDictionaryReader(file)) {
+      for (int i = 0; i < grams.size(); i++) {
+        assertEquals(grams.get(i), reader.get(grams.get(i)).get(0).getGram());
+        assertEquals(i, reader.get(grams.get(i)).get(0).getOccurrences());
+      }
+      assertEquals(Collections.emptyList(), reader.get("a"));
+      assertEquals(Collections.emptyList(), reader.get("guerra"));
+      assertEquals(Collections.emptyList(), reader.get("guerra0505"));
+      assertEquals(Collections.emptyList(), reader.get("zz"));
+    }
+  }
+
+  /**
+   * Tests that a dictionary with no grams can be read.
+   */
+  @Test
+  public void emptyTest() throws IOException {
+    File empty = folder.newFile();
+    new CompactDictionaryWriter(empty).close();
+
+    try (CompactDictionaryReader reader = new CompactDictionaryReader(empty)) {
+      assertEquals(0, reader.size());
+      assertNull(reader.next());
+      assertEquals(Collections.emptyList(), reader.get("guerra"));
+    }
+  }
+
+  /**
+   * Tests that a file that is not a dictionary is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void notDictionaryTest() throws IOException {
+    File text = folder.newFile();
+    Files.write(
+        text.toPath(),
+        Collections.nCopies(10, "1950\tguerra\t10\t3"),
+        StandardCharsets.UTF_8);
+    new CompactDictionaryReader(text);
+  }
+}
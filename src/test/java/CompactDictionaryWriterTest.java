@@ -0,0 +1,80 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+
+public class CompactDictionaryWriterTest {
+
+  /**
+   * Tests that the variable-length integers take a byte up to 127 and are read back whole.
+   */
+  @Test
+  public void writeVarLongTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    CompactDictionaryWriter.writeVarLong(out, 127);
+    assertEquals(1, bytes.size());
+    CompactDictionaryWriter.writeVarLong(out, 128);
+    assertEquals(3, bytes.size());
+    CompactDictionaryWriter.writeVarLong(out, Long.MAX_VALUE);
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertEquals(127, CompactDictionaryReader.readVarLong(in));
+    assertEquals(128, CompactDictionaryReader.readVarLong(in));
+    assertEquals(Long.MAX_VALUE, CompactDictionaryReader.readVarLong(in));
+  }
+
+  /**
+   * Tests that the dictionary is several times smaller than the rows that Hive writes for it.
+   */
+  @Test
+  public void sizeTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StringBuilder text = new StringBuilder();
+    try (CompactDictionaryWriter writer = new CompactDictionaryWriter(bytes, 16)) {
+      for (int i = 0; i < 1000; i++) {
+        String gram = String.format("independencia%04d", i);
+        GramIndex.Posting[] postings = new GramIndex.Posting[20];
+        for (int year = 0; year < postings.length; year++) {
+          postings[year] = new GramIndex.Posting(gram, 1950 + year, 123456 + i, 5, false);
+          text.append(gram + "\t" + (123456 + i) + "\t5\t" + (1950 + year) + "\n");
+        }
+        writer.append(Arrays.asList(postings));
+      }
+    }
+
+    assertTrue(bytes.size() * 4 < text.toString().getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  /**
+   * Tests that a gram out of order is rejected, since the lookups would miss it.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unsortedTest() throws IOException {
+    CompactDictionaryWriter writer = new CompactDictionaryWriter(new ByteArrayOutputStream(), 16);
+    writer.append(Collections.singletonList(new GramIndex.Posting("sol", 1950, 1, 1, false)));
+    writer.append(Collections.singletonList(new GramIndex.Posting("luz", 1950, 1, 1, false)));
+  }
+
+  /**
+   * Tests that the years of a gram out of order are rejected, since their deltas can't be negative.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unsortedYearsTest() throws IOException {
+    new CompactDictionaryWriter(new ByteArrayOutputStream(), 16)
+        .append(
+            Arrays.asList(
+                new GramIndex.Posting("sol", 1951, 1, 1, false),
+                new GramIndex.Posting("sol", 1950, 1, 1, false)));
+  }
+}
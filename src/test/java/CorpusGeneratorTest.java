@@ -0,0 +1,183 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+public class CorpusGeneratorTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Creates a small corpus of two languages.
+   *
+   * @return The generator.
+   */
+  private static CorpusGenerator getGenerator() {
+    return new CorpusGenerator()
+        .withLanguages(Arrays.asList("spa-all", "eng-all"))
+        .withVocabularySize(1000)
+        .withFromYear(1950)
+        .withToYear(1960)
+        .withOccurrencesPerYear(100000)
+        .withNeologismsPerYear(3)
+        .withOverlap(0.2);
+  }
+
+  /**
+   * Gets the occurrences of every gram of a year.
+   *
+   * @param rows The rows of the year.
+   * @return The occurrences by gram.
+   */
+  private static Map<String, Long> getOccurrences(List<String> rows) {
+    Map<String, Long> occurrences = new HashMap<>();
+    for (String row : rows) {
+      String[] fields = row.split("\t");
+      occurrences.put(fields[0], Long.parseLong(fields[2]));
+    }
+    return occurrences;
+  }
+
+  /**
+   * Tests that the rows have the fields of the raw table, and that the sanitization keeps all of
+   * them.
+   */
+  @Test
+  public void getRowsTest() {
+    CorpusGenerator generator = getGenerator().withNgramOrder(3);
+    GramFilter filter = new GramFilter(3);
+    List<String> rows = generator.getRows("spa-all", 1955);
+
+    assertFalse(rows.isEmpty());
+    for (String row : rows) {
+      String[] fields = row.split("\t");
+      assertEquals(5, fields.length);
+      assertTrue(filter.accept(fields[0]));
+      assertEquals(1955, Integer.parseInt(fields[1]));
+      long occurrences = Long.parseLong(fields[2]);
+      long pages = Long.parseLong(fields[3]);
+      long books = Long.parseLong(fields[4]);
+      assertTrue(occurrences >= pages && pages >= books && books >= 1);
+    }
+    assertEquals(rows, generator.getRows("spa-all", 1955));
+  }
+
+  /**
+   * Tests that the most used grams follow the ranks, and that the years grow.
+   */
+  @Test
+  public void zipfTest() {
+    CorpusGenerator generator = getGenerator().withGrowth(0.1);
+    Map<String, Long> first = getOccurrences(generator.getRows("spa-all", 1950));
+    Map<String, Long> last = getOccurrences(generator.getRows("spa-all", 1960));
+
+    long top = first.get(generator.getGram("spa-all", 0));
+    long tenth = first.get(generator.getGram("spa-all", 9));
+    // About 10 times more, with some noise.
+    assertTrue(top > tenth * 8 && top < tenth * 12);
+    assertTrue(last.get(generator.getGram("spa-all", 0)) > top * 2);
+  }
+
+  /**
+   * Tests that the neologisms are not used before their year, and are used after it.
+   */
+  @Test
+  public void neologismsTest() {
+    CorpusGenerator generator = getGenerator();
+    List<String> neologisms = generator.getNeologisms("spa-all", 1955);
+
+    assertEquals(3, neologisms.size());
+    assertTrue(generator.getNeologisms("spa-all", 1950).isEmpty());
+    Map<String, Long> before = getOccurrences(generator.getRows("spa-all", 1954));
+    for (int year = 1955; year <= 1960; year++) {
+      Map<String, Long> after = getOccurrences(generator.getRows("spa-all", year));
+      for (String neologism : neologisms) {
+        assertFalse(before.containsKey(neologism));
+        assertTrue(after.containsKey(neologism));
+      }
+    }
+  }
+
+  /**
+   * Tests that the languages share about the fraction of the vocabulary asked for.
+   */
+  @Test
+  public void overlapTest() {
+    CorpusGenerator generator = getGenerator();
+    Map<String, Long> spanish = new HashMap<>();
+    Map<String, Long> english = new HashMap<>();
+    for (int rank = 0; rank < 1000; rank++) {
+      spanish.put(generator.getGram("spa-all", rank), 1L);
+      english.put(generator.getGram("eng-all", rank), 1L);
+    }
+    spanish.keySet().retainAll(english.keySet());
+
+    assertTrue(spanish.size() > 150 && spanish.size() < 250);
+    assertFalse(generator.withOverlap(0).isShared(7));
+    assertTrue(generator.withOverlap(1).isShared(7));
+  }
+
+  /**
+   * Tests that the corpus is written as text, a file per language.
+   */
+  @Test
+  public void writeTsvTest() throws IOException {
+    CorpusGenerator generator = getGenerator().withFormat(CorpusFormat.TSV);
+    File directory = folder.newFolder();
+    long rows = generator.write(directory);
+
+    List<String> spanish =
+        Files.readAllLines(
+            new File(directory, "spa-all/1gram/part-00000.tsv").toPath(), StandardCharsets.UTF_8);
+    List<String> english =
+        Files.readAllLines(
+            new File(directory, "eng-all/1gram/part-00000.tsv").toPath(), StandardCharsets.UTF_8);
+    assertEquals(rows, spanish.size() + english.size());
+    assertEquals(generator.getRows("spa-all", 1950).get(0), spanish.get(0));
+  }
+
+  /**
+   * Tests that the occurrences are drawn around the mean.
+   */
+  @Test
+  public void getOccurrencesTest() {
+    Random random = new Random(42);
+    for (double mean : new double[] {0.5, 5, 500}) {
+      long total = 0;
+      for (int i = 0; i < 10000; i++) {
+        total += CorpusGenerator.getOccurrences(random, mean);
+      }
+      assertEquals(mean, total / 10000.0, mean * 0.05);
+    }
+  }
+
+  /**
+   * Tests that an unknown language is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownLanguageTest() {
+    getGenerator().getRows("fre-all", 1950);
+  }
+
+  /**
+   * Tests that an overlap over 1 is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidOverlapTest() {
+    getGenerator().withOverlap(1.5).validate();
+  }
+}
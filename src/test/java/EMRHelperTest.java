@@ -1,4 +1,5 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.regions.Region;
@@ -8,6 +9,8 @@ import com.amazonaws.services.elasticmapreduce.model.ActionOnFailure;
 import com.amazonaws.services.elasticmapreduce.model.Application;
 import com.amazonaws.services.elasticmapreduce.model.Configuration;
 import com.amazonaws.services.elasticmapreduce.model.HadoopJarStepConfig;
+import com.amazonaws.services.elasticmapreduce.model.InstanceGroupConfig;
+import com.amazonaws.services.elasticmapreduce.model.InstanceRoleType;
 import com.amazonaws.services.elasticmapreduce.model.JobFlowInstancesConfig;
 import com.amazonaws.services.elasticmapreduce.model.RunJobFlowRequest;
 import com.amazonaws.services.elasticmapreduce.model.StepConfig;
@@ -23,6 +26,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 
 public class EMRHelperTest {
@@ -79,6 +83,44 @@ public class EMRHelperTest {
     assertEquals(jfic1.getSlaveInstanceType(), jfic2.getSlaveInstanceType());
   }
 
+  /**
+   * Tests that a JobFlowInstancesConfig with a task group has the master, core and task groups with
+   * their sizes, and no task group if there are no task instances.
+   */
+  @Test
+  public void getJobFlowInstancesConfigGroupsTest() {
+    JobFlowInstancesConfig jfic = emrh.getJobFlowInstancesConfig("m3.xlarge", 3, 4, "m3.2xlarge");
+
+    List<InstanceGroupConfig> groups = jfic.getInstanceGroups();
+    assertEquals(3, groups.size());
+    assertEquals(InstanceRoleType.MASTER.toString(), groups.get(0).getInstanceRole());
+    assertEquals(1, (int) groups.get(0).getInstanceCount());
+    assertEquals("m3.xlarge", groups.get(0).getInstanceType());
+    assertEquals(InstanceRoleType.CORE.toString(), groups.get(1).getInstanceRole());
+    assertEquals(3, (int) groups.get(1).getInstanceCount());
+    assertEquals(InstanceRoleType.TASK.toString(), groups.get(2).getInstanceRole());
+    assertEquals(4, (int) groups.get(2).getInstanceCount());
+    assertEquals("m3.2xlarge", groups.get(2).getInstanceType());
+
+    jfic = emrh.getJobFlowInstancesConfig("m3.xlarge", 3, 0, "m3.xlarge");
+    assertEquals(2, jfic.getInstanceGroups().size());
+  }
+
+  /**
+   * Tests that a resize step runs the script with the new number of task instances, and that it
+   * does not stop the cluster if it fails.
+   */
+  @Test
+  public void getResizeStepTest() {
+    String scriptPath = "s3://bucket/ResizeTaskGroup.sh";
+    StepConfig stepConfig = emrh.getResizeStep("name", scriptPath, 6);
+    HadoopJarStepConfig hjsc = new StepFactory().newScriptRunnerStep(scriptPath, "6");
+
+    assertEquals("name", stepConfig.getName());
+    assertEquals(ActionOnFailure.CONTINUE.toString(), stepConfig.getActionOnFailure());
+    assertEquals(hjsc, stepConfig.getHadoopJarStep());
+  }
+
   /**
    * Tests that creating a RunJobFlowRequest through the helper is the same as doing it though the
    * RunJobFlowRequest constructor.
@@ -126,6 +168,67 @@ public class EMRHelperTest {
     assertEquals(rjfr1.getLogUri(), rjfr2.getLogUri());
   }
 
+  /**
+   * Tests that the default configurations only have the hive-site classification, with no
+   * compression.
+   */
+  @Test
+  public void getConfigurationsTest() {
+    Configuration[] configurations = emrh.getConfigurations();
+
+    assertEquals(1, configurations.length);
+    assertEquals("hive-site", configurations[0].getClassification());
+    assertEquals("134217728", configurations[0].getProperties().get("mapred.min.split.size"));
+    assertNull(configurations[0].getProperties().get("hive.exec.compress.intermediate"));
+  }
+
+  /**
+   * Tests that Hive plans the queries with the statistics of the tables, and converts the joins
+   * with a small side into map joins.
+   */
+  @Test
+  public void getConfigurationsStatsTest() {
+    Map<String, String> hiveProperties = emrh.getConfigurations()[0].getProperties();
+
+    assertEquals("true", hiveProperties.get("hive.cbo.enable"));
+    assertEquals("true", hiveProperties.get("hive.stats.autogather"));
+    assertEquals("true", hiveProperties.get("hive.stats.fetch.column.stats"));
+    assertEquals("true", hiveProperties.get("hive.auto.convert.join"));
+  }
+
+  /**
+   * Tests that a compression codec enables the compression of the intermediate data in Hive and of
+   * the map output in Hadoop, with that codec.
+   */
+  @Test
+  public void getConfigurationsCompressedTest() {
+    Configuration[] configurations = emrh.getConfigurations(CompressionCodec.SNAPPY);
+    String codec = "org.apache.hadoop.io.compress.SnappyCodec";
+
+    assertEquals(2, configurations.length);
+    Map<String, String> hiveProperties = configurations[0].getProperties();
+    assertEquals("true", hiveProperties.get("hive.exec.compress.intermediate"));
+    assertEquals(codec, hiveProperties.get("hive.intermediate.compression.codec"));
+
+    assertEquals("mapred-site", configurations[1].getClassification());
+    Map<String, String> mapredProperties = configurations[1].getProperties();
+    assertEquals("true", mapredProperties.get("mapreduce.map.output.compress"));
+    assertEquals(codec, mapredProperties.get("mapreduce.map.output.compress.codec"));
+  }
+
+  /**
+   * Tests that the split size and the maximum number of reducers of a plan are set in Hive.
+   */
+  @Test
+  public void getConfigurationsPlannedTest() {
+    Configuration[] configurations =
+        emrh.getConfigurations(CompressionCodec.NONE, 268435456L, 12);
+
+    assertEquals(1, configurations.length);
+    assertEquals("268435456", configurations[0].getProperties().get("mapred.min.split.size"));
+    assertEquals("12", configurations[0].getProperties().get("hive.exec.reducers.max"));
+  }
+
   /**
    * Tests that selectInstanceType helps to select an option from a list of instance types,
    * simulating the input from a String.
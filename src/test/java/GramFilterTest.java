@@ -0,0 +1,52 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class GramFilterTest {
+
+  private static final String[] grams = {
+    "guerra", "fría", "anglo-sajón", "a", "ab", "a-b", "-ab", "ab-", "a--b", "ab-cd-ef", "Guerra",
+    "guerra1", "", " ", "guerra fría", "guerra  fría", "guerra\tfría", "guerra fría ", "über",
+    "ǆemal", "guerra-fría total", "la guerra fría", "x y", "año\n"
+  };
+
+  /**
+   * Tests that the filter walking the characters agrees with the regex, for every order.
+   */
+  @Test
+  public void acceptAgreesWithRegexTest() {
+    for (int order = 1; order <= 3; order++) {
+      GramFilter filter = new GramFilter(order);
+      for (String gram : grams) {
+        assertEquals(order + " " + gram, filter.acceptRegex(gram), filter.accept(gram));
+      }
+    }
+  }
+
+  /**
+   * Tests a few grams of one and two words.
+   */
+  @Test
+  public void acceptTest() {
+    GramFilter words = new GramFilter(1);
+    GramFilter bigrams = new GramFilter(2);
+
+    assertTrue(words.accept("anglo-sajón"));
+    assertFalse(words.accept("a"));
+    assertFalse(words.accept("Guerra"));
+    assertTrue(bigrams.accept("guerra fría"));
+    assertFalse(bigrams.accept("guerra"));
+    assertFalse(bigrams.accept("la guerra fría"));
+  }
+
+  /**
+   * Tests that the regex is the one that the steps pass to the hive scripts, without escaping.
+   */
+  @Test
+  public void getRegexTest() {
+    assertEquals(GramFilter.getRegex(3), StepPlanner.getRegex(3).replace("\\\\\\", "\\"));
+  }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+public class GramFinderTest {
+
+  /**
+   * Creates a dictionary.
+   *
+   * @param grams The grams, followed by their occurrences.
+   * @return The occurrences of every gram.
+   */
+  private static Map<String, Long> dictionary(Object... grams) {
+    Map<String, Long> dictionary = new HashMap<>();
+    for (int i = 0; i < grams.length; i += 2) {
+      dictionary.put((String) grams[i], ((Integer) grams[i + 1]).longValue());
+    }
+    return dictionary;
+  }
+
+  /**
+   * Tests that the neologisms are the new grams with most occurrences.
+   */
+  @Test
+  public void findNeologismsTest() {
+    Map<String, Long> previous = dictionary("casa", 100, "perro", 50);
+    Map<String, Long> year = dictionary("casa", 110, "radio", 30, "avión", 20, "tren", 5);
+
+    List<Map.Entry<String, Long>> neologisms = GramFinder.findNeologisms(year, previous, 2);
+
+    assertEquals(2, neologisms.size());
+    assertEquals("radio", neologisms.get(0).getKey());
+    assertEquals("avión", neologisms.get(1).getKey());
+  }
+
+  /**
+   * Tests that the grams that tie at the cutoff are kept alphabetically, as the scripts do, instead
+   * of keeping all of them as a rank would.
+   */
+  @Test
+  public void findNeologismsTiesTest() {
+    Map<String, Long> year = dictionary("radio", 30, "tren", 20, "avión", 20, "barco", 20);
+
+    List<Map.Entry<String, Long>> neologisms =
+        GramFinder.findNeologisms(year, dictionary(), 3);
+
+    assertEquals(3, neologisms.size());
+    assertEquals("radio", neologisms.get(0).getKey());
+    assertEquals("avión", neologisms.get(1).getKey());
+    assertEquals("barco", neologisms.get(2).getKey());
+  }
+
+  /**
+   * Tests that every pair of years where the other language uses the gram enough more adds up, as
+   * the join of the hive script does.
+   */
+  @Test
+  public void findForeignismsTest() {
+    List<Map<String, Long>> spanish =
+        Arrays.asList(dictionary("fútbol", 2, "casa", 100), dictionary("fútbol", 3, "club", 1));
+    List<Map<String, Long>> english =
+        Arrays.asList(
+            dictionary("fútbol", 100, "club", 50, "casa", 1), dictionary("fútbol", 25, "club", 60));
+
+    List<Map.Entry<String, Long>> foreignisms =
+        GramFinder.findForeignisms(spanish, english, 10, 10);
+
+    // fútbol: 2 is less than 100 and 25 ten times, 3 only less than 100. club: 1 twice.
+    assertEquals(2, foreignisms.size());
+    assertEquals("fútbol", foreignisms.get(0).getKey());
+    assertEquals(2 + 2 + 3, (long) foreignisms.get(0).getValue());
+    assertEquals("club", foreignisms.get(1).getKey());
+    assertEquals(2, (long) foreignisms.get(1).getValue());
+  }
+}
@@ -0,0 +1,141 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class GramIndexTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File directory;
+  private GramIndex index;
+
+  /**
+   * Builds the index of a small dictionary and its neologisms, sorting them in runs of 2 rows so
+   * the runs are merged.
+   */
+  @Before
+  public void setUp() throws IOException {
+    directory = folder.newFolder();
+    File dictionary = new File(directory, "Dic.tsv");
+    Files.write(
+        dictionary.toPath(),
+        Arrays.asList(
+            "1950\tsol\t90\t5",
+            "1950\tagua\t80\t5",
+            "1950\taño\t10\t3",
+            "1951\tsol\t95\t5",
+            "1951\taño\t40\t4",
+            "1951\tluz\t20\t4",
+            "1952\taño\t60\t5",
+            "1952\tluz\t30\t5"),
+        StandardCharsets.UTF_8);
+    File neologisms = new File(directory, "Neo.tsv");
+    Files.write(
+        neologisms.toPath(),
+        Arrays.asList("1951\taño\t40\t4", "1951\tluz\t20\t4"),
+        StandardCharsets.UTF_8);
+    File file = new File(directory, "index.bin");
+
+    assertEquals(4, GramIndexBuilder.build(dictionary, neologisms, file, 2));
+    index = new GramIndex(file);
+  }
+
+  /**
+   * Gets the years of some postings.
+   *
+   * @param postings The postings.
+   * @return The years.
+   */
+  private static List<Integer> getYears(List<GramIndex.Posting> postings) {
+    List<Integer> years = new ArrayList<>();
+    for (GramIndex.Posting posting : postings) {
+      years.add(posting.getYear());
+    }
+    return years;
+  }
+
+  /**
+   * Tests that a gram has all its years, marked when it was a neologism.
+   */
+  @Test
+  public void getTest() {
+    List<GramIndex.Posting> postings = index.get("año");
+
+    assertEquals(Arrays.asList(1950, 1951, 1952), getYears(postings));
+    assertEquals(40, postings.get(1).getOccurrences());
+    assertEquals(4, postings.get(1).getYearOccurrences());
+    assertFalse(postings.get(0).isNeologism());
+    assertTrue(postings.get(1).isNeologism());
+    assertEquals("1951\taño\t40\t4\tneologism", postings.get(1).toString());
+    assertEquals(Collections.emptyList(), index.get("mar"));
+    assertEquals(Collections.emptyList(), index.get("añ"));
+  }
+
+  /**
+   * Tests that only the years of the range are returned.
+   */
+  @Test
+  public void getRangeTest() {
+    assertEquals(Arrays.asList(1951, 1952), getYears(index.get("año", 1951, 2000)));
+    assertEquals(Collections.emptyList(), getYears(index.get("sol", 1952, 1960)));
+  }
+
+  /**
+   * Tests that the grams of a prefix are found in the order of their bytes, up to the limit.
+   */
+  @Test
+  public void getGramsTest() {
+    assertEquals(Arrays.asList("agua", "año"), index.getGrams("a", 10));
+    assertEquals(Collections.singletonList("agua"), index.getGrams("a", 1));
+    assertEquals(Collections.singletonList("año"), index.getGrams("añ", 10));
+    assertEquals(Arrays.asList("agua", "año", "luz", "sol"), index.getGrams("", 10));
+    assertEquals(Collections.emptyList(), index.getGrams("z", 10));
+  }
+
+  /**
+   * Tests that the neologisms of a range come by year and by occurrences.
+   */
+  @Test
+  public void getNeologismsTest() {
+    List<GramIndex.Posting> neologisms = index.getNeologisms(1951, 1952);
+
+    assertEquals(2, neologisms.size());
+    assertEquals("año", neologisms.get(0).getGram());
+    assertEquals("luz", neologisms.get(1).getGram());
+    assertEquals(Collections.emptyList(), index.getNeologisms(1952, 1960));
+  }
+
+  /**
+   * Tests that a file that is not an index is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void notIndexTest() throws IOException {
+    new GramIndex(new File(directory, "Dic.tsv"));
+  }
+
+  /**
+   * Tests that a row without all its columns is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void wrongRowTest() throws IOException {
+    File dictionary = folder.newFile();
+    Files.write(
+        dictionary.toPath(), Collections.singletonList("sol\t90\t5"), StandardCharsets.UTF_8);
+    GramIndexBuilder.build(dictionary, null, folder.newFile());
+  }
+}
@@ -0,0 +1,58 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+public class GramSamplerTest {
+
+  /**
+   * Tests that the hash is the one of Hive for strings, which starts at 0 and adds the bytes.
+   */
+  @Test
+  public void hashTest() {
+    assertEquals(0, GramSampler.hash(""));
+    assertEquals('a', GramSampler.hash("a"));
+    assertEquals('a' * 31 + 'b', GramSampler.hash("ab"));
+    // The same as the hash of a String when the text is ASCII.
+    assertEquals("neologism".hashCode(), GramSampler.hash("neologism"));
+    // "ñ" is 0xC3 0xB1 in UTF-8, two negative bytes.
+    assertEquals((byte) 0xC3 * 31 + (byte) 0xB1, GramSampler.hash("ñ"));
+  }
+
+  /**
+   * Tests that the modulus is never negative.
+   */
+  @Test
+  public void pmodTest() {
+    assertEquals(3, GramSampler.pmod(103, 100));
+    assertEquals(97, GramSampler.pmod(-103, 100));
+    assertEquals(0, GramSampler.pmod(-100, 100));
+  }
+
+  /**
+   * Tests that the sample keeps about the percent asked for, and that it is scaled back up.
+   */
+  @Test
+  public void acceptTest() {
+    GramSampler sampler = new GramSampler(10);
+    int accepted = 0;
+    for (int i = 0; i < 100000; i++) {
+      if (sampler.accept("gram" + i)) {
+        accepted++;
+      }
+    }
+
+    assertTrue(accepted > 9000 && accepted < 11000);
+    assertEquals(100000, sampler.scaleUp(10000));
+    assertTrue(new GramSampler(100).accept("gram"));
+  }
+
+  /**
+   * Tests that an empty sample is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidPercentTest() {
+    new GramSampler(0);
+  }
+}
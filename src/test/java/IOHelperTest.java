@@ -175,4 +175,42 @@ public class IOHelperTest {
     PrintStream out = new PrintStream(outputStream);
     IOHelper.getWord(in, out);
   }
+
+  /**
+   * Tests that selectOption returns the option of the number read from the standard input.
+   */
+  @Test
+  public void selectOptionTest() {
+    String[] options = {"first", "second", "third"};
+    InputStream stdIn = System.in;
+    PrintStream systemOut = System.out;
+    System.setIn(new ByteArrayInputStream(("2" + System.lineSeparator()).getBytes()));
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+
+    try {
+      assertEquals("second", IOHelper.selectOption(options));
+    } finally {
+      System.setIn(stdIn);
+      System.setOut(systemOut);
+    }
+  }
+
+  /**
+   * Tests that selectOption throws an exception if the number read is not an option.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void selectOptionInvalidTest() {
+    String[] options = {"first", "second", "third"};
+    InputStream stdIn = System.in;
+    PrintStream systemOut = System.out;
+    System.setIn(new ByteArrayInputStream(("4" + System.lineSeparator()).getBytes()));
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+
+    try {
+      IOHelper.selectOption(options);
+    } finally {
+      System.setIn(stdIn);
+      System.setOut(systemOut);
+    }
+  }
 }
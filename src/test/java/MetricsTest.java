@@ -0,0 +1,166 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+
+public class MetricsTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Tests that the counts of several threads are all added up.
+   */
+  @Test
+  public void counterTest() throws InterruptedException {
+    final Metrics.Counter counter = new Metrics().counter("rows_total", "Rows.");
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int j = 0; j < 100000; j++) {
+                    counter.inc();
+                  }
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(400000, counter.get());
+  }
+
+  /**
+   * Tests that a metric is the same every time it is asked for, and different for other labels.
+   */
+  @Test
+  public void registerTest() {
+    Metrics metrics = new Metrics();
+    Metrics.Counter counter = metrics.counter("calls_total", "Calls.", "service", "s3");
+
+    assertSame(counter, metrics.counter("calls_total", "Calls.", "service", "s3"));
+    assertNotSame(counter, metrics.counter("calls_total", "Calls.", "service", "emr"));
+  }
+
+  /**
+   * Tests that a name can't be used for two types of metrics.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void typeConflictTest() {
+    Metrics metrics = new Metrics();
+    metrics.counter("window_bytes", "Bytes.");
+    metrics.gauge("window_bytes", "Bytes.");
+  }
+
+  /**
+   * Tests that a name that Prometheus does not accept is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidNameTest() {
+    new Metrics().counter("rows-total", "Rows.");
+  }
+
+  /**
+   * Tests that the metrics are written in the text format of Prometheus, with the help and the type
+   * once per name, the labels escaped and the buckets of the histograms cumulative.
+   */
+  @Test
+  public void writePrometheusTest() throws IOException {
+    Metrics metrics = new Metrics();
+    metrics.counter("calls_total", "Calls.", "service", "s3").add(3);
+    metrics.counter("calls_total", "Calls.", "service", "say \"emr\"").inc();
+    metrics.gauge("window_bytes", "Bytes.").set(1024);
+    Metrics.Histogram timer = metrics.timer("shift_seconds", "Shifts.");
+    timer.observe(0.0005);
+    timer.observe(0.002);
+    timer.observe(100);
+    StringWriter writer = new StringWriter();
+    metrics.writePrometheus(writer);
+
+    assertEquals(
+        "# HELP calls_total Calls.\n"
+            + "# TYPE calls_total counter\n"
+            + "calls_total{service=\"s3\"} 3\n"
+            + "calls_total{service=\"say \\\"emr\\\"\"} 1\n"
+            + "# HELP shift_seconds Shifts.\n"
+            + "# TYPE shift_seconds histogram\n"
+            + "shift_seconds_bucket{le=\"0.001\"} 1\n"
+            + "shift_seconds_bucket{le=\"0.005\"} 2\n"
+            + "shift_seconds_bucket{le=\"0.01\"} 2\n"
+            + "shift_seconds_bucket{le=\"0.05\"} 2\n"
+            + "shift_seconds_bucket{le=\"0.1\"} 2\n"
+            + "shift_seconds_bucket{le=\"0.5\"} 2\n"
+            + "shift_seconds_bucket{le=\"1.0\"} 2\n"
+            + "shift_seconds_bucket{le=\"5.0\"} 2\n"
+            + "shift_seconds_bucket{le=\"10.0\"} 2\n"
+            + "shift_seconds_bucket{le=\"60.0\"} 2\n"
+            + "shift_seconds_bucket{le=\"+Inf\"} 3\n"
+            + "shift_seconds_sum 100.0025\n"
+            + "shift_seconds_count 3\n"
+            + "# HELP window_bytes Bytes.\n"
+            + "# TYPE window_bytes gauge\n"
+            + "window_bytes 1024\n",
+        writer.toString());
+  }
+
+  /**
+   * Tests that the file is replaced whole, without leaving the temporary one.
+   */
+  @Test
+  public void writePrometheusFileTest() throws IOException {
+    Metrics metrics = new Metrics();
+    metrics.counter("rows_total", "Rows.").add(7);
+    File file = new File(folder.getRoot(), "ana.prom");
+    metrics.writePrometheus(file);
+    metrics.counter("rows_total", "Rows.").add(1);
+    metrics.writePrometheus(file);
+
+    assertTrue(
+        new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+            .endsWith("rows_total 8\n"));
+    assertFalse(new File(folder.getRoot(), "ana.prom.tmp").exists());
+  }
+
+  /**
+   * Tests that the metrics are the attributes of the bean.
+   */
+  @Test
+  public void registerMBeanTest() throws JMException {
+    Metrics metrics = new Metrics();
+    metrics.counter("calls_total", "Calls.", "service", "s3").add(2);
+    metrics.timer("shift_seconds", "Shifts.").observe(0.5);
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    ObjectName name = new ObjectName("ana:type=Metrics");
+    metrics.registerMBean(server, name);
+
+    assertEquals(2L, server.getAttribute(name, "calls_total{service=\"s3\"}"));
+    assertEquals(1L, server.getAttribute(name, "shift_seconds.count"));
+    assertEquals(0.5, (Double) server.getAttribute(name, "shift_seconds.sum"), 1e-9);
+    assertEquals(3, server.getMBeanInfo(name).getAttributes().length);
+  }
+}
@@ -0,0 +1,126 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+public class PlanEstimatorTest {
+
+  // 1Gb = 1073741824B
+  private static final long gigabyte = 1073741824L;
+
+  private EMRHelper emrh;
+  private PlanEstimator estimator;
+
+  /**
+   * Gets the environment ready for testing by mocking the AWSCredentials and setting the region.
+   */
+  @Before
+  public void setUp() {
+    AWSCredentials fakeCredentials = Mockito.mock(AWSCredentials.class);
+    Region region = Region.getRegion(Regions.US_EAST_1);
+    emrh = new EMRHelper(fakeCredentials, region);
+    estimator = new PlanEstimator(Collections.singletonMap("spa_all", 10 * gigabyte), 3, 0);
+  }
+
+  /**
+   * Gets the steps of an analysis of neologisms.
+   *
+   * @param fromYear The year to start from.
+   * @param toYear The last year to analyze.
+   * @param windowSize The size of the window.
+   * @return The steps.
+   */
+  private List<StepConfig> getSteps(int fromYear, int toYear, int windowSize) {
+    AnalysisSpec spec =
+        new AnalysisSpec()
+            .withLanguage1("spa-all")
+            .withFromYear(fromYear)
+            .withToYear(toYear)
+            .withWindowSize(windowSize)
+            .withPercentOfYears(0.8)
+            .withClusterSize(3);
+    return new StepPlanner(emrh, "s3://scripts/", "s3://output/").getSteps(spec);
+  }
+
+  /**
+   * Tests that the script and the parameters are read back from a hive step.
+   */
+  @Test
+  public void getScriptAndParametersTest() {
+    StepConfig step =
+        emrh.getHiveStep(
+            "name",
+            "s3://scripts/ShiftWindow.q",
+            StepPlanner.createParameters("ngramsTable=spa_all", "newYear=1905"));
+
+    assertEquals("ShiftWindow.q", PlanEstimator.getScript(step));
+    Map<String, String> parameters = PlanEstimator.getParameters(step);
+    assertEquals(2, parameters.size());
+    assertEquals("spa_all", parameters.get("ngramsTable"));
+    assertEquals("1905", parameters.get("newYear"));
+  }
+
+  /**
+   * Tests that every step depends on the steps that wrote the tables it reads.
+   */
+  @Test
+  public void describeTest() {
+    String description = estimator.describe(getSteps(1900, 1910, 5));
+
+    assertTrue(description.contains("Step-001 ImportNgrams.q, after: -, input: 10240Mb"));
+    assertTrue(description.contains("Step-002 CreateWindow.q, after: Step-001"));
+    assertTrue(description.contains("Step-003 ShiftWindow.q, after: Step-002, Step-001"));
+    assertTrue(description.contains("Step-009 ComputeStats.q, after: Step-008"));
+    assertTrue(description.contains("Step-010 ProcessNeologisms.q, after: Step-008"));
+    assertTrue(description.contains("    newYear=1905\n"));
+    assertTrue(description.contains("Steps: 15 of 256\n"));
+    assertFalse(description.contains("TOO MANY STEPS"));
+  }
+
+  /**
+   * Tests that an analysis with more steps than EMR accepts is reported.
+   */
+  @Test
+  public void tooManyStepsTest() {
+    assertTrue(estimator.describe(getSteps(1700, 2008, 1)).contains("TOO MANY STEPS"));
+  }
+
+  /**
+   * Tests that a preview reports what the full analysis would take.
+   */
+  @Test
+  public void sampleTest() {
+    String full = estimator.describe(getSteps(1900, 1910, 5));
+    String preview =
+        new PlanEstimator(Collections.singletonMap("spa_all", 10 * gigabyte), 3, 0, 10)
+            .describe(getSteps(1900, 1910, 5));
+
+    assertFalse(full.contains("Sample:"));
+    assertTrue(preview.contains("Sample: 10% of the grams, the full analysis would take "));
+    // The import reads all the ngrams anyway.
+    assertTrue(preview.contains("Step-001 ImportNgrams.q, after: -, input: 10240Mb"));
+  }
+
+  /**
+   * Tests that more slaves take less time, but every step takes some time.
+   */
+  @Test
+  public void getSecondsTest() {
+    assertEquals(30, PlanEstimator.getSeconds(0, 4));
+    assertEquals(30 + 64, PlanEstimator.getSeconds(gigabyte, 1));
+    assertEquals(30 + 16, PlanEstimator.getSeconds(gigabyte, 4));
+  }
+}
@@ -0,0 +1,103 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+
+public class ResultMergerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Writes a part file, compressed with gzip if its name ends with .gz.
+   *
+   * @param name The name of the file.
+   * @param rows The rows, separated by new lines.
+   * @return The file.
+   */
+  private File writePart(String name, String rows) throws IOException {
+    File part = folder.newFile(name);
+    try (OutputStream out =
+        name.endsWith(".gz")
+            ? new GZIPOutputStream(new FileOutputStream(part))
+            : new FileOutputStream(part)) {
+      out.write(rows.getBytes(StandardCharsets.UTF_8));
+    }
+    return part;
+  }
+
+  /**
+   * Tests that the parts are merged by year and then by occurrences, decompressing the gzip ones.
+   */
+  @Test
+  public void mergeTest() throws IOException {
+    File output = folder.newFile();
+    long rows =
+        ResultMerger.merge(
+            Arrays.asList(
+                writePart("000000_0.gz", "año\t50\t5\nsol\t7\t3\n"),
+                writePart("000000_0", "mar\t9\t2\n"),
+                writePart("000001_0", "luz\t60\t6\nrío\t8\t4\n")),
+            Arrays.asList("1951", "1950", "1951"),
+            output);
+
+    assertEquals(5, rows);
+    assertEquals(
+        Arrays.asList(
+            "1950\tmar\t9\t2",
+            "1951\tluz\t60\t6",
+            "1951\taño\t50\t5",
+            "1951\trío\t8\t4",
+            "1951\tsol\t7\t3"),
+        Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Tests that the rows of an output with no years are written as they are.
+   */
+  @Test
+  public void noYearsTest() throws IOException {
+    File output = folder.newFile();
+    ResultMerger.merge(
+        Arrays.asList(writePart("a", "fútbol\t30\n"), writePart("b", "")),
+        Arrays.asList((String) null, null),
+        output);
+
+    assertEquals(
+        Collections.singletonList("fútbol\t30"),
+        Files.readAllLines(output.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Tests that a part compressed with a codec of Hadoop is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void snappyTest() throws IOException {
+    ResultMerger.merge(
+        Collections.singletonList(writePart("000000_0.snappy", "")),
+        Collections.singletonList("1950"),
+        folder.newFile());
+  }
+
+  /**
+   * Tests that a row without occurrences fails instead of being merged out of order.
+   */
+  @Test(expected = IOException.class)
+  public void noOccurrencesTest() throws IOException {
+    ResultMerger.merge(
+        Collections.singletonList(writePart("000000_0", "año\n")),
+        Collections.singletonList("1950"),
+        folder.newFile());
+  }
+}
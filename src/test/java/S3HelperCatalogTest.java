@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+
+public class S3HelperCatalogTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private AmazonS3 s3;
+  private AwsCallPool pool;
+  private S3Helper s3h;
+
+  @Before
+  public void setUp() throws IOException {
+    s3 = Mockito.mock(AmazonS3.class);
+    pool = new AwsCallPool(4, 8, 3, 1, 10);
+    s3h = new S3Helper(s3, new CatalogCache(folder.newFile(), 0), pool);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that a prefetch of the languages that failed is not kept, so the next one lists them
+   * again.
+   */
+  @Test
+  public void prefetchLanguagesRetryTest() throws Exception {
+    ObjectListing listing = new ObjectListing();
+    listing.getCommonPrefixes().add("ngrams/books/20090715/eng-all/");
+    listing.getCommonPrefixes().add("ngrams/books/20090715/spa-all/");
+    Mockito.when(s3.listObjects(Mockito.any(ListObjectsRequest.class)))
+        .thenThrow(new AmazonClientException("Unable to reach S3."))
+        .thenReturn(listing);
+
+    try {
+      s3h.prefetchLanguages().get();
+      fail("The prefetch should have failed.");
+    } catch (ExecutionException ee) {
+      assertTrue(ee.getCause() instanceof AmazonClientException);
+    }
+    List<String> languages = s3h.prefetchLanguages().get();
+
+    assertEquals(Arrays.asList("eng-all", "spa-all"), languages);
+    assertEquals(languages, s3h.prefetchLanguages().get());
+    Mockito.verify(s3, Mockito.times(2)).listObjects(Mockito.any(ListObjectsRequest.class));
+  }
+
+  /**
+   * Tests that every helper keeps its own client, so a helper created later does not take the
+   * calls of the earlier ones.
+   */
+  @Test
+  public void ownClientTest() throws Exception {
+    ObjectListing listing = new ObjectListing();
+    listing.getCommonPrefixes().add("ngrams/books/20090715/eng-all/");
+    Mockito.when(s3.listObjects(Mockito.any(ListObjectsRequest.class))).thenReturn(listing);
+    AmazonS3 other = Mockito.mock(AmazonS3.class);
+    new S3Helper(other, new CatalogCache(folder.newFile(), 0), pool);
+
+    assertEquals(Arrays.asList("eng-all"), s3h.prefetchLanguages().get());
+    Mockito.verifyZeroInteractions(other);
+  }
+}
@@ -0,0 +1,215 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+
+public class S3HelperResultsTest {
+
+  // The keys of every page of the listings, to go through several of them.
+  private static final int pageSize = 2;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File root;
+  private AmazonS3 s3;
+
+  /**
+   * Creates a stand-in for S3 over a directory, where s3://bucket/key is directory/bucket/key, that
+   * lists the objects by pages and serves ranges of them.
+   */
+  @Before
+  public void setUp() throws IOException {
+    root = folder.newFolder();
+    s3 = Mockito.mock(AmazonS3.class);
+    Mockito.when(s3.listObjects(Mockito.any(ListObjectsRequest.class)))
+        .thenAnswer(
+            new Answer<ObjectListing>() {
+              @Override
+              public ObjectListing answer(InvocationOnMock invocation) throws IOException {
+                ListObjectsRequest request = (ListObjectsRequest) invocation.getArguments()[0];
+                return list(request.getBucketName(), request.getPrefix(), 0);
+              }
+            });
+    Mockito.when(s3.listNextBatchOfObjects(Mockito.any(ObjectListing.class)))
+        .thenAnswer(
+            new Answer<ObjectListing>() {
+              @Override
+              public ObjectListing answer(InvocationOnMock invocation) throws IOException {
+                ObjectListing previous = (ObjectListing) invocation.getArguments()[0];
+                return list(
+                    previous.getBucketName(),
+                    previous.getPrefix(),
+                    Integer.parseInt(previous.getNextMarker()));
+              }
+            });
+    Mockito.when(s3.getObject(Mockito.any(GetObjectRequest.class)))
+        .thenAnswer(
+            new Answer<S3Object>() {
+              @Override
+              public S3Object answer(InvocationOnMock invocation) throws IOException {
+                GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+                byte[] content =
+                    Files.readAllBytes(
+                        new File(root, request.getBucketName() + "/" + request.getKey())
+                            .toPath());
+                long[] range = request.getRange();
+                S3Object object = new S3Object();
+                object.setObjectContent(
+                    new ByteArrayInputStream(
+                        Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1)));
+                return object;
+              }
+            });
+  }
+
+  /**
+   * Lists a page of the objects under a prefix of the stand-in, sorted by key as S3 does.
+   *
+   * @param bucketName The bucket.
+   * @param prefix The prefix of the keys.
+   * @param from The index of the first key of the page.
+   * @return The page.
+   */
+  private ObjectListing list(String bucketName, String prefix, int from) throws IOException {
+    List<String> keys = new ArrayList<>();
+    File bucket = new File(root, bucketName);
+    for (File file : listFiles(bucket)) {
+      String key = bucket.toPath().relativize(file.toPath()).toString().replace('\\', '/');
+      if (key.startsWith(prefix)) {
+        keys.add(key);
+      }
+    }
+    Collections.sort(keys);
+
+    ObjectListing listing = new ObjectListing();
+    listing.setBucketName(bucketName);
+    listing.setPrefix(prefix);
+    for (String key : keys.subList(from, Math.min(from + pageSize, keys.size()))) {
+      S3ObjectSummary summary = new S3ObjectSummary();
+      summary.setBucketName(bucketName);
+      summary.setKey(key);
+      summary.setSize(new File(bucket, key).length());
+      listing.getObjectSummaries().add(summary);
+    }
+    listing.setTruncated(from + pageSize < keys.size());
+    listing.setNextMarker(Integer.toString(from + pageSize));
+    return listing;
+  }
+
+  /**
+   * Lists the files under a directory, recursively.
+   *
+   * @param directory The directory.
+   * @return The files.
+   */
+  private List<File> listFiles(File directory) {
+    List<File> files = new ArrayList<>();
+    for (File file : directory.listFiles()) {
+      if (file.isDirectory()) {
+        files.addAll(listFiles(file));
+      } else {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Writes an object in the stand-in, compressed with gzip if its key ends with .gz.
+   *
+   * @param url The URL of the object.
+   * @param rows The rows, separated by new lines.
+   */
+  private void putObject(String url, String rows) throws IOException {
+    File file = new File(root, url.substring("s3://".length()));
+    file.getParentFile().mkdirs();
+    try (OutputStream out =
+        url.endsWith(".gz")
+            ? new GZIPOutputStream(new FileOutputStream(file))
+            : new FileOutputStream(file)) {
+      out.write(rows.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Tests that every output is downloaded by ranges into a single file, merged by year and by
+   * occurrences, and that the manifests and the markers are skipped.
+   */
+  @Test
+  public void downloadResultsTest() throws IOException {
+    String output = "s3://bucket/EMR/Output/spa/";
+    putObject(output + "spa_all/Dic/year=1950/000000_0.gz", "año\t50\t5\t9\nsol\t7\t3\t4\n");
+    putObject(output + "spa_all/Dic/year=1950/000001_0.gz", "luz\t60\t6\t8\n");
+    putObject(output + "spa_all/Dic/year=1951/000000_0", "mar\t9\t2\t3\n");
+    putObject(output + "spa_all/Dic/_manifest/year=1950/000000_0", "3\t2016-01-01 00:00:00\n");
+    putObject(output + "spa_all/Dic_$folder$", "");
+    putObject(output + "spa_all/Foreignisms/eng_all/000000_0", "fútbol\t30\nrock\t20\n");
+    putObject(output + "spa_all/Foreignisms/eng_all/_SUCCESS", "");
+    File directory = folder.newFolder();
+
+    List<File> files =
+        new S3Helper(s3, new CatalogCache(folder.newFile(), 0))
+            .downloadResults(output, directory, 5);
+
+    File dictionary = new File(directory, "spa_all/Dic.tsv");
+    File foreignisms = new File(directory, "spa_all/Foreignisms/eng_all.tsv");
+    assertEquals(Arrays.asList(dictionary, foreignisms), files);
+    assertEquals(
+        Arrays.asList(
+            "1950\tluz\t60\t6\t8",
+            "1950\taño\t50\t5\t9",
+            "1950\tsol\t7\t3\t4",
+            "1951\tmar\t9\t2\t3"),
+        Files.readAllLines(dictionary.toPath(), StandardCharsets.UTF_8));
+    assertEquals(
+        Arrays.asList("fútbol\t30", "rock\t20"),
+        Files.readAllLines(foreignisms.toPath(), StandardCharsets.UTF_8));
+    // The foreignisms take 19 bytes, so they are fetched in 4 ranges.
+    Mockito.verify(s3, Mockito.atLeast(4)).getObject(Mockito.any(GetObjectRequest.class));
+    // The temporary parts are deleted.
+    assertEquals(1, directory.list().length);
+  }
+
+  /**
+   * Tests that the results of a single output are named after its folder.
+   */
+  @Test
+  public void downloadOutputTest() throws IOException {
+    putObject("s3://bucket/EMR/Output/spa/spa_all/Neo/year=1950/000000_0", "luz\t60\t6\n");
+    File directory = folder.newFolder();
+
+    List<File> files =
+        new S3Helper(s3, new CatalogCache(folder.newFile(), 0))
+            .downloadResults("s3://bucket/EMR/Output/spa/spa_all/Neo", directory);
+
+    assertEquals(Collections.singletonList(new File(directory, "Neo.tsv")), files);
+    assertFalse(new File(directory, "year=1950").exists());
+  }
+}
@@ -0,0 +1,115 @@
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+public class S3HelperScriptsTest {
+
+  // The hive scripts and the rest of the scripts for the cluster.
+  private static final int scripts = 7;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Map<String, ObjectMetadata> objects = new ConcurrentHashMap<>();
+  private AmazonS3 s3;
+  private AwsCallPool pool;
+  private S3Helper s3h;
+
+  /**
+   * Creates a stand-in for S3 that keeps the metadata of the objects put in it.
+   */
+  @Before
+  public void setUp() throws IOException {
+    s3 = Mockito.mock(AmazonS3.class);
+    Mockito.when(s3.putObject(Mockito.any(PutObjectRequest.class)))
+        .thenAnswer(
+            new Answer<PutObjectResult>() {
+              @Override
+              public PutObjectResult answer(InvocationOnMock invocation) {
+                PutObjectRequest request = (PutObjectRequest) invocation.getArguments()[0];
+                String key = request.getBucketName() + "/" + request.getKey();
+                objects.put(key, request.getMetadata());
+                return new PutObjectResult();
+              }
+            });
+    Mockito.when(s3.getObjectMetadata(Mockito.anyString(), Mockito.anyString()))
+        .thenAnswer(
+            new Answer<ObjectMetadata>() {
+              @Override
+              public ObjectMetadata answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                ObjectMetadata metadata = objects.get(args[0] + "/" + args[1]);
+                if (metadata == null) {
+                  AmazonServiceException ase = new AmazonServiceException("Not Found");
+                  ase.setStatusCode(404);
+                  throw ase;
+                }
+                return metadata;
+              }
+            });
+    pool = new AwsCallPool(4, 8, 3, 1, 10);
+    s3h = new S3Helper(s3, new CatalogCache(folder.newFile(), 0), pool);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Tests that the scripts are uploaded once, and skipped while their content does not change.
+   */
+  @Test
+  public void skipUnchangedTest() throws IOException {
+    s3h.uploadHiveScripts("bucket", "EMR/HiveScripts/");
+    s3h.uploadHiveScripts("bucket", "EMR/HiveScripts/");
+
+    assertEquals(scripts, objects.size());
+    Mockito.verify(s3, Mockito.times(scripts)).putObject(Mockito.any(PutObjectRequest.class));
+    Mockito.verify(s3, Mockito.times(2 * scripts))
+        .getObjectMetadata(Mockito.anyString(), Mockito.anyString());
+  }
+
+  /**
+   * Tests that an upload that fails throws the error of S3, instead of leaving the scripts behind.
+   */
+  @Test(expected = AmazonServiceException.class)
+  public void uploadErrorTest() throws IOException {
+    AmazonServiceException denied = new AmazonServiceException("Access Denied");
+    denied.setErrorCode("AccessDenied");
+    denied.setStatusCode(403);
+    Mockito.doThrow(denied).when(s3).putObject(Mockito.any(PutObjectRequest.class));
+
+    s3h.uploadHiveScripts("bucket", "EMR/HiveScripts/");
+  }
+
+  /**
+   * Tests that a script whose content changed is uploaded again.
+   */
+  @Test
+  public void uploadChangedTest() throws IOException {
+    s3h.uploadHiveScripts("bucket", "EMR/HiveScripts/");
+    objects.get("bucket/EMR/HiveScripts/ImportNgrams.q").addUserMetadata("content-md5", "old");
+    s3h.uploadHiveScripts("bucket", "EMR/HiveScripts/");
+
+    Mockito.verify(s3, Mockito.times(scripts + 1))
+        .putObject(Mockito.any(PutObjectRequest.class));
+  }
+}
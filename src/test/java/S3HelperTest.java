@@ -1,4 +1,6 @@
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.auth.AWSCredentials;
@@ -7,6 +9,8 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -72,4 +76,32 @@ public class S3HelperTest {
     s3.deleteBucket(bucketName);
     temp.delete();
   }
+
+  /**
+   * Tests that the hive scripts are uploaded with the hash of their content, and that uploading
+   * them again keeps the same objects. Then deletes them and the bucket for cleaning purposes.
+   *
+   * @throws IOException if a script can not be read.
+   */
+  @Test
+  public void uploadHiveScriptsTest() throws IOException {
+    String bucketName = "ana-test-" + UUID.randomUUID();
+    String scriptsPath = "scripts/";
+    s3h.createBucket(bucketName);
+
+    s3h.uploadHiveScripts(bucketName, scriptsPath);
+    ObjectMetadata metadata = s3.getObjectMetadata(bucketName, scriptsPath + "ImportNgrams.q");
+    assertNotNull(metadata.getUserMetaDataOf("content-md5"));
+
+    s3h.uploadHiveScripts(bucketName, scriptsPath);
+    assertEquals(
+        metadata.getLastModified(),
+        s3.getObjectMetadata(bucketName, scriptsPath + "ImportNgrams.q").getLastModified());
+
+    // Clean up
+    for (S3ObjectSummary summary : s3.listObjects(bucketName, scriptsPath).getObjectSummaries()) {
+      s3.deleteObject(bucketName, summary.getKey());
+    }
+    s3.deleteBucket(bucketName);
+  }
 }
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+import com.amazonaws.util.IOUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class ScriptCheckerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private EMRHelper emrh;
+
+  @Before
+  public void setUp() {
+    AWSCredentials fakeCredentials = Mockito.mock(AWSCredentials.class);
+    emrh = new EMRHelper(fakeCredentials, Region.getRegion(Regions.US_EAST_1));
+  }
+
+  /**
+   * Gets the steps of an analysis of both languages.
+   *
+   * @return The steps.
+   */
+  private List<StepConfig> getSteps() {
+    AnalysisSpec spec =
+        new AnalysisSpec()
+            .withLanguage1("spa-all")
+            .withLanguage2("eng-all")
+            .withFromYear(1950)
+            .withToYear(1965)
+            .withWindowSize(5)
+            .withPercentOfYears(0.8)
+            .withNeologismsPerYear(10)
+            .withUsageRatio(10)
+            .withClusterSize(3);
+    return new StepPlanner(emrh, "s3://scripts/", "s3://output/").getSteps(spec);
+  }
+
+  /**
+   * Tests that every step of an analysis passes exactly the parameters of its script, and that
+   * the scripts are written with them substituted.
+   */
+  @Test
+  public void checkTest() throws IOException {
+    File directory = new File(folder.getRoot(), "scripts");
+    List<StepConfig> steps = getSteps();
+    String report = new ScriptChecker(directory).check(steps);
+
+    assertTrue(report.contains("Step-001 ImportNgrams.q: "));
+    assertTrue(report.endsWith(steps.size() + " steps checked, their scripts are in " + directory));
+    File script = new File(directory, "Step-001-ImportNgrams.q");
+    try (InputStream in = new FileInputStream(script)) {
+      String text = IOUtils.toString(in);
+      assertFalse(text.contains("${"));
+      assertTrue(text.contains("1950"));
+    }
+  }
+
+  /**
+   * Tests that the parameters are substituted, but not the ones of the comments.
+   */
+  @Test
+  public void substituteTest() {
+    assertEquals(
+        "year=1905 AND year<1910\n",
+        ScriptChecker.substitute(
+            "Step-001",
+            "-- Needs ${windowSize}\nyear=${newYear} AND year<${toYear}",
+            PlanEstimator.getParameters(
+                emrh.getHiveStep(
+                    "Step-001",
+                    "s3://scripts/ShiftWindow.q",
+                    StepPlanner.createParameters("newYear=1905", "toYear=1910")))));
+  }
+
+  /**
+   * Tests that a script that needs a parameter that the step does not pass fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void missingParameterTest() {
+    ScriptChecker.substitute(
+        "Step-001", "year=${newYear}", Collections.singletonMap("year", "1905"));
+  }
+
+  /**
+   * Tests that a step that passes a parameter that its script does not use fails, as it is likely
+   * a parameter that was renamed in the script.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unusedParameterTest() {
+    ScriptChecker.substitute(
+        "Step-001",
+        "year=${newYear}",
+        PlanEstimator.getParameters(
+            emrh.getHiveStep(
+                "Step-001",
+                "s3://scripts/ShiftWindow.q",
+                StepPlanner.createParameters("newYear=1905", "oldYear=1900"))));
+  }
+
+  /**
+   * Tests that a step that runs a script that is not in the resources fails.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownScriptTest() throws IOException {
+    StepConfig step = emrh.getHiveStep("Step-001", "s3://scripts/Missing.q", new String[0]);
+    new ScriptChecker(folder.getRoot()).check(Arrays.asList(step));
+  }
+}
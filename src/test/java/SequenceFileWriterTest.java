@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+public class SequenceFileWriterTest {
+
+  /**
+   * Reads a Text as Hadoop serializes it.
+   *
+   * @param in The stream.
+   * @return The text.
+   * @throws IOException If the stream can't be read.
+   */
+  private static String readText(DataInputStream in) throws IOException {
+    int first = in.readByte();
+    int length = first;
+    if (first < -112) {
+      length = 0;
+      for (int i = 0; i < -112 - first; i++) {
+        length = (length << 8) | in.readUnsignedByte();
+      }
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Tests that the integers are written as Hadoop does, with a byte for the small ones.
+   */
+  @Test
+  public void writeVIntTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    SequenceFileWriter.writeVInt(out, 127);
+    SequenceFileWriter.writeVInt(out, 128);
+    SequenceFileWriter.writeVInt(out, 70000);
+
+    assertEquals(
+        Arrays.toString(new byte[] {127, -113, (byte) 128, -115, 1, 17, 112}),
+        Arrays.toString(bytes.toByteArray()));
+    assertEquals(4, SequenceFileWriter.getVIntSize(70000));
+  }
+
+  /**
+   * Tests that the header names the classes of Hadoop, and that every row is numbered, with the
+   * sync markers between them.
+   */
+  @Test
+  public void appendTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (SequenceFileWriter writer = new SequenceFileWriter(bytes, 42)) {
+      for (int i = 0; i < 200; i++) {
+        writer.append("guerra fría\t19" + (i % 100) + "\t" + i + "\t1\t1");
+      }
+    }
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    byte[] magic = new byte[4];
+    in.readFully(magic);
+    assertEquals("SEQ", new String(magic, 0, 3, StandardCharsets.US_ASCII));
+    assertEquals(6, magic[3]);
+    assertEquals("org.apache.hadoop.io.LongWritable", readText(in));
+    assertEquals("org.apache.hadoop.io.Text", readText(in));
+    assertEquals(false, in.readBoolean());
+    assertEquals(false, in.readBoolean());
+    assertEquals(0, in.readInt());
+    byte[] sync = new byte[16];
+    in.readFully(sync);
+
+    int syncs = 0;
+    for (int i = 0; i < 200; i++) {
+      int length = in.readInt();
+      if (length == -1) {
+        byte[] marker = new byte[16];
+        in.readFully(marker);
+        assertEquals(Arrays.toString(sync), Arrays.toString(marker));
+        syncs++;
+        length = in.readInt();
+      }
+      assertEquals(8, in.readInt());
+      assertEquals(i, in.readLong());
+      String row = readText(in);
+      assertEquals(length - 8, row.getBytes(StandardCharsets.UTF_8).length + 1);
+      assertEquals(String.valueOf(i), row.split("\t")[2]);
+    }
+    assertEquals(-1, in.read());
+    // About 8400 bytes of records, with a sync marker every 2000.
+    assertEquals(4, syncs);
+  }
+}
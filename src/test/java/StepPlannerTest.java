@@ -0,0 +1,191 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.elasticmapreduce.model.StepConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+public class StepPlannerTest {
+
+  private StepPlanner planner;
+
+  /**
+   * Gets the environment ready for testing by mocking the AWSCredentials and setting the region.
+   */
+  @Before
+  public void setUp() {
+    AWSCredentials fakeCredentials = Mockito.mock(AWSCredentials.class);
+    Region region = Region.getRegion(Regions.US_EAST_1);
+    planner =
+        new StepPlanner(new EMRHelper(fakeCredentials, region), "s3://scripts/", "s3://output/");
+  }
+
+  /**
+   * Gets a valid analysis of neologisms.
+   *
+   * @return The analysis.
+   */
+  private AnalysisSpec getSpec() {
+    return new AnalysisSpec()
+        .withLanguage1("spa-all")
+        .withFromYear(1900)
+        .withToYear(1910)
+        .withWindowSize(5)
+        .withPercentOfYears(0.8)
+        .withClusterSize(3);
+  }
+
+  /**
+   * Tests the steps of an analysis of neologisms: import and its statistics, window and 6 shifts
+   * and the statistics of the dictionary, then 6 years of neologisms.
+   */
+  @Test
+  public void neologismsStepsTest() {
+    List<StepConfig> steps = planner.getSteps(getSpec());
+
+    assertEquals(15, steps.size());
+    assertEquals("Step-001", steps.get(0).getName());
+    assertEquals("Step-015", steps.get(14).getName());
+  }
+
+  /**
+   * Tests that the statistics of the dictionary are gathered after its last shift, before any join
+   * reads it, and the ones of the normalized table, which no join reads, are not.
+   */
+  @Test
+  public void statsStepsTest() {
+    List<StepConfig> steps = planner.getSteps(getSpec());
+    Map<String, String> dictionary = PlanEstimator.getParameters(steps.get(8));
+
+    assertEquals("CreateWindow.q", PlanEstimator.getScript(steps.get(1)));
+    assertEquals("ShiftWindow.q", PlanEstimator.getScript(steps.get(7)));
+    assertEquals("ComputeStats.q", PlanEstimator.getScript(steps.get(8)));
+    assertEquals("dictionary", dictionary.get("table"));
+    assertEquals("spa_all", dictionary.get("ngramsTable"));
+    assertEquals("gram,occurrences,yearOccurrences", dictionary.get("columns"));
+    assertEquals("ProcessNeologisms.q", PlanEstimator.getScript(steps.get(9)));
+  }
+
+  /**
+   * Tests that a second language adds its dictionary and the foreignisms.
+   */
+  @Test
+  public void foreignismsStepsTest() {
+    List<StepConfig> steps = planner.getSteps(getSpec().withLanguage2("eng-all"));
+
+    assertEquals(15 + 9 + 1, steps.size());
+  }
+
+  /**
+   * Tests that a list of languages gets a dictionary and neologisms for each of them, and the
+   * foreignisms of every ordered pair.
+   */
+  @Test
+  public void multiLanguageStepsTest() {
+    AnalysisSpec spec =
+        getSpec().withLanguage1(null).withLanguages(Arrays.asList("spa-all", "eng-all", "fre-all"));
+    List<StepConfig> steps = planner.getSteps(spec);
+
+    assertEquals(3 * 9 + 6 + 3 * 6, steps.size());
+    int foreignisms = 0;
+    for (StepConfig step : steps) {
+      if (PlanEstimator.getScript(step).equals("ExportForeignisms.q")) {
+        foreignisms++;
+      }
+    }
+    assertEquals(6, foreignisms);
+  }
+
+  /**
+   * Tests that a cluster with task instances gets a resize step around every phase: up for the
+   * import, down for the shifts and down for the neologisms.
+   */
+  @Test
+  public void resizeStepsTest() {
+    List<StepConfig> steps = planner.getSteps(getSpec().withClusterSize(4).withTaskInstances(1));
+
+    assertEquals(15 + 3, steps.size());
+  }
+
+  /**
+   * Tests that the grams of more words are imported from their own folder, with their own regex.
+   */
+  @Test
+  public void ngramOrderTest() {
+    List<StepConfig> steps = planner.getSteps(getSpec().withNgramOrder(3));
+    Map<String, String> parameters = PlanEstimator.getParameters(steps.get(0));
+
+    assertEquals(StepPlanner.ngramsFullPath + "spa-all/3gram/", parameters.get("ngramsLocation"));
+    assertEquals("spa_all_3gram", parameters.get("ngramsTable"));
+    assertEquals(StepPlanner.getRegex(3), parameters.get("regex"));
+  }
+
+  /**
+   * Tests that the regex accepts as many words as the order of the grams.
+   */
+  @Test
+  public void getRegexTest() {
+    // The parameters are escaped twice, once for the step and once for hive.
+    String regex = StepPlanner.getRegex(2).replace("\\\\\\", "\\");
+
+    assertTrue("guerra fría".matches(regex));
+    assertTrue("anglo-sajón puro".matches(regex));
+    assertFalse("guerra".matches(regex));
+    assertFalse("guerra Fría".matches(regex));
+    assertFalse("la guerra fría".matches(regex));
+  }
+
+  /**
+   * Tests that only a broadcast changes the settings of the joins, so with SHUFFLE Hive still
+   * converts the joins with a small side into map joins by itself.
+   */
+  @Test
+  public void joinStrategyTest() {
+    StepConfig shuffle =
+        planner
+            .getSteps(getSpec().withLanguage2("eng-all").withJoinStrategy(JoinStrategy.SHUFFLE))
+            .get(18);
+    StepConfig broadcast =
+        planner
+            .getSteps(getSpec().withLanguage2("eng-all").withJoinStrategy(JoinStrategy.BROADCAST))
+            .get(18);
+
+    assertEquals("ExportForeignisms.q", PlanEstimator.getScript(shuffle));
+    assertFalse(shuffle.getHadoopJarStep().getArgs().contains("--hiveconf"));
+    assertEquals("ExportForeignisms.q", PlanEstimator.getScript(broadcast));
+    assertTrue(
+        broadcast.getHadoopJarStep().getArgs().contains("hive.auto.convert.join=true"));
+  }
+
+  /**
+   * Tests that every parameter gets the "-d" option before it.
+   */
+  @Test
+  public void createParametersTest() {
+    String[] expected = {"-d", "a=1", "-d", "b=2"};
+
+    assertArrayEquals(expected, StepPlanner.createParameters("a=1", "b=2"));
+  }
+
+  /**
+   * Tests that every setting gets the "--hiveconf" option before it.
+   */
+  @Test
+  public void createSettingsTest() {
+    String[] expected = {"--hiveconf", "a=1", "--hiveconf", "b=2"};
+
+    assertArrayEquals(expected, StepPlanner.createSettings("a=1", "b=2"));
+  }
+}
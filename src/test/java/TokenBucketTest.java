@@ -0,0 +1,59 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+public class TokenBucketTest {
+
+  /**
+   * Tests that a full bucket lets the burst through, and then spaces the calls by the rate.
+   */
+  @Test
+  public void reserveTest() {
+    TokenBucket bucket = new TokenBucket(10, 2);
+    long now = System.nanoTime();
+
+    assertEquals(0, bucket.reserve(now));
+    assertEquals(0, bucket.reserve(now));
+    assertEquals(100000000L, bucket.reserve(now));
+    // The calls already waiting go first.
+    assertEquals(200000000L, bucket.reserve(now));
+  }
+
+  /**
+   * Tests that the bucket refills at its rate, but never over the burst.
+   */
+  @Test
+  public void refillTest() {
+    TokenBucket bucket = new TokenBucket(10, 2);
+    long now = System.nanoTime();
+    bucket.reserve(now);
+    bucket.reserve(now);
+
+    assertEquals(0, bucket.reserve(now + 100000000L));
+    now += 60000000000L;
+    assertEquals(0, bucket.reserve(now));
+    assertEquals(0, bucket.reserve(now));
+    assertEquals(100000000L, bucket.reserve(now));
+  }
+
+  /**
+   * Tests that acquiring the tokens waits for them.
+   */
+  @Test
+  public void acquireTest() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(20, 1);
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      bucket.acquire();
+    }
+
+    // The first token is there, the next 4 take 50ms each.
+    assertEquals(true, System.nanoTime() - start >= 190000000L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidRateTest() {
+    new TokenBucket(0, 1);
+  }
+}
@@ -0,0 +1,84 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+
+public class TopKTest {
+
+  private static final Comparator<Integer> naturalOrder =
+      new Comparator<Integer>() {
+        @Override
+        public int compare(Integer i1, Integer i2) {
+          return i1.compareTo(i2);
+        }
+      };
+
+  /**
+   * Tests that only the K greatest elements are kept, sorted from the greatest to the smallest.
+   */
+  @Test
+  public void keepsGreatestTest() {
+    TopK<Integer> topK = new TopK<Integer>(3, naturalOrder);
+    for (int i : new int[] {5, 1, 9, 3, 7, 2, 8}) {
+      topK.offer(i);
+    }
+
+    assertEquals(3, topK.size());
+    assertEquals(Arrays.asList(9, 8, 7), topK.toList());
+  }
+
+  /**
+   * Tests that an element is rejected once the heap is full and it is not greater than the
+   * smallest element kept.
+   */
+  @Test
+  public void offerTest() {
+    TopK<Integer> topK = new TopK<Integer>(2, naturalOrder);
+
+    assertTrue(topK.offer(4));
+    assertTrue(topK.offer(6));
+    assertFalse(topK.offer(4));
+    assertFalse(topK.offer(1));
+    assertTrue(topK.offer(5));
+    assertEquals(Arrays.asList(6, 5), topK.toList());
+  }
+
+  /**
+   * Tests that merging the selections of several partitions gives the same result as selecting
+   * over all the elements at once.
+   */
+  @Test
+  public void mergeTest() {
+    Random random = new Random(42);
+    TopK<Integer> all = new TopK<Integer>(10, naturalOrder);
+    TopK<Integer> merged = new TopK<Integer>(10, naturalOrder);
+    for (int p = 0; p < 4; p++) {
+      TopK<Integer> partition = new TopK<Integer>(10, naturalOrder);
+      for (int i = 0; i < 1000; i++) {
+        int value = random.nextInt(100000);
+        all.offer(value);
+        partition.offer(value);
+      }
+      merged.merge(partition);
+    }
+
+    List<Integer> expected = all.toList();
+    assertEquals(10, expected.size());
+    assertEquals(expected, merged.toList());
+  }
+
+  /**
+   * Tests that K must be positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidKTest() {
+    new TopK<Integer>(0, naturalOrder);
+  }
+}
@@ -0,0 +1,66 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+public class WindowAggregatorTest {
+
+  /**
+   * Creates the occurrences of a year.
+   *
+   * @param grams The grams, followed by their occurrences.
+   * @return The occurrences of every gram.
+   */
+  private static Map<String, Long> year(Object... grams) {
+    Map<String, Long> year = new HashMap<>();
+    for (int i = 0; i < grams.length; i += 2) {
+      year.put((String) grams[i], ((Integer) grams[i + 1]).longValue());
+    }
+    return year;
+  }
+
+  /**
+   * Tests that a shift adds the new year and subtracts the oldest one, dropping the grams left in
+   * no year.
+   */
+  @Test
+  public void shiftTest() {
+    Map<String, Long> y1 = year("casa", 10, "perro", 3);
+    Map<String, Long> y2 = year("casa", 5);
+    Map<String, Long> y3 = year("casa", 1, "gato", 7);
+
+    WindowAggregator window = new WindowAggregator();
+    window.add(y1);
+    window.add(y2);
+    assertEquals(15, window.getOccurrences("casa"));
+    assertEquals(2, window.getYearOccurrences("casa"));
+
+    window.shift(y3, y1);
+    assertEquals(6, window.getOccurrences("casa"));
+    assertEquals(2, window.getYearOccurrences("casa"));
+    assertEquals(0, window.getYearOccurrences("perro"));
+    assertEquals(7, window.getOccurrences("gato"));
+    assertEquals(2, window.size());
+  }
+
+  /**
+   * Tests that the dictionary only has the grams that appear in enough years.
+   */
+  @Test
+  public void getDictionaryTest() {
+    WindowAggregator window = new WindowAggregator();
+    window.add(year("casa", 10, "perro", 3));
+    window.add(year("casa", 5));
+
+    Map<String, Long> dictionary = window.getDictionary(2);
+    assertEquals(1, dictionary.size());
+    assertEquals(15L, (long) dictionary.get("casa"));
+    assertFalse(dictionary.containsKey("perro"));
+    assertTrue(window.getDictionary(1).containsKey("perro"));
+  }
+}